@@ -0,0 +1,119 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cell state payload building for registered cell lists of different sizes,
+ * cycling through every cell type, and for each primary selection fallback.
+ * The serialize* benchmarks compare the json and binary encodings up to the point
+ * they are handed to the bridge; decode-state-benchmark.js covers the webview side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellPayloadBenchmark {
+    static final String[] CELL_TYPES = {
+        CellSnapshot.CELL_TYPE_LTE,
+        CellSnapshot.CELL_TYPE_NR,
+        CellSnapshot.CELL_TYPE_GSM,
+        CellSnapshot.CELL_TYPE_WCDMA,
+        CellSnapshot.CELL_TYPE_CDMA,
+        CellSnapshot.CELL_TYPE_TDSCDMA
+    };
+
+    /**
+     * How the primary cell is found: a primary serving cell, the first cell
+     * with loaded signal data, or the first cell as a last resort.
+     */
+    public enum PrimarySelection {
+        SERVING,
+        LOADED_FALLBACK,
+        FIRST_FALLBACK
+    }
+
+    @Param({"1", "4", "16"})
+    public int cellCount;
+
+    @Param({"SERVING", "LOADED_FALLBACK", "FIRST_FALLBACK"})
+    public PrimarySelection primarySelection;
+
+    private final CellSnapshotSet cells = new CellSnapshotSet();
+    private final BinaryStateEncoder encoder = new BinaryStateEncoder();
+
+    @Setup
+    public void setUp() {
+        fillCells(cells, cellCount, primarySelection);
+    }
+
+    /**
+     * Fills the given set with cellCount cells cycling through every cell type,
+     * with the primary found through the given selection.
+     */
+    static void fillCells(CellSnapshotSet cells, int cellCount, PrimarySelection primarySelection) {
+        cells.clear();
+        // the selected cell sits in the middle, so selection has to scan past others
+        int selected = cellCount / 2;
+
+        for (int i = 0; i < cellCount; i++) {
+            CellSnapshot cell = cells.add();
+            cell.cellType = CELL_TYPES[i % CELL_TYPES.length];
+            cell.dbm = -70 - i;
+            cell.level = 4 - i % 5;
+            cell.primary = primarySelection == PrimarySelection.SERVING && i == selected;
+            cell.connectionStatus = cell.primary ? 1 : 0;
+            cell.loaded = primarySelection != PrimarySelection.FIRST_FALLBACK
+                && (primarySelection != PrimarySelection.LOADED_FALLBACK || i >= selected);
+            if (cell.cellType.equals(CellSnapshot.CELL_TYPE_LTE) || cell.cellType.equals(CellSnapshot.CELL_TYPE_NR)) {
+                cell.rsrp = -95 - i;
+                cell.rsrq = -10;
+                cell.sinr = 12;
+            }
+        }
+
+        cells.selectPrimary();
+    }
+
+    @Benchmark
+    public int selectPrimary() {
+        cells.selectPrimary();
+        return cells.getPrimaryIndex();
+    }
+
+    @Benchmark
+    public JSONObject buildCellState() {
+        return SignalPayloadBuilder.getCellStatePayloadJson(cells);
+    }
+
+    /**
+     * Building and stringifying, as cordova does before handing the payload to the webview.
+     */
+    @Benchmark
+    public String serializeCellState() {
+        return SignalPayloadBuilder.getCellStatePayloadJson(cells).toString();
+    }
+
+    /**
+     * Encoding and base64 encoding, as cordova does with ArrayBuffer results.
+     */
+    @Benchmark
+    public String serializeCellStateBinary() {
+        return Base64.getEncoder().encodeToString(encoder.encodeCellState(cells, BinaryStateEncoder.NO_CACHE_AGE));
+    }
+}
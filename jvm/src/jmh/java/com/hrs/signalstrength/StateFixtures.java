@@ -0,0 +1,54 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+
+/**
+ * Writes the json and binary encodings of the benchmarked states, as they cross the bridge,
+ * for decode-state-benchmark.js to decode in node.
+ */
+public final class StateFixtures {
+    private StateFixtures() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        BinaryStateEncoder encoder = new BinaryStateEncoder();
+        JSONArray fixtures = new JSONArray();
+
+        for (int cellCount : new int[] {1, 4, 16}) {
+            CellSnapshotSet cells = new CellSnapshotSet();
+            CellPayloadBenchmark.fillCells(cells, cellCount, CellPayloadBenchmark.PrimarySelection.SERVING);
+            fixtures.put(createFixture(
+                "cellState (" + cellCount + " cells)",
+                SignalPayloadBuilder.getCellStatePayloadJson(cells),
+                encoder.encodeCellState(cells, BinaryStateEncoder.NO_CACHE_AGE)
+            ));
+        }
+
+        WifiSnapshot info = new WifiSnapshot();
+        WifiPayloadBenchmark.fillWifi(info, true);
+        fixtures.put(createFixture(
+            "wifiState",
+            SignalPayloadBuilder.getWifiStatePayloadJson(true, info),
+            encoder.encodeWifiState(true, info, null, BinaryStateEncoder.NO_CACHE_AGE)
+        ));
+
+        Path output = Paths.get(args[0]);
+        Files.createDirectories(output.getParent());
+        Files.write(output, fixtures.toString(2).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JSONObject createFixture(String name, JSONObject json, byte[] frame) {
+        return new JSONObject()
+            .put("name", name)
+            .put("json", json.toString())
+            .put("binary", Base64.getEncoder().encodeToString(frame));
+    }
+}
@@ -0,0 +1,78 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wifi state payload building, with and without the API 30+ level and link speed details.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WifiPayloadBenchmark {
+    @Param({"true", "false"})
+    public boolean linkSpeedDetails;
+
+    private final WifiSnapshot info = new WifiSnapshot();
+    private final BinaryStateEncoder encoder = new BinaryStateEncoder();
+
+    @Setup
+    public void setUp() {
+        fillWifi(info, linkSpeedDetails);
+    }
+
+    static void fillWifi(WifiSnapshot info, boolean linkSpeedDetails) {
+        info.ssid = "\"hrs-clinic-5g\"";
+        info.bssid = "a4:2b:b0:1c:9e:41";
+        info.networkId = 3;
+        info.rssi = -58;
+        info.linkSpeedMbps = 433;
+        if (linkSpeedDetails) {
+            info.level = 3;
+            info.maxLevel = 4;
+            info.hasLinkSpeedDetails = true;
+            info.txLinkSpeedMbps = 433;
+            info.maxTxLinkSpeedMbps = 866;
+            info.rxLinkSpeedMbps = 390;
+            info.maxRxLinkSpeedMbps = 866;
+        }
+    }
+
+    @Benchmark
+    public JSONObject buildWifiState() {
+        return SignalPayloadBuilder.getWifiStatePayloadJson(true, info);
+    }
+
+    @Benchmark
+    public JSONObject buildWifiDisconnected() {
+        return SignalPayloadBuilder.getWifiStatePayloadJson(true, null);
+    }
+
+    @Benchmark
+    public String serializeWifiState() {
+        return SignalPayloadBuilder.getWifiStatePayloadJson(true, info).toString();
+    }
+
+    @Benchmark
+    public String serializeWifiStateBinary() {
+        return Base64.getEncoder().encodeToString(
+            encoder.encodeWifiState(true, info, null, BinaryStateEncoder.NO_CACHE_AGE)
+        );
+    }
+}
@@ -0,0 +1,63 @@
+#!/usr/bin/env node
+
+/*
+Compares the webview side cost of the json and binary state encodings:
+JSON.parse() of the stringified payload against base64 decoding plus
+decodeBinaryState() of the frame, as cordova.exec() does for ArrayBuffer results.
+Runs against the built www/ output, on fixtures written by StateFixtures.java.
+
+Usage:
+node decode-state-benchmark.js <fixtures.json>
+*/
+
+const fs = require('fs');
+const path = require('path');
+const {decodeBinaryState} = require(path.resolve(__dirname, '../../../../www/cordova-plugin-signal-strength.js'));
+
+const WARMUP_MS = 1000;
+const MEASURE_MS = 2000;
+
+function toArrayBuffer(base64) {
+    const bytes = Buffer.from(base64, 'base64');
+    return bytes.buffer.slice(bytes.byteOffset, bytes.byteOffset + bytes.byteLength);
+}
+
+function measure(run) {
+    let sink = 0;
+    const warmupEnd = Date.now() + WARMUP_MS;
+    while (Date.now() < warmupEnd) {
+        sink += run() ? 1 : 0;
+    }
+    let count = 0;
+    const start = process.hrtime.bigint();
+    const end = Date.now() + MEASURE_MS;
+    while (Date.now() < end) {
+        for (let i = 0; i < 100; i++) {
+            sink += run() ? 1 : 0;
+        }
+        count += 100;
+    }
+    const elapsedMs = Number(process.hrtime.bigint() - start) / 1e6;
+    return {opsPerMs: count / elapsedMs, sink};
+}
+
+function main() {
+    const fixtures = JSON.parse(fs.readFileSync(process.argv[2], 'utf8'));
+
+    console.log('state                  encoding  bytes      ops/ms');
+    for (const fixture of fixtures) {
+        const json = measure(() => JSON.parse(fixture.json));
+        const binary = measure(() => decodeBinaryState(toArrayBuffer(fixture.binary)));
+        const rows = [
+            ['json', fixture.json.length, json.opsPerMs],
+            ['binary', fixture.binary.length, binary.opsPerMs]
+        ];
+        for (const [encoding, bytes, opsPerMs] of rows) {
+            console.log(
+                `${fixture.name.padEnd(22)} ${encoding.padEnd(9)} ${String(bytes).padStart(5)} ${opsPerMs.toFixed(1).padStart(11)}`
+            );
+        }
+    }
+}
+
+main();
@@ -0,0 +1,164 @@
+package com.hrs.signalstrength;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ListenerStateHolderTest {
+    private static final int ROUNDS = 200;
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int OPERATIONS = 2000;
+
+    @Test
+    public void transitionsFollowTheirPreconditions() {
+        ListenerStateHolder holder = new ListenerStateHolder();
+
+        assertFalse(holder.park());
+        assertTrue(holder.register());
+        assertFalse(holder.register());
+        assertTrue(holder.park());
+        assertFalse(holder.park());
+        assertFalse(holder.get().isListening());
+        assertTrue(holder.get().isListeningOrParked());
+
+        ListenerState previous = holder.unregister();
+        assertNotNull(previous);
+        assertTrue(previous.parked);
+        assertFalse(holder.get().parked);
+        assertNull(holder.unregister());
+    }
+
+    @Test
+    public void nothingRegistersAfterDestroy() {
+        ListenerStateHolder holder = new ListenerStateHolder();
+        assertTrue(holder.register());
+        assertTrue(holder.park());
+
+        holder.destroy();
+
+        assertFalse(holder.unpark());
+        assertNotNull(holder.unregister());
+        assertFalse(holder.register());
+        assertFalse(holder.get().isListeningOrParked());
+    }
+
+    /**
+     * Hammers register / unregister / park / unpark from several threads while another destroys,
+     * and readers check every published snapshot the way listener callbacks do.
+     */
+    @Test
+    public void concurrentTransitionsStayConsistent() throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            runRound(round);
+        }
+    }
+
+    private static void runRound(int round) throws InterruptedException {
+        ListenerStateHolder holder = new ListenerStateHolder();
+        // listeners currently registered, as the plugin would have done it
+        AtomicInteger registrations = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicInteger progress = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        // set once destroy() returned, so any later successful register() is a violation
+        boolean[] destroyReturned = new boolean[1];
+        Object destroyLock = new Object();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            Random random = new Random(round * 31L + i);
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int op = 0; op < OPERATIONS; op++) {
+                    progress.incrementAndGet();
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            boolean wasDestroyed;
+                            synchronized (destroyLock) {
+                                wasDestroyed = destroyReturned[0];
+                            }
+                            if (holder.register()) {
+                                registrations.incrementAndGet();
+                                if (wasDestroyed) {
+                                    violations.incrementAndGet();
+                                }
+                            }
+                            break;
+                        case 1:
+                            if (holder.unregister() != null) {
+                                registrations.decrementAndGet();
+                            }
+                            break;
+                        case 2:
+                            holder.park();
+                            break;
+                        default:
+                            holder.unpark();
+                            break;
+                    }
+                }
+            }));
+        }
+
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                boolean seenDestroyed = false;
+                for (int op = 0; op < OPERATIONS; op++) {
+                    ListenerState state = holder.get();
+                    if (state.parked && !state.registered
+                        || seenDestroyed && !state.destroyed
+                        || state.isListening() && !state.isListeningOrParked()) {
+                        violations.incrementAndGet();
+                    }
+                    seenDestroyed |= state.destroyed;
+                }
+            }));
+        }
+
+        // destroys while the writers are still busy, somewhere in their first half
+        int destroyAt = new Random(round).nextInt(WRITERS * OPERATIONS / 2);
+        threads.add(new Thread(() -> {
+            awaitQuietly(start);
+            while (progress.get() < destroyAt) {
+                Thread.yield();
+            }
+            holder.destroy();
+            synchronized (destroyLock) {
+                destroyReturned[0] = true;
+            }
+        }));
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("round " + round, 0, violations.get());
+        assertTrue("round " + round, holder.get().destroyed);
+        // every successful register() was paired with exactly one successful unregister()
+        assertEquals("round " + round, holder.get().registered ? 1 : 0, registrations.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SignalHistoryTest {
+    private static SignalHistory createHistory(int capacity, long... timestamps) {
+        SignalHistory history = new SignalHistory(capacity);
+        for (long timestamp : timestamps) {
+            history.addCell(timestamp, true, CellSnapshot.CELL_TYPE_LTE, -90, 3);
+        }
+        return history;
+    }
+
+    @Test
+    public void sinceWithoutLimitReturnsEveryLaterSample() {
+        SignalHistory history = createHistory(8, 100, 200, 300, 400);
+
+        // getHistory() passes Integer.MAX_VALUE when js omits the limit
+        JSONArray result = history.toJson(200, Integer.MAX_VALUE);
+
+        assertEquals(2, result.length());
+        assertEquals(300, result.getJSONObject(0).getLong("timestamp"));
+        assertEquals(400, result.getJSONObject(1).getLong("timestamp"));
+    }
+
+    @Test
+    public void sinceWithoutLimitAfterWrapping() {
+        SignalHistory history = createHistory(3, 100, 200, 300, 400, 500);
+
+        JSONArray result = history.toJson(300, Integer.MAX_VALUE);
+
+        assertEquals(2, result.length());
+        assertEquals(400, result.getJSONObject(0).getLong("timestamp"));
+        assertEquals(500, result.getJSONObject(1).getLong("timestamp"));
+    }
+
+    @Test
+    public void limitKeepsOldestMatchingSamples() {
+        SignalHistory history = createHistory(8, 100, 200, 300, 400);
+
+        JSONArray result = history.toJson(100, 2);
+
+        assertEquals(2, result.length());
+        assertEquals(200, result.getJSONObject(0).getLong("timestamp"));
+        assertEquals(300, result.getJSONObject(1).getLong("timestamp"));
+    }
+
+    @Test
+    public void sinceAfterNewestSampleReturnsNothing() {
+        SignalHistory history = createHistory(8, 100, 200);
+
+        assertEquals(0, history.toJson(200, Integer.MAX_VALUE).length());
+    }
+
+    @Test
+    public void negativeLimitReturnsNothing() {
+        SignalHistory history = createHistory(8, 100, 200);
+
+        assertEquals(0, history.toJson(0, -1).length());
+    }
+}
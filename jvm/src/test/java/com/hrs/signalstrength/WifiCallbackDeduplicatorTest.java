@@ -0,0 +1,64 @@
+package com.hrs.signalstrength;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WifiCallbackDeduplicatorTest {
+    private static WifiSnapshot createSnapshot(String bssid, int rssi) {
+        WifiSnapshot snapshot = new WifiSnapshot();
+        snapshot.ssid = "\"office\"";
+        snapshot.bssid = bssid;
+        snapshot.networkId = 4;
+        snapshot.rssi = rssi;
+        snapshot.level = 3;
+        snapshot.maxLevel = 4;
+        snapshot.linkSpeedMbps = 433;
+        return snapshot;
+    }
+
+    @Test
+    public void identicalReadingIsDuplicate() {
+        WifiCallbackDeduplicator deduplicator = new WifiCallbackDeduplicator();
+
+        assertFalse(deduplicator.isDuplicate(createSnapshot("02:00:00:00:00:01", -60)));
+        assertTrue(deduplicator.isDuplicate(createSnapshot("02:00:00:00:00:01", -60)));
+        assertEquals(1, deduplicator.getStatsJson().getLong("deduplicated"));
+    }
+
+    @Test
+    public void rssiChangeOfOneDbPasses() {
+        WifiCallbackDeduplicator deduplicator = new WifiCallbackDeduplicator();
+
+        assertFalse(deduplicator.isDuplicate(createSnapshot("02:00:00:00:00:01", -60)));
+        assertFalse(deduplicator.isDuplicate(createSnapshot("02:00:00:00:00:01", -61)));
+    }
+
+    @Test
+    public void everyFieldTakesPart() {
+        WifiCallbackDeduplicator deduplicator = new WifiCallbackDeduplicator();
+        WifiSnapshot snapshot = createSnapshot("02:00:00:00:00:01", -60);
+        assertFalse(deduplicator.isDuplicate(snapshot));
+
+        snapshot.maxRxLinkSpeedMbps = 866;
+        assertFalse(deduplicator.isDuplicate(snapshot));
+        snapshot.ssid = "\"guest\"";
+        assertFalse(deduplicator.isDuplicate(snapshot));
+        snapshot.bssid = null;
+        assertFalse(deduplicator.isDuplicate(snapshot));
+        assertTrue(deduplicator.isDuplicate(snapshot));
+    }
+
+    @Test
+    public void resetLetsTheNextReadingThrough() {
+        WifiCallbackDeduplicator deduplicator = new WifiCallbackDeduplicator();
+        WifiSnapshot snapshot = createSnapshot("02:00:00:00:00:01", -60);
+        assertFalse(deduplicator.isDuplicate(snapshot));
+
+        deduplicator.reset();
+
+        assertFalse(deduplicator.isDuplicate(snapshot));
+    }
+}
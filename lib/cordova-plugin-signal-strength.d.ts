@@ -14,7 +14,35 @@ export declare enum CellInfoType {
 }
 export declare enum SignalStrengthEventType {
     CELL_STATE_UPDATED = "cellStateUpdated",
-    WIFI_STATE_UPDATED = "wifiStateUpdated"
+    WIFI_STATE_UPDATED = "wifiStateUpdated",
+    /**
+     * A source started showing signs of an imminent drop (see `PluginOptions.degradation`).
+     * Delivered as json even to binary subscribers.
+     */
+    SIGNAL_DEGRADING = "signalDegrading",
+    /**
+     * A source that was degrading no longer is.
+     */
+    SIGNAL_RECOVERED = "signalRecovered"
+}
+export declare enum SignalDegradationReason {
+    /**
+     * At or below the configured `cellDbm` / `wifiRssi`.
+     */
+    WEAK = "weak",
+    /**
+     * Falling faster than `slopeDbPerSec`, within `marginDb` of the weak threshold.
+     */
+    FALLING = "falling",
+    /**
+     * The serving cell type / BSSID changed, or the connection was lost or regained,
+     * at least `flapCount` times within `flapWindowMs`.
+     */
+    FLAPPING = "flapping",
+    /**
+     * Wifi only: the link speed falls faster than `linkSpeedFallPercentPerSec`.
+     */
+    LINK_SPEED_FALLING = "linkSpeedFalling"
 }
 /**
  * Constants reported from CellInfo:
@@ -34,7 +62,27 @@ export interface CellInfo {
      */
     cellDataLoaded: boolean;
     dbm: number;
+    /**
+     * A level in range [0, 4] (inclusive) indicating the quality of this connection.
+     * This value is retrieved directly from the native android CellSignalStrength API:
+     * https://developer.android.com/reference/android/telephony/CellSignalStrength#getLevel()
+     */
     level: number;
+    /**
+     * Reference signal received power in dBm (SS-RSRP for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    rsrp?: number;
+    /**
+     * Reference signal received quality in dB (SS-RSRQ for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    rsrq?: number;
+    /**
+     * Signal to noise ratio in dB (RSSNR for LTE, SS-SINR for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    sinr?: number;
 }
 export interface CellState extends CellInfo {
     /**
@@ -47,6 +95,37 @@ export interface CellState extends CellInfo {
      * Any registered non-primary CellInfo instances.
      */
     alternates: CellInfo[];
+    /**
+     * How old (in milliseconds) the returned state is.
+     * Only included in `getCellState()` responses; 0 when freshly queried.
+     */
+    cacheAgeMs?: number;
+    /**
+     * Set on `getCellState()` responses when the cell info query failed or passed
+     * its deadline (see `cellRefreshTimeoutMs`), and the last known state was returned instead.
+     */
+    stale?: boolean;
+    /**
+     * Cell state of each active subscription, keyed by subscription id.
+     * Only included when the `multiSim` option is set; not included in binary payloads.
+     */
+    simSubscriptions?: {
+        [subscriptionId: string]: SubscriptionCellState;
+    };
+}
+export interface SubscriptionCellState extends CellInfo {
+    subscriptionId: number;
+    /**
+     * Index of the SIM slot holding this subscription.
+     */
+    slotIndex: number;
+    carrierName?: string;
+    primary: boolean;
+    alternates: CellInfo[];
+    /**
+     * How old (in milliseconds) the cells of this subscription are.
+     */
+    cacheAgeMs: number;
 }
 export interface WifiInfo {
     ssid: string;
@@ -65,11 +144,663 @@ export interface WifiState {
     enabled: boolean;
     connected: boolean;
     info: WifiInfo;
+    /**
+     * How old (in milliseconds) the returned state is.
+     * Only included in `getWifiState()` responses; 0 when freshly queried.
+     */
+    cacheAgeMs?: number;
+}
+/**
+ * Fields of `CellState` that can be requested with the `fields` option.
+ * `rsrp`, `rsrq` and `sinr` are included or omitted together.
+ */
+export type CellStateField = 'cellType' | 'dbm' | 'level' | 'connectionStatus' | 'cellDataLoaded' | 'rsrp' | 'rsrq' | 'sinr' | 'primary' | 'alternates' | 'simSubscriptions';
+/**
+ * Fields of `WifiInfo` that can be requested with the `fields` option.
+ * `level` and `maxLevel` are included or omitted together, as are the tx / rx link speeds.
+ */
+export type WifiInfoField = 'ssid' | 'bssid' | 'networkId' | 'rssi' | 'linkSpeedMbps' | 'level' | 'maxLevel' | 'txLinkSpeedMbps' | 'maxTxLinkSpeedMbps' | 'rxLinkSpeedMbps' | 'maxRxLinkSpeedMbps';
+export type SignalField = CellStateField | WifiInfoField;
+/**
+ * Primary cell fields only, i.e. without `alternates` and `simSubscriptions`.
+ */
+export declare const PRIMARY_CELL_FIELDS: readonly ["cellType", "dbm", "level", "connectionStatus", "cellDataLoaded", "rsrp", "rsrq", "sinr", "primary"];
+/**
+ * Wifi fields without the Android 11+ tx / rx link speeds.
+ */
+export declare const BASIC_WIFI_FIELDS: readonly ["ssid", "bssid", "networkId", "rssi", "linkSpeedMbps", "level", "maxLevel"];
+export type ProjectedCellInfo<F extends SignalField> = Pick<CellInfo, Extract<F, keyof CellInfo>>;
+/**
+ * A `CellState` that only holds the requested fields (plus `cacheAgeMs` and `stale`).
+ */
+export type ProjectedCellState<F extends SignalField> = ProjectedCellInfo<F> & Pick<CellState, Extract<F, 'primary' | 'simSubscriptions'> | 'cacheAgeMs' | 'stale'> & ('alternates' extends F ? {
+    alternates: ProjectedCellInfo<F>[];
+} : {});
+/**
+ * A `WifiState` whose `info` only holds the requested fields.
+ */
+export type ProjectedWifiState<F extends SignalField> = Omit<WifiState, 'info'> & {
+    info: Pick<WifiInfo, Extract<F, keyof WifiInfo>>;
+};
+export interface StateRequestOptions {
+    /**
+     * Payload fields to include in the response; the others are neither built nor sent.
+     * Wifi `enabled` / `connected`, `cacheAgeMs` and `stale` are always included.
+     * Unknown names are ignored. Does not apply to `binary` responses, which always hold
+     * every field. Defaults to all fields.
+     */
+    fields?: readonly SignalField[];
+    /**
+     * If the plugin has a last known state that is at most this old (in milliseconds),
+     * it is returned immediately without querying system services.
+     * Defaults to 0 (always query).
+     */
+    maxAgeMs?: number;
+    /**
+     * When true, the state crosses the bridge as a compact binary frame
+     * and is decoded in js, instead of as JSON. The resolved value is the same.
+     * Defaults to false.
+     */
+    binary?: boolean;
+}
+export interface WifiStateRequestOptions extends StateRequestOptions {
+    /**
+     * How long to wait for the network request to resolve (Android 12+ only).
+     * On timeout the promise is rejected with a `StateRequestTimeoutError`.
+     * Defaults to 10000.
+     */
+    timeoutMs?: number;
+}
+export interface StateRequestTimeoutError {
+    message: string;
+    /**
+     * The last known state, if the plugin has received one.
+     */
+    lastKnownState?: WifiState;
+}
+/**
+ * Data of `signalDegrading` and `signalRecovered` events.
+ */
+export interface SignalDegradationState {
+    source: SignalSampleSource;
+    degraded: boolean;
+    /**
+     * Empty once recovered.
+     */
+    reasons: SignalDegradationReason[];
+    /**
+     * Serving cell type, for cell sources.
+     */
+    cellType?: CellInfoType;
+    /**
+     * Serving access point, for wifi sources, if known.
+     */
+    bssid?: string;
+    /**
+     * Number of serving changes within the flapping window.
+     */
+    servingChanges: number;
+    dbm?: number;
+    rssi?: number;
+    /**
+     * Exponentially weighted rate of change of dbm / rssi.
+     */
+    slopeDbPerSec?: number;
+    linkSpeedMbps?: number;
+    linkSpeedSlopeMbpsPerSec?: number;
+    /**
+     * Only included in `signalRecovered` events.
+     */
+    degradedForMs?: number;
+}
+export interface SignalDegradationStats extends SignalDegradationState {
+    /**
+     * Number of `signalDegrading` transitions.
+     */
+    degradingCount: number;
+    /**
+     * Number of `signalRecovered` transitions.
+     */
+    recoveredCount: number;
+}
+/**
+ * Thresholds of the native degradation detector. Omitted values keep their current setting.
+ */
+export interface SignalDegradationOptions {
+    /**
+     * Rate, in dB per second, at which a falling signal counts as degrading. Defaults to 0.5.
+     */
+    slopeDbPerSec?: number;
+    /**
+     * Time constant of the exponentially weighted slopes; larger values react slower
+     * but ignore short dips. Defaults to 5000.
+     */
+    slopeTimeConstantMs?: number;
+    /**
+     * Primary cell dBm at or below which the cell counts as weak. Defaults to -110.
+     */
+    cellDbm?: number;
+    /**
+     * Wifi RSSI at or below which wifi counts as weak. Defaults to -75.
+     */
+    wifiRssi?: number;
+    /**
+     * A falling signal only counts as degrading within this many dB above the weak threshold.
+     * Defaults to 15.
+     */
+    marginDb?: number;
+    /**
+     * Number of serving changes within `flapWindowMs` that count as flapping; 0 turns
+     * flapping detection off. Defaults to 3, at most 32.
+     */
+    flapCount?: number;
+    /**
+     * Defaults to 60000.
+     */
+    flapWindowMs?: number;
+    /**
+     * Relative rate, in percent of the current link speed per second, at which a falling
+     * wifi link speed counts as degrading. Defaults to 10.
+     */
+    linkSpeedFallPercentPerSec?: number;
 }
 export interface SignalStrengthEvent {
     type: SignalStrengthEventType;
-    data: CellState | WifiState | any;
+    data: CellState | WifiState | SignalDegradationState | any;
+    /**
+     * Rolling stats of the event's source, only included when the
+     * `attachStats` delegate option is set.
+     */
+    stats?: SignalStatsWindow[];
 }
+/**
+ * Options that affect every subscriber. When passed to `configure()` or
+ * `setSharedEventDelegate()`, they replace the values set by earlier calls.
+ */
+export interface PluginOptions {
+    /**
+     * Cell state events are only emitted when the primary cell changes,
+     * its level changes, or its dBm moves by more than this many units
+     * since the last emitted event. Defaults to 0 (only identical events are dropped).
+     */
+    dbmHysteresis?: number;
+    /**
+     * Wifi state events are only emitted when the BSSID, level or link speeds change,
+     * or when RSSI moves by more than this many units since the last emitted event.
+     * Defaults to 0 (only identical events are dropped).
+     */
+    rssiHysteresis?: number;
+    /**
+     * Signal strength callbacks update the cached primary cell in place, and
+     * only trigger a full cell info rescan once the cache is older than this.
+     * Defaults to 30000.
+     */
+    cellRescanIntervalMs?: number;
+    /**
+     * Monitors every active subscription (SIM) separately, and adds their cells to cell states
+     * under `simSubscriptions`. Requires the READ_PHONE_STATE permission and Android 7+.
+     * Defaults to false.
+     */
+    multiSim?: boolean;
+    /**
+     * On Android 10+, cell info queries run asynchronously and are abandoned after this many
+     * milliseconds, in which case the last known cell state is used. Defaults to 2000.
+     */
+    cellRefreshTimeoutMs?: number;
+    /**
+     * Number of samples retained in the native signal history (see `getHistory()`).
+     * Defaults to 256.
+     */
+    historyCapacity?: number;
+    /**
+     * Size cap, in bytes, of a circular sample log in app storage that survives webview
+     * reloads and app restarts (see `queryPersistentLog()`). Changing the cap discards
+     * logged samples; 0 stops logging. Larger caps are clamped to 64 MiB.
+     * Defaults to 0, i.e. disabled.
+     */
+    persistentLogMaxBytes?: number;
+    /**
+     * Thresholds of the `signalDegrading` / `signalRecovered` events. Subscribing only to
+     * these event types keeps the native listeners running without waking the webview
+     * for every reading.
+     */
+    degradation?: SignalDegradationOptions;
+    /**
+     * Window lengths, in milliseconds, over which rolling signal stats are aggregated
+     * (see `getSignalStats()`). Changing this discards previously aggregated samples.
+     * Defaults to [10000, 60000, 300000].
+     */
+    statsWindowsMs?: number[];
+    /**
+     * Below Android 12, wifi state is polled rather than observed. Polls run at this
+     * interval after a connection change or an RSSI swing. Defaults to 2000.
+     */
+    legacyPollMinIntervalMs?: number;
+    /**
+     * Below Android 12, the poll interval doubles for every poll that finds the signal
+     * stable, up to this limit. Polling is suspended while the app is paused. Defaults to 30000.
+     */
+    legacyPollMaxIntervalMs?: number;
+    /**
+     * By default, native listeners are parked while the app is paused: only the cached
+     * primary cell signal strength is kept current, and no events are emitted.
+     * On resume, listeners are restored and the current state is emitted.
+     * Set this to true to keep listeners and events running in the background,
+     * e.g. for foreground service monitoring. Defaults to false.
+     */
+    keepRunningInBackground?: boolean;
+}
+/**
+ * Options that only affect the subscriber they are passed with.
+ */
+export interface SubscriptionOptions {
+    /**
+     * Event types delivered to this subscriber. Defaults to all event types.
+     */
+    eventTypes?: SignalStrengthEventType[];
+    /**
+     * Minimum time between deliveries to this subscriber.
+     * Events received within this window are coalesced so that only the
+     * latest event of each type is delivered when the window elapses.
+     * Defaults to 0 (deliver immediately).
+     */
+    minEmitIntervalMs?: number;
+    /**
+     * Cell state events are only delivered to this subscriber when the primary cell type
+     * changes, or its dBm moves by at least this many units since the last delivered event.
+     * Applied on top of the plugin-wide `dbmHysteresis`. Defaults to 0 (no threshold).
+     */
+    dbmThreshold?: number;
+    /**
+     * When true, rolling stats of the event's source are attached to each emitted event.
+     * Defaults to false.
+     */
+    attachStats?: boolean;
+    /**
+     * When greater than 1, events are buffered natively and sent across the bridge
+     * in batches of up to this many events. Batches are also sent once `batchMaxDelayMs`
+     * elapses and when the app is paused. The listener is still invoked once per event.
+     * Defaults to 0 (batching disabled).
+     */
+    batchSize?: number;
+    /**
+     * Longest time the first buffered event waits before its batch is sent.
+     * Only applies when `batchSize` is greater than 1. Defaults to 1000.
+     */
+    batchMaxDelayMs?: number;
+    /**
+     * When true, cell and wifi state events cross the bridge as compact binary frames
+     * and are decoded in js, instead of as JSON. Binary events are sent individually,
+     * so `batchSize` and `attachStats` do not apply to them. Defaults to false.
+     */
+    binary?: boolean;
+    /**
+     * Fields of cell and wifi state events delivered to this subscriber; see
+     * `StateRequestOptions.fields`. Omitted fields are absent from the event data.
+     * Does not apply to `binary` events. Defaults to all fields.
+     */
+    fields?: readonly SignalField[];
+}
+export interface SharedEventDelegateOptions extends SubscriptionOptions, PluginOptions {
+}
+/**
+ * Removes the subscription it was returned for.
+ */
+export type SignalStrengthUnsubscribe = () => Promise<void>;
+/**
+ * Rolling aggregates of primary cell dBm or wifi RSSI over a single window.
+ * Percentiles are approximated from a 2 dB wide histogram.
+ */
+export interface SignalStatsWindow {
+    windowMs: number;
+    count: number;
+    min?: number;
+    max?: number;
+    mean?: number;
+    variance?: number;
+    p50?: number;
+    p95?: number;
+}
+export interface SignalStats {
+    /**
+     * Primary cell dBm, one entry per configured window.
+     */
+    cell: SignalStatsWindow[];
+    /**
+     * Connected wifi RSSI, one entry per configured window.
+     */
+    wifi: SignalStatsWindow[];
+}
+export declare enum SignalSampleSource {
+    CELL = "cell",
+    WIFI = "wifi"
+}
+/**
+ * A single entry of the native signal history.
+ */
+export interface SignalSample {
+    /**
+     * Unix epoch time in milliseconds when this sample was taken.
+     */
+    timestamp: number;
+    source: SignalSampleSource;
+    /**
+     * For cell samples, whether a registered cell was found.
+     * For wifi samples, whether wifi was connected.
+     */
+    connected: boolean;
+    cellType?: CellInfoType;
+    dbm?: number;
+    level?: number;
+    rssi?: number;
+    linkSpeedMbps?: number;
+}
+/**
+ * A single entry of the persistent sample log.
+ */
+export interface PersistentSignalSample extends SignalSample {
+    /**
+     * Increases by one for every logged sample, also across app restarts.
+     */
+    sequence: number;
+}
+export interface PersistentLogQueryOptions {
+    /**
+     * Only samples with a timestamp at or after this unix epoch time in milliseconds are returned.
+     */
+    from?: number;
+    /**
+     * Only samples with a timestamp at or before this unix epoch time in milliseconds are returned.
+     */
+    to?: number;
+    /**
+     * Only samples logged after this sequence are returned; pass `nextSequence` of the
+     * previous page to continue from there.
+     */
+    afterSequence?: number;
+    /**
+     * Maximum number of samples returned per page. Defaults to 500.
+     */
+    limit?: number;
+    /**
+     * Instead of samples, resolves the path of the log file, e.g. for upload
+     * (see the layout documented in PersistentSampleLog.java).
+     */
+    asFile?: boolean;
+}
+export interface PersistentLogPage {
+    /**
+     * Matching samples, oldest first.
+     */
+    samples: PersistentSignalSample[];
+    /**
+     * Set if more samples may match, to be passed as `afterSequence` of the next query.
+     */
+    nextSequence?: number;
+}
+export interface PersistentLogFile {
+    path: string;
+    sizeBytes: number;
+    /**
+     * Number of samples the file holds before the oldest ones are overwritten.
+     */
+    capacity: number;
+}
+export interface SharedEventStats {
+    /**
+     * Total events produced by the native listeners that matched this subscriber.
+     */
+    submitted: number;
+    /**
+     * Events actually sent across the bridge.
+     */
+    delivered: number;
+    /**
+     * Events replaced by a newer event of the same type before delivery.
+     */
+    merged: number;
+    /**
+     * Events discarded because the subscriber was removed before they were delivered.
+     */
+    dropped: number;
+    /**
+     * Events held back by this subscriber's `dbmThreshold`.
+     */
+    suppressed: number;
+    pending: number;
+    minIntervalMs: number;
+}
+export interface ChangeFilterStats {
+    dbmHysteresis: number;
+    rssiHysteresis: number;
+    /**
+     * Cell state events dropped because they did not differ enough from the last emitted event.
+     */
+    cellSuppressed: number;
+    /**
+     * Wifi state events dropped because they did not differ enough from the last emitted event.
+     */
+    wifiSuppressed: number;
+}
+export interface PendingRequestStats {
+    /**
+     * Number of callers currently waiting on a result.
+     */
+    depth: number;
+    maxDepth: number;
+    /**
+     * Number of native queries actually issued on behalf of the waiters.
+     */
+    queries: number;
+    completed: number;
+    failed: number;
+    timedOut: number;
+    meanWaitMs: number;
+    maxWaitMs: number;
+}
+export interface EventBatchStats {
+    enabled: boolean;
+    maxSize: number;
+    maxDelayMs: number;
+    /**
+     * Batches sent across the bridge.
+     */
+    batches: number;
+    /**
+     * Events sent as part of a batch.
+     */
+    batchedEvents: number;
+    largestBatch: number;
+    /**
+     * Events currently buffered for the next batch.
+     */
+    pending: number;
+}
+export interface LegacyWifiPollStats {
+    /**
+     * Delay until the next poll.
+     */
+    intervalMs: number;
+    minIntervalMs: number;
+    maxIntervalMs: number;
+    polls: number;
+    /**
+     * Polls that found the signal stable and lengthened the interval.
+     */
+    backOffs: number;
+    /**
+     * Polls that found the signal changing and reset the interval to its minimum.
+     */
+    resets: number;
+}
+export interface NetworkCallbackStats {
+    registered: boolean;
+    registrations: number;
+    /**
+     * Registrations skipped because the callback was already registered.
+     */
+    redundant: number;
+}
+export interface WifiCallbackDeduplicationStats {
+    /**
+     * Capability callbacks that differed from the previous one.
+     */
+    passed: number;
+    /**
+     * Capability callbacks identical to the previous one in every field, which are
+     * recorded as samples without building a payload or emitting an event.
+     */
+    deduplicated: number;
+}
+/**
+ * Only meaningful on Android 12+.
+ */
+export interface WifiCallbackStats {
+    /**
+     * The network callback kept while event listeners are registered.
+     */
+    listener: NetworkCallbackStats;
+    /**
+     * The network request held while `getWifiState()` calls are pending.
+     */
+    stateRequest: NetworkCallbackStats;
+    deduplication: WifiCallbackDeduplicationStats;
+}
+export interface CellInfoRefreshStats {
+    timeoutMs: number;
+    /**
+     * Cell info queries issued to the telephony service.
+     */
+    requests: number;
+    /**
+     * Refreshes that joined an in-flight query instead of issuing one.
+     */
+    merged: number;
+    timeouts: number;
+    errors: number;
+    /**
+     * Answers that arrived after their query passed its deadline.
+     */
+    late: number;
+    inFlight: boolean;
+}
+export interface SubscriptionStats {
+    id: string;
+    sharedEvents: SharedEventStats;
+    eventBatches: EventBatchStats;
+    /**
+     * Cell state events not delivered because of `dbmThreshold`.
+     */
+    thresholdSuppressed: number;
+}
+export interface SignalStrengthStats {
+    subscriptions: SubscriptionStats[];
+    changeFilter: ChangeFilterStats;
+    cellStateRequests: PendingRequestStats;
+    wifiStateRequests: PendingRequestStats;
+    /**
+     * Only meaningful below Android 12.
+     */
+    legacyWifiPoll: LegacyWifiPollStats;
+    /**
+     * Only meaningful on Android 10+.
+     */
+    cellInfoRefresh: CellInfoRefreshStats;
+    /**
+     * Current state of the degradation detector, per source.
+     */
+    degradation: {
+        cell: SignalDegradationStats;
+        wifi: SignalDegradationStats;
+    };
+    wifiCallbacks: WifiCallbackStats;
+    /**
+     * True while native listeners are parked because the app is paused.
+     */
+    listenersParked: boolean;
+}
+export interface LatencyHistogramBucket {
+    /**
+     * Upper bound of the bucket; the last bucket is bounded by the largest recorded duration.
+     */
+    leMs: number;
+    count: number;
+}
+export interface LatencyHistogram {
+    count: number;
+    meanMs: number;
+    maxMs: number;
+    /**
+     * Percentiles are the upper bound of the bucket they fall in.
+     */
+    p50Ms: number;
+    p95Ms: number;
+    /**
+     * Non-empty buckets only, in ascending order.
+     */
+    buckets: LatencyHistogramBucket[];
+}
+export interface ActionMetrics {
+    /**
+     * Time between the call reaching native code and starting on the plugin worker thread.
+     */
+    queueWait: LatencyHistogram;
+    /**
+     * Time spent on the worker thread; results delivered later by a listener are not included.
+     */
+    run: LatencyHistogram;
+}
+export interface EventMetrics {
+    /**
+     * Dispatched to at least one subscription.
+     */
+    emitted: number;
+    /**
+     * Filtered out as unchanged by hysteresis.
+     */
+    suppressed: number;
+    /**
+     * Changed, but no subscription accepts the event type.
+     */
+    dropped: number;
+}
+export interface SignalStrengthMetrics {
+    /**
+     * Time covered by these metrics, since plugin start or the last reset.
+     */
+    sinceResetMs: number;
+    actions: {
+        [action: string]: ActionMetrics;
+    };
+    /**
+     * Time until cell info queries to the telephony service answered.
+     * Below Android 10 these calls block the plugin worker thread.
+     */
+    cellInfoQueries: LatencyHistogram;
+    /**
+     * Native callbacks received, keyed by listener and method, e.g. `networkCallback.onLost`.
+     */
+    callbacks: {
+        [callback: string]: number;
+    };
+    events: {
+        [type in SignalStrengthEventType]?: EventMetrics;
+    };
+    /**
+     * Failed wifi state requests.
+     */
+    wifiStateErrors: number;
+    /**
+     * Native callbacks dropped because their listener was unregistered or parked
+     * after they were queued.
+     */
+    staleCallbacks: number;
+}
+/**
+ * Decodes a binary frame produced by the native plugin when the `binary` option is set.
+ * Layout is documented in BinaryStateEncoder.java.
+ */
+export declare function decodeBinaryState(buffer: ArrayBuffer): SignalStrengthEvent;
 /**
  * Provided for backwards compatibility - this will be removed in a future release.
  * @deprecated use `SignalStrength.getCellState()` instead
@@ -91,9 +822,72 @@ export declare function calculateSignalPercentage(rssi: number, bestRssi?: numbe
 export declare function calculateSignalLevel(rssi: number, maxLevel?: number, minLevel?: number, bestRssi?: number, worstRssi?: number): number;
 export declare class SignalStrengthCordovaInterface {
     constructor();
-    getCellState(): Promise<CellState>;
-    getWifiState(): Promise<WifiState>;
-    setSharedEventDelegate(success: SuccessCallback<SignalStrengthEvent>, error?: ErrorCallback): void;
+    getCellState<F extends SignalField>(options: StateRequestOptions & {
+        fields: readonly F[];
+    }): Promise<ProjectedCellState<F>>;
+    getCellState(options?: StateRequestOptions): Promise<CellState>;
+    getWifiState<F extends SignalField>(options: WifiStateRequestOptions & {
+        fields: readonly F[];
+    }): Promise<ProjectedWifiState<F>>;
+    getWifiState(options?: WifiStateRequestOptions): Promise<WifiState>;
+    getStats(): Promise<SignalStrengthStats>;
+    /**
+     * Returns counters and latency histograms recorded since plugin start or the last reset.
+     * @param reset clears the metrics after taking this snapshot
+     */
+    getMetrics(reset?: boolean): Promise<SignalStrengthMetrics>;
+    /**
+     * Starts or stops recording native hot path activity into a fixed-size trace ring.
+     * Tracing is off by default.
+     * @param capacity number of records kept; changing it discards recorded ones
+     */
+    setTraceEnabled(enabled: boolean, capacity?: number): Promise<void>;
+    /**
+     * Returns the recorded trace as a compact binary dump, to be decoded offline
+     * (see the layout documented in TraceRecorder.java).
+     * @param clear discards the recorded trace after taking this dump
+     */
+    dumpTrace(clear?: boolean): Promise<ArrayBuffer>;
+    /**
+     * Returns samples recorded by the native listeners while the shared event delegate
+     * is set, as well as by one-shot state requests, oldest first.
+     * @param since only samples with a timestamp greater than this are returned
+     * @param limit maximum number of samples to return
+     */
+    getHistory(since?: number, limit?: number): Promise<SignalSample[]>;
+    /**
+     * Returns a page of samples from the persistent sample log, which is enabled with
+     * the `persistentLogMaxBytes` option, or the path of the log file if `asFile` is set.
+     */
+    queryPersistentLog(options: PersistentLogQueryOptions & {
+        asFile: true;
+    }): Promise<PersistentLogFile>;
+    queryPersistentLog(options?: PersistentLogQueryOptions): Promise<PersistentLogPage>;
+    /**
+     * Returns rolling aggregates of the samples recorded by the native listeners
+     * and one-shot state requests, over each configured window.
+     */
+    getSignalStats(): Promise<SignalStats>;
+    /**
+     * Sets options that affect every subscriber, replacing the values set by earlier calls.
+     * Options that are not passed keep their current value.
+     */
+    configure(options: PluginOptions): Promise<void>;
+    /**
+     * Adds an independent listener of state change events. Native listeners are
+     * registered when the first subscriber is added, and removed with the last one.
+     * @returns a function that removes this subscription
+     */
+    subscribe(listener: SuccessCallback<SignalStrengthEvent>, options?: SubscriptionOptions, error?: ErrorCallback): SignalStrengthUnsubscribe;
+    /**
+     * Sets the single shared listener, replacing any listener set by a previous call.
+     * Listeners added with `subscribe()` are not affected.
+     * @returns a function that removes the shared listener
+     */
+    setSharedEventDelegate(success: SuccessCallback<SignalStrengthEvent>, error?: ErrorCallback, options?: SharedEventDelegateOptions): SignalStrengthUnsubscribe;
+    /**
+     * Removes the shared listener. Listeners added with `subscribe()` are not affected.
+     */
     removeSharedEventDelegate(): void;
 }
 /**
@@ -22,6 +22,20 @@ function cordovaExecPromise(plugin, method, args) {
 // Plugin Interface
 ////////////////////////////////////////////////////////////////
 const PLUGIN_NAME = 'SignalStrength';
+const EVENT_TYPE_BATCH = 'batch';
+const SUBSCRIPTION_ID_PREFIX = 'subscription';
+// Must be kept in sync with BinaryStateEncoder.java
+const BINARY_VERSION = 1;
+const BINARY_KIND_CELL_STATE = 1;
+const BINARY_KIND_WIFI_STATE = 2;
+const BINARY_CELL_FLAG_PRIMARY = 1;
+const BINARY_CELL_FLAG_HAS_PRIMARY = 1 << 1;
+const BINARY_CELL_FLAG_STALE = 1 << 2;
+const BINARY_WIFI_FLAG_ENABLED = 1;
+const BINARY_WIFI_FLAG_CONNECTED = 1 << 1;
+const BINARY_WIFI_FLAG_HAS_LEVEL = 1 << 2;
+const BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS = 1 << 3;
+const BINARY_NO_STRING = 0xffff;
 const DEFAULT_BEST_RSSI = -40;
 const DEFAULT_WORST_RSSI = -95;
 const DEFAULT_MAX_LEVEL = 4;
@@ -43,7 +57,36 @@ export var SignalStrengthEventType;
 (function (SignalStrengthEventType) {
     SignalStrengthEventType["CELL_STATE_UPDATED"] = "cellStateUpdated";
     SignalStrengthEventType["WIFI_STATE_UPDATED"] = "wifiStateUpdated";
+    /**
+     * A source started showing signs of an imminent drop (see `PluginOptions.degradation`).
+     * Delivered as json even to binary subscribers.
+     */
+    SignalStrengthEventType["SIGNAL_DEGRADING"] = "signalDegrading";
+    /**
+     * A source that was degrading no longer is.
+     */
+    SignalStrengthEventType["SIGNAL_RECOVERED"] = "signalRecovered";
 })(SignalStrengthEventType || (SignalStrengthEventType = {}));
+export var SignalDegradationReason;
+(function (SignalDegradationReason) {
+    /**
+     * At or below the configured `cellDbm` / `wifiRssi`.
+     */
+    SignalDegradationReason["WEAK"] = "weak";
+    /**
+     * Falling faster than `slopeDbPerSec`, within `marginDb` of the weak threshold.
+     */
+    SignalDegradationReason["FALLING"] = "falling";
+    /**
+     * The serving cell type / BSSID changed, or the connection was lost or regained,
+     * at least `flapCount` times within `flapWindowMs`.
+     */
+    SignalDegradationReason["FLAPPING"] = "flapping";
+    /**
+     * Wifi only: the link speed falls faster than `linkSpeedFallPercentPerSec`.
+     */
+    SignalDegradationReason["LINK_SPEED_FALLING"] = "linkSpeedFalling";
+})(SignalDegradationReason || (SignalDegradationReason = {}));
 /**
  * Constants reported from CellInfo:
  * https://developer.android.com/reference/android/telephony/CellInfo#constants_1
@@ -55,6 +98,37 @@ export var CellConnectionStatus;
     CellConnectionStatus[CellConnectionStatus["CONNECTION_SECONDARY_SERVING"] = 2] = "CONNECTION_SECONDARY_SERVING";
     CellConnectionStatus[CellConnectionStatus["CONNECTION_UNKNOWN"] = 2147483647] = "CONNECTION_UNKNOWN";
 })(CellConnectionStatus || (CellConnectionStatus = {}));
+/**
+ * Primary cell fields only, i.e. without `alternates` and `simSubscriptions`.
+ */
+export const PRIMARY_CELL_FIELDS = [
+    'cellType',
+    'dbm',
+    'level',
+    'connectionStatus',
+    'cellDataLoaded',
+    'rsrp',
+    'rsrq',
+    'sinr',
+    'primary'
+];
+/**
+ * Wifi fields without the Android 11+ tx / rx link speeds.
+ */
+export const BASIC_WIFI_FIELDS = [
+    'ssid',
+    'bssid',
+    'networkId',
+    'rssi',
+    'linkSpeedMbps',
+    'level',
+    'maxLevel'
+];
+export var SignalSampleSource;
+(function (SignalSampleSource) {
+    SignalSampleSource["CELL"] = "cell";
+    SignalSampleSource["WIFI"] = "wifi";
+})(SignalSampleSource || (SignalSampleSource = {}));
 function invoke(method, ...args) {
     return cordovaExecPromise(PLUGIN_NAME, method, args);
 }
@@ -69,18 +143,189 @@ function lerp(a, b, t) {
     const high = Math.max(a, b);
     return clamp(lerpUnclamped(a, b, t), low, high);
 }
-function normalizeWifiState(state) {
-    if (state && state.info) {
+/**
+ * @param fields the fields the payload was projected to, if any; level / maxLevel
+ * are only shimmed when requested, so that projected payloads keep their shape
+ */
+function normalizeWifiState(state, fields) {
+    const wantsLevel = !fields || fields.indexOf('level') >= 0 || fields.indexOf('maxLevel') >= 0;
+    if (state && state.info && wantsLevel) {
         // If level / max level were not provided due to older android version (< API 30),
         // attempt to calculate these values manually and shim them onto the response object.
-        if (typeof state.info.level !== 'number'
-            || typeof state.info.maxLevel !== 'number') {
+        if (typeof state.info.rssi === 'number'
+            && (typeof state.info.level !== 'number' || typeof state.info.maxLevel !== 'number')) {
             state.info.level = calculateSignalLevel(state.info.rssi);
             state.info.maxLevel = DEFAULT_MAX_LEVEL;
         }
     }
     return state;
 }
+class BinaryStateReader {
+    constructor(buffer) {
+        this.strings = [];
+        this.offset = 0;
+        this.view = new DataView(buffer);
+    }
+    u8() {
+        return this.view.getUint8(this.offset++);
+    }
+    u16() {
+        const value = this.view.getUint16(this.offset, true);
+        this.offset += 2;
+        return value;
+    }
+    i32() {
+        const value = this.view.getInt32(this.offset, true);
+        this.offset += 4;
+        return value;
+    }
+    readStringTable() {
+        const count = this.u8();
+        const decoder = new TextDecoder('utf-8');
+        for (let i = 0; i < count; i++) {
+            const length = this.u16();
+            const bytes = new Uint8Array(this.view.buffer, this.view.byteOffset + this.offset, length);
+            this.strings.push(decoder.decode(bytes));
+            this.offset += length;
+        }
+    }
+    stringRef() {
+        const index = this.u16();
+        return index === BINARY_NO_STRING ? undefined : this.strings[index];
+    }
+}
+function readBinaryCellInfo(reader) {
+    const cellType = reader.stringRef();
+    const cellDataLoaded = reader.u8() !== 0;
+    reader.u8(); // reserved
+    const dbm = reader.i32();
+    const level = reader.i32();
+    const connectionStatus = reader.i32();
+    return { cellType, dbm, level, connectionStatus, cellDataLoaded };
+}
+function readBinaryCellState(reader) {
+    const flags = reader.u8();
+    const alternateCount = reader.u8();
+    const cacheAgeMs = reader.i32();
+    const state = ((flags & BINARY_CELL_FLAG_HAS_PRIMARY)
+        ? readBinaryCellInfo(reader)
+        : {});
+    state.primary = (flags & BINARY_CELL_FLAG_PRIMARY) !== 0;
+    state.alternates = [];
+    for (let i = 0; i < alternateCount; i++) {
+        state.alternates.push(readBinaryCellInfo(reader));
+    }
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+    if (flags & BINARY_CELL_FLAG_STALE) {
+        state.stale = true;
+    }
+    return state;
+}
+function readBinaryWifiState(reader) {
+    const flags = reader.u8();
+    const reason = reader.stringRef();
+    const cacheAgeMs = reader.i32();
+    const state = {
+        enabled: (flags & BINARY_WIFI_FLAG_ENABLED) !== 0,
+        connected: (flags & BINARY_WIFI_FLAG_CONNECTED) !== 0
+    };
+    if (state.connected) {
+        const info = {
+            ssid: reader.stringRef(),
+            bssid: reader.stringRef(),
+            networkId: reader.i32(),
+            rssi: reader.i32(),
+            linkSpeedMbps: reader.i32()
+        };
+        const level = reader.i32();
+        const maxLevel = reader.i32();
+        const txLinkSpeedMbps = reader.i32();
+        const maxTxLinkSpeedMbps = reader.i32();
+        const rxLinkSpeedMbps = reader.i32();
+        const maxRxLinkSpeedMbps = reader.i32();
+        if (flags & BINARY_WIFI_FLAG_HAS_LEVEL) {
+            info.level = level;
+            info.maxLevel = maxLevel;
+        }
+        if (flags & BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS) {
+            info.txLinkSpeedMbps = txLinkSpeedMbps;
+            info.maxTxLinkSpeedMbps = maxTxLinkSpeedMbps;
+            info.rxLinkSpeedMbps = rxLinkSpeedMbps;
+            info.maxRxLinkSpeedMbps = maxRxLinkSpeedMbps;
+        }
+        state.info = info;
+    }
+    if (reason !== undefined) {
+        state.reason = reason;
+    }
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+    return normalizeWifiState(state);
+}
+/**
+ * Decodes a binary frame produced by the native plugin when the `binary` option is set.
+ * Layout is documented in BinaryStateEncoder.java.
+ */
+export function decodeBinaryState(buffer) {
+    const reader = new BinaryStateReader(buffer);
+    const version = reader.u8();
+    if (version !== BINARY_VERSION) {
+        throw new Error(`unsupported binary state version ${version}`);
+    }
+    const kind = reader.u8();
+    reader.readStringTable();
+    switch (kind) {
+        case BINARY_KIND_CELL_STATE:
+            return { type: SignalStrengthEventType.CELL_STATE_UPDATED, data: readBinaryCellState(reader) };
+        case BINARY_KIND_WIFI_STATE:
+            return { type: SignalStrengthEventType.WIFI_STATE_UPDATED, data: readBinaryWifiState(reader) };
+        default:
+            throw new Error(`unsupported binary state kind ${kind}`);
+    }
+}
+let subscriptionCount = 0;
+function createSubscriptionId() {
+    // the timestamp keeps ids unique across page reloads
+    return `${SUBSCRIPTION_ID_PREFIX}-${Date.now()}-${++subscriptionCount}`;
+}
+/**
+ * Unpacks batched and binary payloads, so that the listener
+ * is invoked with one normalized event at a time.
+ * @param fields the `fields` option of the subscription, which json events are projected to
+ */
+function wrapEventListener(listener, fields) {
+    const emit = (ev, eventFields) => {
+        if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
+            ev.data = normalizeWifiState(ev.data, eventFields);
+        }
+        listener(ev);
+    };
+    return (ev) => {
+        if (ev instanceof ArrayBuffer) {
+            // binary frames are not projected and hold every field
+            emit(decodeBinaryState(ev));
+            // the final result sent when the subscription is removed carries no event
+        }
+        else if (ev.unsubscribed) {
+            return;
+            // batched events arrive as a single array payload; unpack them in order
+        }
+        else if (ev.type === EVENT_TYPE_BATCH && Array.isArray(ev.data)) {
+            ev.data.forEach((item) => emit(item, fields));
+        }
+        else {
+            emit(ev, fields);
+        }
+    };
+}
+function decodeIfBinary(value) {
+    return value instanceof ArrayBuffer
+        ? decodeBinaryState(value).data
+        : value;
+}
 /**
  * Provided for backwards compatibility - this will be removed in a future release.
  * @deprecated use `SignalStrength.getCellState()` instead
@@ -127,21 +372,95 @@ export function calculateSignalLevel(rssi, maxLevel = DEFAULT_MAX_LEVEL, minLeve
 export class SignalStrengthCordovaInterface {
     constructor() {
     }
-    getCellState() {
-        return invoke('getCellState');
+    getCellState(options = {}) {
+        return invoke('getCellState', options)
+            .then((state) => decodeIfBinary(state));
+    }
+    getWifiState(options = {}) {
+        return invoke('getWifiState', options)
+            .then((state) => state instanceof ArrayBuffer
+            ? normalizeWifiState(decodeIfBinary(state))
+            : normalizeWifiState(state, options.fields));
+    }
+    getStats() {
+        return invoke('getStats');
+    }
+    /**
+     * Returns counters and latency histograms recorded since plugin start or the last reset.
+     * @param reset clears the metrics after taking this snapshot
+     */
+    getMetrics(reset = false) {
+        return invoke('getMetrics', reset);
+    }
+    /**
+     * Starts or stops recording native hot path activity into a fixed-size trace ring.
+     * Tracing is off by default.
+     * @param capacity number of records kept; changing it discards recorded ones
+     */
+    setTraceEnabled(enabled, capacity) {
+        const args = typeof capacity === 'number' ? [enabled, capacity] : [enabled];
+        return invoke('setTraceEnabled', ...args);
+    }
+    /**
+     * Returns the recorded trace as a compact binary dump, to be decoded offline
+     * (see the layout documented in TraceRecorder.java).
+     * @param clear discards the recorded trace after taking this dump
+     */
+    dumpTrace(clear = false) {
+        return invoke('dumpTrace', clear);
+    }
+    /**
+     * Returns samples recorded by the native listeners while the shared event delegate
+     * is set, as well as by one-shot state requests, oldest first.
+     * @param since only samples with a timestamp greater than this are returned
+     * @param limit maximum number of samples to return
+     */
+    getHistory(since = 0, limit) {
+        const args = typeof limit === 'number' ? [since, limit] : [since];
+        return invoke('getHistory', ...args);
+    }
+    queryPersistentLog(options = {}) {
+        return invoke('queryPersistentLog', options);
+    }
+    /**
+     * Returns rolling aggregates of the samples recorded by the native listeners
+     * and one-shot state requests, over each configured window.
+     */
+    getSignalStats() {
+        return invoke('getSignalStats');
+    }
+    /**
+     * Sets options that affect every subscriber, replacing the values set by earlier calls.
+     * Options that are not passed keep their current value.
+     */
+    configure(options) {
+        return invoke('configure', options);
     }
-    getWifiState() {
-        return invoke('getWifiState').then(normalizeWifiState);
+    /**
+     * Adds an independent listener of state change events. Native listeners are
+     * registered when the first subscriber is added, and removed with the last one.
+     * @returns a function that removes this subscription
+     */
+    subscribe(listener, options = {}, error) {
+        const subscriptionId = createSubscriptionId();
+        cordovaExec(PLUGIN_NAME, 'subscribe', wrapEventListener(listener, options.fields), error, [subscriptionId, options]);
+        return () => invoke('unsubscribe', subscriptionId);
     }
-    setSharedEventDelegate(success, error) {
-        const successWrapper = (ev) => {
-            if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
-                ev.data = normalizeWifiState(ev.data);
-            }
-            success(ev);
+    /**
+     * Sets the single shared listener, replacing any listener set by a previous call.
+     * Listeners added with `subscribe()` are not affected.
+     * @returns a function that removes the shared listener
+     */
+    setSharedEventDelegate(success, error, options = {}) {
+        cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', wrapEventListener(success, options.fields), error, [false, options]);
+        return () => {
+            this.removeSharedEventDelegate();
+            return Promise.resolve();
         };
-        cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', successWrapper, error, [false]);
     }
+    /**
+     * Removes the shared listener. Listeners added with `subscribe()` are not affected.
+     */
     removeSharedEventDelegate() {
         cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', undefined, undefined, [true]);
     }
@@ -1 +1 @@
-export { SignalStrength, SignalStrengthCordovaInterface, CellConnectionStatus, CellInfoType, CellInfo, CellState, WifiInfo, WifiState, SignalStrengthEventType, SignalStrengthEvent, calculateSignalLevel, calculateSignalPercentage } from './cordova-plugin-signal-strength';
+export { SignalStrength, SignalStrengthCordovaInterface, CellConnectionStatus, CellInfoType, CellInfo, CellState, SubscriptionCellState, WifiInfo, WifiState, StateRequestOptions, WifiStateRequestOptions, CellStateField, WifiInfoField, SignalField, ProjectedCellInfo, ProjectedCellState, ProjectedWifiState, PRIMARY_CELL_FIELDS, BASIC_WIFI_FIELDS, StateRequestTimeoutError, SignalStrengthEventType, SignalStrengthEvent, SignalDegradationReason, SignalDegradationState, SignalDegradationStats, SignalDegradationOptions, SignalSampleSource, SignalSample, PersistentSignalSample, PersistentLogQueryOptions, PersistentLogPage, PersistentLogFile, SignalStatsWindow, SignalStats, PluginOptions, SubscriptionOptions, SignalStrengthUnsubscribe, SharedEventDelegateOptions, SharedEventStats, EventBatchStats, ChangeFilterStats, PendingRequestStats, SubscriptionStats, LegacyWifiPollStats, CellInfoRefreshStats, NetworkCallbackStats, WifiCallbackDeduplicationStats, WifiCallbackStats, SignalStrengthStats, LatencyHistogramBucket, LatencyHistogram, ActionMetrics, EventMetrics, SignalStrengthMetrics, calculateSignalLevel, decodeBinaryState, calculateSignalPercentage } from './cordova-plugin-signal-strength';
@@ -1 +1 @@
-export { SignalStrength, SignalStrengthCordovaInterface, CellConnectionStatus, CellInfoType, SignalStrengthEventType, calculateSignalLevel, calculateSignalPercentage } from './cordova-plugin-signal-strength';
+export { SignalStrength, SignalStrengthCordovaInterface, CellConnectionStatus, CellInfoType, PRIMARY_CELL_FIELDS, BASIC_WIFI_FIELDS, SignalStrengthEventType, SignalDegradationReason, SignalSampleSource, calculateSignalLevel, decodeBinaryState, calculateSignalPercentage } from './cordova-plugin-signal-strength';
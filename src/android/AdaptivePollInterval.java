@@ -0,0 +1,103 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Chooses the delay until the next legacy wifi poll.
+ * Polls at the minimum interval after a connection change or a large RSSI swing,
+ * and doubles the interval (up to the maximum) for every poll that finds the signal stable.
+ * Only accessed from the plugin worker thread.
+ */
+class AdaptivePollInterval {
+    static final long DEFAULT_MIN_INTERVAL_MS = 2000;
+    static final long DEFAULT_MAX_INTERVAL_MS = 30000;
+    // RSSI changes of at least this many units between polls count as unstable
+    private static final int UNSTABLE_RSSI_DELTA = 3;
+
+    private static final String KEY_INTERVAL_MS = "intervalMs";
+    private static final String KEY_MIN_INTERVAL_MS = "minIntervalMs";
+    private static final String KEY_MAX_INTERVAL_MS = "maxIntervalMs";
+    private static final String KEY_POLLS = "polls";
+    private static final String KEY_BACK_OFFS = "backOffs";
+    private static final String KEY_RESETS = "resets";
+
+    private long minIntervalMs = DEFAULT_MIN_INTERVAL_MS;
+    private long maxIntervalMs = DEFAULT_MAX_INTERVAL_MS;
+    private long intervalMs = DEFAULT_MIN_INTERVAL_MS;
+    private boolean hasLastSample = false;
+    private boolean lastConnected = false;
+    private String lastBssid = null;
+    private int lastRssi = 0;
+    private long pollCount = 0;
+    private long backOffCount = 0;
+    private long resetCount = 0;
+
+    void setBounds(long minIntervalMs, long maxIntervalMs) {
+        this.minIntervalMs = Math.max(1, minIntervalMs);
+        this.maxIntervalMs = Math.max(this.minIntervalMs, maxIntervalMs);
+        intervalMs = Math.min(Math.max(intervalMs, this.minIntervalMs), this.maxIntervalMs);
+    }
+
+    long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    /**
+     * Forgets the last sample, so that polling restarts at the minimum interval.
+     */
+    void reset() {
+        intervalMs = minIntervalMs;
+        hasLastSample = false;
+    }
+
+    /**
+     * @param info the polled connection info, or null if wifi is not connected
+     * @return the delay until the next poll
+     */
+    long next(WifiSnapshot info) {
+        pollCount++;
+
+        boolean connected = info != null;
+        boolean stable = hasLastSample
+            && connected == lastConnected
+            && (!connected || (equals(info.bssid, lastBssid) && Math.abs(info.rssi - lastRssi) < UNSTABLE_RSSI_DELTA));
+
+        if (stable) {
+            if (intervalMs < maxIntervalMs) {
+                backOffCount++;
+            }
+            intervalMs = Math.min(maxIntervalMs, intervalMs * 2);
+        } else {
+            if (intervalMs > minIntervalMs) {
+                resetCount++;
+            }
+            intervalMs = minIntervalMs;
+        }
+
+        hasLastSample = true;
+        lastConnected = connected;
+        lastBssid = connected ? info.bssid : null;
+        lastRssi = connected ? info.rssi : 0;
+
+        return intervalMs;
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_INTERVAL_MS, intervalMs)
+            .put(KEY_MIN_INTERVAL_MS, minIntervalMs)
+            .put(KEY_MAX_INTERVAL_MS, maxIntervalMs)
+            .put(KEY_POLLS, pollCount)
+            .put(KEY_BACK_OFFS, backOffCount)
+            .put(KEY_RESETS, resetCount);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
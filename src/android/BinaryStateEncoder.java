@@ -0,0 +1,230 @@
+package com.hrs.signalstrength;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Encodes cell and wifi state into compact little-endian frames, which are sent
+ * to the webview as an ArrayBuffer instead of a stringified JSON object.
+ * Must be kept in sync with decodeBinaryState() in cordova-plugin-signal-strength.ts.
+ *
+ * Frame layout:
+ * <pre>
+ * u8  version
+ * u8  kind (KIND_CELL_STATE | KIND_WIFI_STATE)
+ * u8  string count, followed by each string as (u16 byte length, UTF-8 bytes)
+ * ... body, where strings are referenced by u16 index (NO_STRING for null)
+ *
+ * cell body:
+ * u8  flags (CELL_FLAG_*)
+ * u8  alternate count
+ * i32 cacheAgeMs (-1 if absent)
+ * 16 byte record per cell, primary first if present:
+ *     u16 cellType, u8 loaded, u8 reserved, i32 dbm, i32 level, i32 connectionStatus
+ *
+ * wifi body:
+ * u8  flags (WIFI_FLAG_*)
+ * u16 reason
+ * i32 cacheAgeMs (-1 if absent)
+ * if connected:
+ *     u16 ssid, u16 bssid, i32 networkId, i32 rssi, i32 linkSpeedMbps, i32 level, i32 maxLevel,
+ *     i32 txLinkSpeedMbps, i32 maxTxLinkSpeedMbps, i32 rxLinkSpeedMbps, i32 maxRxLinkSpeedMbps
+ * </pre>
+ * Strings are interned per frame, so every frame can be decoded on its own.
+ * Only accessed from the plugin worker thread.
+ */
+class BinaryStateEncoder {
+    static final int VERSION = 1;
+    static final int KIND_CELL_STATE = 1;
+    static final int KIND_WIFI_STATE = 2;
+    static final int CELL_FLAG_PRIMARY = 1;
+    static final int CELL_FLAG_HAS_PRIMARY = 1 << 1;
+    static final int CELL_FLAG_STALE = 1 << 2;
+    static final int WIFI_FLAG_ENABLED = 1;
+    static final int WIFI_FLAG_CONNECTED = 1 << 1;
+    static final int WIFI_FLAG_HAS_LEVEL = 1 << 2;
+    static final int WIFI_FLAG_HAS_LINK_SPEED_DETAILS = 1 << 3;
+    static final int NO_STRING = 0xFFFF;
+    static final long NO_CACHE_AGE = -1;
+
+    private static final int CELL_RECORD_SIZE = 16;
+    private static final int WIFI_INFO_SIZE = 4 + 9 * 4;
+    private static final int MAX_STRINGS = 0xFF;
+
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final ArrayList<byte[]> encodedStrings = new ArrayList<>();
+
+    /**
+     * @param cacheAgeMs age of the state, or NO_CACHE_AGE to omit it
+     */
+    byte[] encodeCellState(CellSnapshotSet cells, long cacheAgeMs) {
+        return encodeCellState(cells, cacheAgeMs, false);
+    }
+
+    /**
+     * @param cacheAgeMs age of the state, or NO_CACHE_AGE to omit it
+     * @param stale true if a refresh failed and the state is the last known one
+     */
+    byte[] encodeCellState(CellSnapshotSet cells, long cacheAgeMs, boolean stale) {
+        CellSnapshot primary = cells.getPrimary();
+        int primaryIndex = cells.getPrimaryIndex();
+        int alternateCount = primary != null ? cells.size() - 1 : cells.size();
+        int flags = 0;
+
+        if (primary != null) {
+            flags |= CELL_FLAG_HAS_PRIMARY;
+        }
+        if (cells.isPrimaryServing()) {
+            flags |= CELL_FLAG_PRIMARY;
+        }
+        if (stale) {
+            flags |= CELL_FLAG_STALE;
+        }
+
+        resetStrings();
+        for (int i = 0; i < cells.size(); i++) {
+            intern(cells.get(i).cellType);
+        }
+
+        int cellCount = Math.min(0xFF, alternateCount) + (primary != null ? 1 : 0);
+        ByteBuffer out = allocate(KIND_CELL_STATE, 1 + 1 + 4 + cellCount * CELL_RECORD_SIZE);
+        out.put((byte) flags);
+        out.put((byte) Math.min(0xFF, alternateCount));
+        out.putInt(toInt(cacheAgeMs));
+
+        if (primary != null) {
+            putCell(out, primary);
+        }
+
+        int written = 0;
+        for (int i = 0; i < cells.size() && written < 0xFF; i++) {
+            if (i != primaryIndex) {
+                putCell(out, cells.get(i));
+                written++;
+            }
+        }
+
+        return out.array();
+    }
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     * @param reason the disconnect reason, or null if there is none
+     * @param cacheAgeMs age of the state, or NO_CACHE_AGE to omit it
+     */
+    byte[] encodeWifiState(boolean enabled, WifiSnapshot info, String reason, long cacheAgeMs) {
+        int flags = 0;
+
+        if (enabled) {
+            flags |= WIFI_FLAG_ENABLED;
+        }
+        if (info != null) {
+            flags |= WIFI_FLAG_CONNECTED;
+            if (info.level != WifiSnapshot.LEVEL_UNAVAILABLE) {
+                flags |= WIFI_FLAG_HAS_LEVEL;
+            }
+            if (info.hasLinkSpeedDetails) {
+                flags |= WIFI_FLAG_HAS_LINK_SPEED_DETAILS;
+            }
+        }
+
+        resetStrings();
+        int reasonIndex = intern(reason);
+        int ssidIndex = info != null ? intern(info.ssid) : NO_STRING;
+        int bssidIndex = info != null ? intern(info.bssid) : NO_STRING;
+
+        ByteBuffer out = allocate(KIND_WIFI_STATE, 1 + 2 + 4 + (info != null ? WIFI_INFO_SIZE : 0));
+        out.put((byte) flags);
+        out.putShort((short) reasonIndex);
+        out.putInt(toInt(cacheAgeMs));
+
+        if (info != null) {
+            out.putShort((short) ssidIndex);
+            out.putShort((short) bssidIndex);
+            out.putInt(info.networkId);
+            out.putInt(info.rssi);
+            out.putInt(info.linkSpeedMbps);
+            out.putInt(info.level);
+            out.putInt(info.maxLevel);
+            out.putInt(info.txLinkSpeedMbps);
+            out.putInt(info.maxTxLinkSpeedMbps);
+            out.putInt(info.rxLinkSpeedMbps);
+            out.putInt(info.maxRxLinkSpeedMbps);
+        }
+
+        return out.array();
+    }
+
+    private void putCell(ByteBuffer out, CellSnapshot cell) {
+        out.putShort((short) intern(cell.cellType));
+        out.put((byte) (cell.loaded ? 1 : 0));
+        out.put((byte) 0);
+        out.putInt(cell.dbm);
+        out.putInt(cell.level);
+        out.putInt(cell.connectionStatus);
+    }
+
+    /**
+     * Writes the frame header and string table.
+     * @param bodySize exact size of the body that follows
+     */
+    private ByteBuffer allocate(int kind, int bodySize) {
+        int size = 3 + bodySize;
+        for (byte[] encoded : encodedStrings) {
+            size += 2 + encoded.length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.put((byte) VERSION);
+        out.put((byte) kind);
+        out.put((byte) encodedStrings.size());
+
+        for (byte[] encoded : encodedStrings) {
+            out.putShort((short) encoded.length);
+            out.put(encoded);
+        }
+
+        return out;
+    }
+
+    private void resetStrings() {
+        strings.clear();
+        encodedStrings.clear();
+    }
+
+    /**
+     * @return the index of the given string in this frame's string table
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+
+        // tables hold a handful of entries at most, so a linear scan beats hashing
+        int index = strings.indexOf(value);
+
+        if (index >= 0) {
+            return index;
+        }
+
+        if (strings.size() >= MAX_STRINGS) {
+            return NO_STRING;
+        }
+
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+
+        if (encoded.length > 0xFFFF) {
+            return NO_STRING;
+        }
+
+        strings.add(value);
+        encodedStrings.add(encoded);
+        return strings.size() - 1;
+    }
+
+    private static int toInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
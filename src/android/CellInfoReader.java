@@ -0,0 +1,287 @@
+package com.hrs.signalstrength;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.telephony.CellInfo;
+import android.telephony.CellInfoCdma;
+import android.telephony.CellInfoGsm;
+import android.telephony.CellInfoLte;
+import android.telephony.CellInfoNr;
+import android.telephony.CellInfoTdscdma;
+import android.telephony.CellInfoWcdma;
+import android.telephony.CellSignalStrength;
+import android.telephony.CellSignalStrengthCdma;
+import android.telephony.CellSignalStrengthGsm;
+import android.telephony.CellSignalStrengthLte;
+import android.telephony.CellSignalStrengthNr;
+import android.telephony.CellSignalStrengthTdscdma;
+import android.telephony.CellSignalStrengthWcdma;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.HashMap;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Reads android CellInfo instances into plain cell snapshots.
+ * Extractors for the cell types available on the running API level are registered
+ * once, and looked up by the concrete class of each CellInfo.
+ * Only accessed from the plugin worker thread.
+ */
+final class CellInfoReader {
+
+    /**
+     * Reads one kind of CellInfo. New radio types only need a new extractor registered.
+     */
+    abstract static class Extractor {
+        final String cellType;
+        // null if this type does not expose a signal strength
+        final Class<? extends CellSignalStrength> signalStrengthClass;
+
+        Extractor(String cellType, Class<? extends CellSignalStrength> signalStrengthClass) {
+            this.cellType = cellType;
+            this.signalStrengthClass = signalStrengthClass;
+        }
+
+        /**
+         * @return the signal strength of the cell, or null if this type does not expose one
+         */
+        abstract CellSignalStrength getSignalStrength(CellInfo info);
+
+        /**
+         * Copies type-specific measurements into the snapshot; dbm and level are already set.
+         */
+        void readExtras(CellSignalStrength signalStrength, CellSnapshot out) {
+        }
+    }
+
+    private final HashMap<Class<?>, Extractor> extractorsByClass = new HashMap<>();
+    private final HashMap<String, Extractor> extractorsByType = new HashMap<>();
+    private final boolean hasConnectionStatus = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+    private final TraceRecorder trace;
+
+    CellInfoReader(TraceRecorder trace) {
+        this.trace = trace;
+        // Unfortunately, we need to switch over these manually instead of
+        // using getCellSignalStrength() so we can support android versions lower than 30.
+        register(CellInfoCdma.class, new Extractor(CellSnapshot.CELL_TYPE_CDMA, CellSignalStrengthCdma.class) {
+            @Override
+            CellSignalStrength getSignalStrength(CellInfo info) {
+                return ((CellInfoCdma) info).getCellSignalStrength();
+            }
+        });
+        register(CellInfoGsm.class, new Extractor(CellSnapshot.CELL_TYPE_GSM, CellSignalStrengthGsm.class) {
+            @Override
+            CellSignalStrength getSignalStrength(CellInfo info) {
+                return ((CellInfoGsm) info).getCellSignalStrength();
+            }
+        });
+        register(CellInfoWcdma.class, new Extractor(CellSnapshot.CELL_TYPE_WCDMA, CellSignalStrengthWcdma.class) {
+            @Override
+            CellSignalStrength getSignalStrength(CellInfo info) {
+                return ((CellInfoWcdma) info).getCellSignalStrength();
+            }
+        });
+        register(CellInfoLte.class, Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+            ? new LteExtractor()
+            : new Extractor(CellSnapshot.CELL_TYPE_LTE, CellSignalStrengthLte.class) {
+                @Override
+                CellSignalStrength getSignalStrength(CellInfo info) {
+                    return ((CellInfoLte) info).getCellSignalStrength();
+                }
+            });
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            register(CellInfoNr.class, new NrExtractor());
+            register(CellInfoTdscdma.class, new TdscdmaExtractor());
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static class LteExtractor extends Extractor {
+        LteExtractor() {
+            super(CellSnapshot.CELL_TYPE_LTE, CellSignalStrengthLte.class);
+        }
+
+        @Override
+        CellSignalStrength getSignalStrength(CellInfo info) {
+            return ((CellInfoLte) info).getCellSignalStrength();
+        }
+
+        @Override
+        void readExtras(CellSignalStrength signalStrength, CellSnapshot out) {
+            CellSignalStrengthLte lte = (CellSignalStrengthLte) signalStrength;
+            out.rsrp = lte.getRsrp();
+            out.rsrq = lte.getRsrq();
+            out.sinr = lte.getRssnr();
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private static class NrExtractor extends Extractor {
+        NrExtractor() {
+            super(CellSnapshot.CELL_TYPE_NR, CellSignalStrengthNr.class);
+        }
+
+        @Override
+        CellSignalStrength getSignalStrength(CellInfo info) {
+            return ((CellInfoNr) info).getCellSignalStrength();
+        }
+
+        @Override
+        void readExtras(CellSignalStrength signalStrength, CellSnapshot out) {
+            CellSignalStrengthNr nr = (CellSignalStrengthNr) signalStrength;
+            out.rsrp = nr.getSsRsrp();
+            out.rsrq = nr.getSsRsrq();
+            out.sinr = nr.getSsSinr();
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private static class TdscdmaExtractor extends Extractor {
+        TdscdmaExtractor() {
+            super(CellSnapshot.CELL_TYPE_TDSCDMA, CellSignalStrengthTdscdma.class);
+        }
+
+        @Override
+        CellSignalStrength getSignalStrength(CellInfo info) {
+            return ((CellInfoTdscdma) info).getCellSignalStrength();
+        }
+    }
+
+    /**
+     * Fallback for cell types without a registered extractor, which are reported
+     * under their class name without signal data.
+     */
+    private static class UnknownExtractor extends Extractor {
+        UnknownExtractor(Class<?> infoClass) {
+            super(infoClass.getSimpleName(), null);
+        }
+
+        @Override
+        CellSignalStrength getSignalStrength(CellInfo info) {
+            return null;
+        }
+    }
+
+    private void register(Class<? extends CellInfo> infoClass, Extractor extractor) {
+        extractorsByClass.put(infoClass, extractor);
+        extractorsByType.put(extractor.cellType, extractor);
+    }
+
+    /**
+     * Resolves subclasses (e.g. vendor specific ones) to the extractor of their
+     * registered ancestor, and caches the result for the concrete class.
+     */
+    private Extractor getExtractor(Class<?> infoClass) {
+        Extractor extractor = extractorsByClass.get(infoClass);
+
+        if (extractor != null) {
+            return extractor;
+        }
+
+        for (Class<?> c = infoClass.getSuperclass(); c != null && extractor == null; c = c.getSuperclass()) {
+            extractor = extractorsByClass.get(c);
+        }
+
+        if (extractor == null) {
+            extractor = new UnknownExtractor(infoClass);
+        }
+
+        extractorsByClass.put(infoClass, extractor);
+        return extractor;
+    }
+
+    void readCellSnapshots(List<CellInfo> infoList, CellSnapshotSet out) {
+        out.clear();
+        out.markScanned(SystemClock.elapsedRealtime());
+
+        if (infoList != null) {
+            trace.record(TraceRecorder.TRACE_CELL_INFO_READ, infoList.size());
+            for (CellInfo info : infoList) {
+                if (info == null || !info.isRegistered()) {
+                    continue;
+                }
+                readCellSnapshot(info, out.add());
+            }
+        } else {
+            // shouldn't ever happen... but just in case
+            Timber.w("readCellSnapshots() received null list");
+        }
+
+        out.selectPrimary();
+    }
+
+    private void readCellSnapshot(CellInfo info, CellSnapshot out) {
+        Extractor extractor = getExtractor(info.getClass());
+        out.cellType = extractor.cellType;
+
+        if (hasConnectionStatus) {
+            out.connectionStatus = info.getCellConnectionStatus();
+            out.primary = out.connectionStatus == CellInfo.CONNECTION_PRIMARY_SERVING
+                || out.connectionStatus == CellInfo.CONNECTION_SECONDARY_SERVING;
+        } else {
+            // only registered cells make it here
+            out.primary = true;
+        }
+
+        CellSignalStrength signalStrength = extractor.getSignalStrength(info);
+
+        if (signalStrength != null) {
+            readSignalStrength(extractor, signalStrength, out);
+        }
+
+        trace.record(TraceRecorder.TRACE_CELL_SNAPSHOT, out.dbm, out.level | (out.primary ? 0x100 : 0));
+    }
+
+    /**
+     * Applies a signal strength update to a snapshot of the given cell type.
+     */
+    private void readSignalStrength(String cellType, CellSignalStrength signalStrength, CellSnapshot out) {
+        Extractor extractor = extractorsByType.get(cellType);
+        if (extractor != null) {
+            readSignalStrength(extractor, signalStrength, out);
+        }
+    }
+
+    /**
+     * Applies the signal strength matching the type of the selected primary cell, if any.
+     * @return false if there is no primary cell, or none of the signal strengths match its type
+     */
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    boolean readPrimarySignalStrength(List<CellSignalStrength> signalStrengths, CellSnapshotSet cells) {
+        CellSnapshot primary = cells.getPrimary();
+
+        if (primary == null || signalStrengths == null) {
+            return false;
+        }
+
+        for (CellSignalStrength signalStrength : signalStrengths) {
+            if (isSignalStrengthForCellType(signalStrength, primary.cellType)) {
+                readSignalStrength(primary.cellType, signalStrength, primary);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void readSignalStrength(Extractor extractor, CellSignalStrength signalStrength, CellSnapshot out) {
+        out.dbm = signalStrength.getDbm();
+        out.level = signalStrength.getLevel();
+        out.loaded = true;
+        extractor.readExtras(signalStrength, out);
+    }
+
+    /**
+     * @return true if the signal strength belongs to a cell of the given type
+     */
+    private boolean isSignalStrengthForCellType(CellSignalStrength signalStrength, String cellType) {
+        Extractor extractor = extractorsByType.get(cellType);
+        return extractor != null
+            && extractor.signalStrengthClass != null
+            && extractor.signalStrengthClass.isInstance(signalStrength);
+    }
+}
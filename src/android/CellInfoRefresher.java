@@ -0,0 +1,163 @@
+package com.hrs.signalstrength;
+
+import android.os.Build;
+import android.os.Handler;
+import android.telephony.CellInfo;
+import android.telephony.TelephonyManager;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import timber.log.Timber;
+
+/**
+ * Refreshes the cell info of a TelephonyManager without blocking the worker thread.
+ * On API 29+ this uses requestCellInfoUpdate(), merges concurrent refreshes into one,
+ * and gives up after a deadline so that callers can fall back to the last known cells.
+ * Older API levels keep the synchronous getAllCellInfo() call behind the same interface.
+ * Only accessed from the plugin worker thread.
+ */
+class CellInfoRefresher {
+    static final long DEFAULT_TIMEOUT_MS = 2000;
+
+    private static final String KEY_TIMEOUT_MS = "timeoutMs";
+    private static final String KEY_REQUESTS = "requests";
+    private static final String KEY_MERGED = "merged";
+    private static final String KEY_TIMEOUTS = "timeouts";
+    private static final String KEY_ERRORS = "errors";
+    private static final String KEY_LATE = "late";
+    private static final String KEY_IN_FLIGHT = "inFlight";
+
+    interface Callback {
+        /**
+         * @param infoList the refreshed cell info, or null if the refresh failed or passed its deadline
+         */
+        void onCellInfo(List<CellInfo> infoList);
+    }
+
+    private final TelephonyManager telephonyManager;
+    private final Handler handler;
+    private final Executor executor;
+    private final PluginMetrics metrics;
+    private final ArrayList<Callback> waiters = new ArrayList<>();
+    private final Runnable timeoutRunnable = this::onTimeout;
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+    private boolean inFlight = false;
+    private int generation = 0;
+    private long startNanos = 0;
+    private long requestCount = 0;
+    private long mergedCount = 0;
+    private long timeoutCount = 0;
+    private long errorCount = 0;
+    private long lateCount = 0;
+
+    CellInfoRefresher(TelephonyManager telephonyManager, Handler handler, Executor executor, PluginMetrics metrics) {
+        this.telephonyManager = telephonyManager;
+        this.handler = handler;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = Math.max(1, timeoutMs);
+    }
+
+    long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * @param callback run on the worker thread with the result; synchronously below API 29
+     */
+    void refresh(Callback callback) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            requestCount++;
+            long start = System.nanoTime();
+            List<CellInfo> infoList = telephonyManager.getAllCellInfo();
+            metrics.recordCellInfoQuery(System.nanoTime() - start);
+            callback.onCellInfo(infoList);
+            return;
+        }
+
+        waiters.add(callback);
+
+        if (inFlight) {
+            mergedCount++;
+            return;
+        }
+
+        requestCount++;
+        inFlight = true;
+        startNanos = System.nanoTime();
+        int requestGeneration = ++generation;
+        handler.postDelayed(timeoutRunnable, timeoutMs);
+
+        telephonyManager.requestCellInfoUpdate(executor, new TelephonyManager.CellInfoCallback() {
+            @Override
+            public void onCellInfo(@NonNull List<CellInfo> list) {
+                if (isCurrent(requestGeneration)) {
+                    metrics.recordCellInfoQuery(System.nanoTime() - startNanos);
+                    complete(list);
+                }
+            }
+
+            @Override
+            public void onError(int errorCode, Throwable detail) {
+                if (isCurrent(requestGeneration)) {
+                    Timber.w(detail, "requestCellInfoUpdate() failed with error %s", errorCode);
+                    errorCount++;
+                    complete(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return false for answers to a request that already passed its deadline
+     */
+    private boolean isCurrent(int requestGeneration) {
+        if (inFlight && requestGeneration == generation) {
+            return true;
+        }
+        lateCount++;
+        return false;
+    }
+
+    private void onTimeout() {
+        if (!inFlight) {
+            return;
+        }
+        Timber.w("requestCellInfoUpdate() passed its %sms deadline", timeoutMs);
+        timeoutCount++;
+        complete(null);
+    }
+
+    private void complete(List<CellInfo> infoList) {
+        handler.removeCallbacks(timeoutRunnable);
+        inFlight = false;
+
+        ArrayList<Callback> callbacks = new ArrayList<>(waiters);
+        waiters.clear();
+
+        for (Callback callback : callbacks) {
+            callback.onCellInfo(infoList);
+        }
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_TIMEOUT_MS, timeoutMs)
+            .put(KEY_REQUESTS, requestCount)
+            .put(KEY_MERGED, mergedCount)
+            .put(KEY_TIMEOUTS, timeoutCount)
+            .put(KEY_ERRORS, errorCount)
+            .put(KEY_LATE, lateCount)
+            .put(KEY_IN_FLIGHT, inFlight);
+    }
+}
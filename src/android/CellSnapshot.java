@@ -0,0 +1,40 @@
+package com.hrs.signalstrength;
+
+/**
+ * Primitive copy of the CellInfo fields reported by this plugin.
+ * Instances are pooled by CellSnapshotSet and reused between refreshes.
+ */
+class CellSnapshot {
+    static final String CELL_TYPE_UNKNOWN = "UNKNOWN";
+    static final String CELL_TYPE_CDMA = "CellInfoCdma";
+    static final String CELL_TYPE_GSM = "CellInfoGsm";
+    static final String CELL_TYPE_LTE = "CellInfoLte";
+    static final String CELL_TYPE_NR = "CellInfoNr";
+    static final String CELL_TYPE_TDSCDMA = "CellInfoTdscdma";
+    static final String CELL_TYPE_WCDMA = "CellInfoWcdma";
+    // same value as CellInfo.UNAVAILABLE
+    static final int UNAVAILABLE = Integer.MAX_VALUE;
+
+    String cellType = CELL_TYPE_UNKNOWN;
+    boolean primary = false;
+    boolean loaded = false;
+    int connectionStatus = 0;
+    int dbm = -1;
+    int level = 0;
+    // LTE and NR only
+    int rsrp = UNAVAILABLE;
+    int rsrq = UNAVAILABLE;
+    int sinr = UNAVAILABLE;
+
+    void reset() {
+        cellType = CELL_TYPE_UNKNOWN;
+        primary = false;
+        loaded = false;
+        connectionStatus = 0;
+        dbm = -1;
+        level = 0;
+        rsrp = UNAVAILABLE;
+        rsrq = UNAVAILABLE;
+        sinr = UNAVAILABLE;
+    }
+}
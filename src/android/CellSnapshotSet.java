@@ -0,0 +1,122 @@
+package com.hrs.signalstrength;
+
+import java.util.ArrayList;
+
+/**
+ * Reusable collection of registered cell snapshots for a single refresh.
+ * Snapshot instances are retained across clear() calls so that steady-state
+ * refreshes do not allocate.
+ */
+class CellSnapshotSet {
+    private final ArrayList<CellSnapshot> pool = new ArrayList<>();
+    private int size = 0;
+    private int primaryIndex = -1;
+    private boolean primaryServing = false;
+    private long scannedAtMs = 0;
+    private long updatedAtMs = 0;
+
+    void clear() {
+        size = 0;
+        primaryIndex = -1;
+        primaryServing = false;
+    }
+
+    /**
+     * @return a reset snapshot appended to this set, to be filled by the caller
+     */
+    CellSnapshot add() {
+        if (size == pool.size()) {
+            pool.add(new CellSnapshot());
+        }
+        CellSnapshot snapshot = pool.get(size++);
+        snapshot.reset();
+        return snapshot;
+    }
+
+    /**
+     * Records when this set was last filled from a full cell info scan.
+     */
+    void markScanned(long elapsedRealtimeMs) {
+        scannedAtMs = elapsedRealtimeMs;
+        updatedAtMs = elapsedRealtimeMs;
+    }
+
+    /**
+     * Records when the snapshots in this set were last modified in place.
+     */
+    void markUpdated(long elapsedRealtimeMs) {
+        updatedAtMs = elapsedRealtimeMs;
+    }
+
+    /**
+     * @return true if this set has been updated within the last maxAgeMs
+     */
+    boolean isFresh(long elapsedRealtimeMs, long maxAgeMs) {
+        return updatedAtMs != 0 && getAgeMs(elapsedRealtimeMs) <= maxAgeMs;
+    }
+
+    long getAgeMs(long elapsedRealtimeMs) {
+        return elapsedRealtimeMs - updatedAtMs;
+    }
+
+    /**
+     * @return true if this set has never been scanned, or was last scanned more than maxAgeMs ago
+     */
+    boolean isStale(long elapsedRealtimeMs, long maxAgeMs) {
+        return scannedAtMs == 0 || elapsedRealtimeMs - scannedAtMs > maxAgeMs;
+    }
+
+    int size() {
+        return size;
+    }
+
+    CellSnapshot get(int index) {
+        return pool.get(index);
+    }
+
+    /**
+     * Picks the first primary serving cell. If there is none, falls back to the
+     * first cell that has loaded signal data, and then to the first cell.
+     */
+    void selectPrimary() {
+        primaryIndex = -1;
+        primaryServing = false;
+
+        for (int i = 0; i < size; i++) {
+            if (pool.get(i).primary) {
+                primaryIndex = i;
+                primaryServing = true;
+                return;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (pool.get(i).loaded) {
+                primaryIndex = i;
+                return;
+            }
+        }
+
+        if (size > 0) {
+            primaryIndex = 0;
+        }
+    }
+
+    int getPrimaryIndex() {
+        return primaryIndex;
+    }
+
+    /**
+     * @return the selected primary snapshot, or null if this set is empty
+     */
+    CellSnapshot getPrimary() {
+        return primaryIndex >= 0 ? pool.get(primaryIndex) : null;
+    }
+
+    /**
+     * @return true if the selected primary is an actual primary serving cell rather than a fallback
+     */
+    boolean isPrimaryServing() {
+        return primaryServing;
+    }
+}
@@ -0,0 +1,230 @@
+package com.hrs.signalstrength;
+
+import android.os.Handler;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * A single js listener of state change events, with its own filters,
+ * delivery rate limit, batching and payload format.
+ * Only accessed from the plugin worker thread.
+ */
+class EventSubscription {
+    private static final String KEY_ID = "id";
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_DATA = "data";
+    private static final String KEY_EVENT_TYPES = "eventTypes";
+    private static final String KEY_MIN_EMIT_INTERVAL_MS = "minEmitIntervalMs";
+    private static final String KEY_DBM_THRESHOLD = "dbmThreshold";
+    private static final String KEY_BINARY = "binary";
+    private static final String KEY_ATTACH_STATS = "attachStats";
+    private static final String KEY_BATCH_SIZE = "batchSize";
+    private static final String KEY_BATCH_MAX_DELAY_MS = "batchMaxDelayMs";
+    private static final String KEY_FIELDS = "fields";
+    private static final String KEY_SHARED_EVENTS = "sharedEvents";
+    private static final String KEY_EVENT_BATCHES = "eventBatches";
+    private static final String KEY_THRESHOLD_SUPPRESSED = "thresholdSuppressed";
+    private static final String KEY_UNSUBSCRIBED = "unsubscribed";
+    private static final String EVENT_TYPE_BATCH = "batch";
+
+    final String id;
+    private final CallbackContext callbackContext;
+    private final SharedEventScheduler scheduler;
+    private final SharedEventBatcher batcher;
+    // null to accept every event type
+    private Set<String> eventTypes = null;
+    private int dbmThreshold = 0;
+    private boolean binary = false;
+    private boolean attachStats = false;
+    private int fieldMask = FieldMask.ALL;
+    private boolean hasLastCellDbm = false;
+    private String lastCellType = null;
+    private int lastCellDbm = 0;
+    private long thresholdSuppressedCount = 0;
+
+    EventSubscription(String id, CallbackContext callbackContext, Handler handler) {
+        this.id = id;
+        this.callbackContext = callbackContext;
+        this.scheduler = new SharedEventScheduler(handler, this::deliver);
+        this.batcher = new SharedEventBatcher(handler, this::deliverBatch);
+    }
+
+    void applyOptions(JSONObject options) {
+        if (options == null) {
+            return;
+        }
+        if (options.has(KEY_EVENT_TYPES)) {
+            eventTypes = getEventTypes(options.optJSONArray(KEY_EVENT_TYPES));
+        }
+        if (options.has(KEY_MIN_EMIT_INTERVAL_MS)) {
+            scheduler.setMinIntervalMs(options.optLong(KEY_MIN_EMIT_INTERVAL_MS, 0));
+        }
+        if (options.has(KEY_DBM_THRESHOLD)) {
+            dbmThreshold = Math.max(0, options.optInt(KEY_DBM_THRESHOLD, 0));
+        }
+        if (options.has(KEY_BINARY)) {
+            binary = options.optBoolean(KEY_BINARY, false);
+        }
+        if (options.has(KEY_ATTACH_STATS)) {
+            attachStats = options.optBoolean(KEY_ATTACH_STATS, false);
+        }
+        if (options.has(KEY_BATCH_SIZE) || options.has(KEY_BATCH_MAX_DELAY_MS)) {
+            batcher.setBatchOptions(
+                options.optInt(KEY_BATCH_SIZE, 0),
+                options.optLong(KEY_BATCH_MAX_DELAY_MS, SharedEventBatcher.DEFAULT_MAX_DELAY_MS)
+            );
+        }
+        if (options.has(KEY_FIELDS)) {
+            fieldMask = FieldMask.compile(options.optJSONArray(KEY_FIELDS));
+        }
+    }
+
+    boolean accepts(String type) {
+        return eventTypes == null || eventTypes.contains(type);
+    }
+
+    boolean wantsStats() {
+        return attachStats && !binary;
+    }
+
+    /**
+     * @return a FORMAT_* mask of the payloads this subscriber needs for the given event type,
+     * or 0 if it does not listen for it
+     */
+    int getFormats(String type) {
+        if (!accepts(type)) {
+            return 0;
+        }
+        int formats = binary ? EventSubscriptionRegistry.FORMAT_BINARY : EventSubscriptionRegistry.FORMAT_JSON;
+        if (wantsStats()) {
+            formats |= EventSubscriptionRegistry.FORMAT_STATS;
+        }
+        return formats;
+    }
+
+    /**
+     * @return FieldMask bits of the json payload fields this subscriber wants
+     */
+    int getFieldMask() {
+        return fieldMask;
+    }
+
+    void submit(SharedEvent event) {
+        if (accepts(event.type)) {
+            scheduler.submit(event.type, event);
+        }
+    }
+
+    /**
+     * Hands over any events held back by rate limiting or batching.
+     */
+    void flush() {
+        scheduler.flush();
+        batcher.flush();
+    }
+
+    /**
+     * Discards any events held back by rate limiting or batching.
+     */
+    void clear() {
+        scheduler.clear();
+        batcher.clear();
+    }
+
+    /**
+     * Discards any held back events, and sends a final result so that
+     * cordova releases the js callback.
+     */
+    void close() {
+        clear();
+        try {
+            JSONObject payload = new JSONObject().put(KEY_UNSUBSCRIBED, true);
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, payload));
+        } catch (JSONException e) {
+            Timber.e(e, "failed to close subscription %s", id);
+        }
+    }
+
+    private int deliver(String type, Object data) throws JSONException {
+        SharedEvent event = (SharedEvent) data;
+
+        if (isWithinDbmThreshold(event)) {
+            thresholdSuppressedCount++;
+            return SharedEventScheduler.OUTCOME_SUPPRESSED;
+        }
+
+        // binary frames identify their own type, and bypass batching and attached stats
+        if (binary && event.hasFrame()) {
+            callbackContext.sendPluginResult(event.getBinaryResult());
+        } else if (batcher.isEnabled()) {
+            batcher.add(event.getEnvelope(fieldMask, attachStats));
+        } else {
+            callbackContext.sendPluginResult(event.getJsonResult(fieldMask, attachStats));
+        }
+
+        return SharedEventScheduler.OUTCOME_DELIVERED;
+    }
+
+    private boolean deliverBatch(JSONArray events) throws JSONException {
+        JSONObject payload = new JSONObject()
+            .put(KEY_TYPE, EVENT_TYPE_BATCH)
+            .put(KEY_DATA, events);
+        PluginResult result = new PluginResult(PluginResult.Status.OK, payload);
+        result.setKeepCallback(true);
+        callbackContext.sendPluginResult(result);
+        return true;
+    }
+
+    /**
+     * @return true if the event is a cell reading too close to the last one delivered to this subscriber
+     */
+    private boolean isWithinDbmThreshold(SharedEvent event) {
+        if (!event.hasCellDbm) {
+            return false;
+        }
+
+        boolean suppress = dbmThreshold > 0
+            && hasLastCellDbm
+            && event.cellType.equals(lastCellType)
+            && Math.abs(event.cellDbm - lastCellDbm) < dbmThreshold;
+
+        if (!suppress) {
+            hasLastCellDbm = true;
+            lastCellType = event.cellType;
+            lastCellDbm = event.cellDbm;
+        }
+
+        return suppress;
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_ID, id)
+            .put(KEY_SHARED_EVENTS, scheduler.getStatsJson())
+            .put(KEY_EVENT_BATCHES, batcher.getStatsJson())
+            .put(KEY_THRESHOLD_SUPPRESSED, thresholdSuppressedCount);
+    }
+
+    private static Set<String> getEventTypes(JSONArray types) {
+        if (types == null) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < types.length(); i++) {
+            String type = types.optString(i, null);
+            if (type != null) {
+                result.add(type);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Active event subscriptions, keyed by the id the js side generated for them.
+ * Only accessed from the plugin worker thread.
+ */
+class EventSubscriptionRegistry {
+    static final int FORMAT_JSON = 1;
+    static final int FORMAT_BINARY = 1 << 1;
+    static final int FORMAT_STATS = 1 << 2;
+
+    private final LinkedHashMap<String, EventSubscription> subscriptions = new LinkedHashMap<>();
+
+    /**
+     * @return the subscription previously registered with the same id, or null if there was none
+     */
+    EventSubscription put(EventSubscription subscription) {
+        return subscriptions.put(subscription.id, subscription);
+    }
+
+    EventSubscription remove(String id) {
+        return subscriptions.remove(id);
+    }
+
+    boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return a FORMAT_* mask of the payloads that subscribers of the given event type need,
+     * or 0 if nobody is listening for it
+     */
+    int getFormats(String type) {
+        int formats = 0;
+        for (EventSubscription subscription : subscriptions.values()) {
+            formats |= subscription.getFormats(type);
+        }
+        return formats;
+    }
+
+    /**
+     * @return the distinct FieldMasks of the json subscribers of the given event type
+     */
+    Set<Integer> getFieldMasks(String type) {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (EventSubscription subscription : subscriptions.values()) {
+            if ((subscription.getFormats(type) & FORMAT_JSON) != 0) {
+                result.add(subscription.getFieldMask());
+            }
+        }
+        return result;
+    }
+
+    void dispatch(SharedEvent event) {
+        for (EventSubscription subscription : subscriptions.values()) {
+            subscription.submit(event);
+        }
+    }
+
+    void flush() {
+        for (EventSubscription subscription : subscriptions.values()) {
+            subscription.flush();
+        }
+    }
+
+    void clear() {
+        for (EventSubscription subscription : subscriptions.values()) {
+            subscription.clear();
+        }
+        subscriptions.clear();
+    }
+
+    JSONArray getStatsJson() throws JSONException {
+        JSONArray result = new JSONArray();
+        for (EventSubscription subscription : subscriptions.values()) {
+            result.put(subscription.getStatsJson());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+
+import java.util.HashMap;
+
+/**
+ * Compiles the `fields` option of state requests and subscriptions into an int bitset,
+ * so that payload building only has to test bits to skip excluded fields.
+ * Names are the keys of the json payloads; related keys share a bit, e.g. rsrp / rsrq / sinr.
+ * Binary frames have a fixed layout and are not projected.
+ */
+final class FieldMask {
+    static final int ALL = -1;
+
+    static final int CELL_TYPE = 1;
+    static final int DBM = 1 << 1;
+    // cell level, or wifi level and maxLevel
+    static final int LEVEL = 1 << 2;
+    static final int CONNECTION_STATUS = 1 << 3;
+    static final int CELL_DATA_LOADED = 1 << 4;
+    static final int SIGNAL_QUALITY = 1 << 5;
+    static final int PRIMARY = 1 << 6;
+    static final int ALTERNATES = 1 << 7;
+    static final int SIM_SUBSCRIPTIONS = 1 << 8;
+    static final int SSID = 1 << 9;
+    static final int BSSID = 1 << 10;
+    static final int NETWORK_ID = 1 << 11;
+    static final int RSSI = 1 << 12;
+    static final int LINK_SPEED = 1 << 13;
+    // tx / rx link speeds and their maximums
+    static final int LINK_SPEED_DETAILS = 1 << 14;
+
+    private static final HashMap<String, Integer> FIELDS = new HashMap<>();
+
+    static {
+        FIELDS.put("cellType", CELL_TYPE);
+        FIELDS.put("dbm", DBM);
+        FIELDS.put("level", LEVEL);
+        FIELDS.put("maxLevel", LEVEL);
+        FIELDS.put("connectionStatus", CONNECTION_STATUS);
+        FIELDS.put("cellDataLoaded", CELL_DATA_LOADED);
+        FIELDS.put("rsrp", SIGNAL_QUALITY);
+        FIELDS.put("rsrq", SIGNAL_QUALITY);
+        FIELDS.put("sinr", SIGNAL_QUALITY);
+        FIELDS.put("primary", PRIMARY);
+        FIELDS.put("alternates", ALTERNATES);
+        FIELDS.put("simSubscriptions", SIM_SUBSCRIPTIONS);
+        FIELDS.put("ssid", SSID);
+        FIELDS.put("bssid", BSSID);
+        FIELDS.put("networkId", NETWORK_ID);
+        FIELDS.put("rssi", RSSI);
+        FIELDS.put("linkSpeedMbps", LINK_SPEED);
+        FIELDS.put("txLinkSpeedMbps", LINK_SPEED_DETAILS);
+        FIELDS.put("maxTxLinkSpeedMbps", LINK_SPEED_DETAILS);
+        FIELDS.put("rxLinkSpeedMbps", LINK_SPEED_DETAILS);
+        FIELDS.put("maxRxLinkSpeedMbps", LINK_SPEED_DETAILS);
+    }
+
+    private FieldMask() {
+    }
+
+    /**
+     * @param fields payload keys to include, or null to include everything
+     * @return the compiled mask; unknown names are ignored
+     */
+    static int compile(JSONArray fields) {
+        if (fields == null) {
+            return ALL;
+        }
+        int mask = 0;
+        for (int i = 0; i < fields.length(); i++) {
+            Integer field = FIELDS.get(fields.optString(i, ""));
+            if (field != null) {
+                mask |= field;
+            }
+        }
+        return mask;
+    }
+
+    static boolean includes(int mask, int field) {
+        return (mask & field) != 0;
+    }
+
+    /**
+     * @return true if everything the requested mask includes is also included in the available one
+     */
+    static boolean covers(int available, int requested) {
+        return (requested & ~available) == 0;
+    }
+}
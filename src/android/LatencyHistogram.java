@@ -0,0 +1,97 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Fixed-size histogram of durations, with exponentially growing buckets
+ * from 100us up to ~6.5s and one overflow bucket beyond that.
+ * Only accessed from the plugin worker thread.
+ */
+class LatencyHistogram {
+    private static final long FIRST_BUCKET_BOUND_NANOS = 100_000;
+    private static final int BOUNDED_BUCKET_COUNT = 17;
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    private static final String KEY_COUNT = "count";
+    private static final String KEY_MEAN_MS = "meanMs";
+    private static final String KEY_MAX_MS = "maxMs";
+    private static final String KEY_P50_MS = "p50Ms";
+    private static final String KEY_P95_MS = "p95Ms";
+    private static final String KEY_BUCKETS = "buckets";
+    private static final String KEY_LE_MS = "leMs";
+
+    // the last bucket counts everything above the largest bound
+    private final long[] bucketCounts = new long[BOUNDED_BUCKET_COUNT + 1];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    void record(long durationNanos) {
+        long nanos = Math.max(0, durationNanos);
+        bucketCounts[getBucketIndex(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Percentiles are reported as the upper bound of the bucket they fall in,
+     * capped at the largest recorded duration.
+     */
+    JSONObject toJson() throws JSONException {
+        JSONArray buckets = new JSONArray();
+        for (int i = 0; i < bucketCounts.length; i++) {
+            if (bucketCounts[i] > 0) {
+                buckets.put(new JSONObject()
+                    .put(KEY_LE_MS, toMs(getBucketBoundNanos(i)))
+                    .put(KEY_COUNT, bucketCounts[i]));
+            }
+        }
+
+        return new JSONObject()
+            .put(KEY_COUNT, count)
+            .put(KEY_MEAN_MS, count > 0 ? toMs(totalNanos / count) : 0)
+            .put(KEY_MAX_MS, toMs(maxNanos))
+            .put(KEY_P50_MS, toMs(getPercentileNanos(0.5)))
+            .put(KEY_P95_MS, toMs(getPercentileNanos(0.95)))
+            .put(KEY_BUCKETS, buckets);
+    }
+
+    private long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return getBucketBoundNanos(i);
+            }
+        }
+        return maxNanos;
+    }
+
+    private long getBucketBoundNanos(int index) {
+        if (index >= BOUNDED_BUCKET_COUNT) {
+            return maxNanos;
+        }
+        return Math.min(FIRST_BUCKET_BOUND_NANOS << index, Math.max(maxNanos, FIRST_BUCKET_BOUND_NANOS));
+    }
+
+    private static int getBucketIndex(long nanos) {
+        int index = 0;
+        long bound = FIRST_BUCKET_BOUND_NANOS;
+        while (index < BOUNDED_BUCKET_COUNT && nanos > bound) {
+            bound <<= 1;
+            index++;
+        }
+        return index;
+    }
+
+    private static double toMs(long nanos) {
+        return nanos / NANOS_PER_MS;
+    }
+}
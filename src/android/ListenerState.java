@@ -0,0 +1,51 @@
+package com.hrs.signalstrength;
+
+/**
+ * Immutable snapshot of the native listener registration state.
+ * The plugin publishes it through a ListenerStateHolder, so that cordova threads
+ * (execute() and lifecycle callbacks) and listener callbacks read a consistent state
+ * without locking, and a transition racing with onDestroy() on the main thread
+ * can never re-register listeners.
+ */
+final class ListenerState {
+    static final ListenerState INITIAL = new ListenerState(false, false, false);
+
+    // shared listeners are registered, possibly parked
+    final boolean registered;
+    // only a signal strength listener remains, which updates the cached primary cell
+    final boolean parked;
+    // the plugin is being torn down; nothing is registered anymore
+    final boolean destroyed;
+
+    private ListenerState(boolean registered, boolean parked, boolean destroyed) {
+        this.registered = registered;
+        this.parked = parked;
+        this.destroyed = destroyed;
+    }
+
+    ListenerState withRegistered(boolean registered) {
+        return new ListenerState(registered, registered && parked, destroyed);
+    }
+
+    ListenerState withParked(boolean parked) {
+        return new ListenerState(registered, parked, destroyed);
+    }
+
+    ListenerState withDestroyed() {
+        return new ListenerState(registered, parked, true);
+    }
+
+    /**
+     * @return true if callbacks of the full, unparked listeners are current
+     */
+    boolean isListening() {
+        return registered && !parked && !destroyed;
+    }
+
+    /**
+     * @return true if callbacks of listeners that also run while parked are current
+     */
+    boolean isListeningOrParked() {
+        return registered && !destroyed;
+    }
+}
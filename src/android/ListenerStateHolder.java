@@ -0,0 +1,82 @@
+package com.hrs.signalstrength;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the current ListenerState and applies every transition by compare-and-set.
+ * Transitions run on the plugin worker thread, except destroy() which runs on the main thread;
+ * get() may be called from any thread.
+ * Each transition re-checks its precondition on every attempt, so once destroy() returned,
+ * register() and unpark() fail and nothing can be registered again.
+ */
+final class ListenerStateHolder {
+    private final AtomicReference<ListenerState> state = new AtomicReference<>(ListenerState.INITIAL);
+
+    ListenerState get() {
+        return state.get();
+    }
+
+    /**
+     * @return true if the caller must register the listeners
+     */
+    boolean register() {
+        ListenerState current;
+        do {
+            current = state.get();
+            if (current.registered || current.destroyed) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current.withRegistered(true)));
+        return true;
+    }
+
+    /**
+     * @return the state the listeners were registered in, so the caller knows which to unregister,
+     * or null if they were not registered
+     */
+    ListenerState unregister() {
+        ListenerState current;
+        do {
+            current = state.get();
+            if (!current.registered) {
+                return null;
+            }
+        } while (!state.compareAndSet(current, current.withRegistered(false)));
+        return current;
+    }
+
+    /**
+     * @return true if the caller must swap the full listeners for the parked one
+     */
+    boolean park() {
+        ListenerState current;
+        do {
+            current = state.get();
+            if (!current.isListening()) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current.withParked(true)));
+        return true;
+    }
+
+    /**
+     * @return true if the caller must swap the parked listener for the full ones
+     */
+    boolean unpark() {
+        ListenerState current;
+        do {
+            current = state.get();
+            if (!current.parked || current.destroyed) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current.withParked(false)));
+        return true;
+    }
+
+    void destroy() {
+        ListenerState current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, current.withDestroyed()));
+    }
+}
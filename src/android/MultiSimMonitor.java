@@ -0,0 +1,301 @@
+package com.hrs.signalstrength;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+
+import androidx.core.app.ActivityCompat;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import timber.log.Timber;
+
+/**
+ * Keeps one SubscriptionCellMonitor per active subscription (SIM), so that
+ * cells can be told apart by carrier on multi-SIM devices.
+ * The set of monitors follows subscription changes incrementally: only added
+ * or removed subscriptions (un)register listeners.
+ * Only accessed from the plugin worker thread.
+ */
+class MultiSimMonitor {
+    private final Context context;
+    private final TelephonyManager baseTelephonyManager;
+    private final CellInfoReader cellInfoReader;
+    private final Handler handler;
+    private final Executor executor;
+    private final PluginMetrics metrics;
+    private final SubscriptionCellMonitor.Listener listener;
+    private final LinkedHashMap<Integer, SubscriptionCellMonitor> monitors = new LinkedHashMap<>();
+    private final ArrayList<Runnable> refreshWaiters = new ArrayList<>();
+    private final Runnable refreshTimeoutRunnable = this::completeRefresh;
+    private SubscriptionManager subscriptionManager = null;
+    private SubscriptionManager.OnSubscriptionsChangedListener subscriptionsChangedListener = null;
+    private boolean listening = false;
+    private int pendingRefreshes = 0;
+    private int refreshGeneration = 0;
+    private int dbmHysteresis = 0;
+    private int rssiHysteresis = 0;
+    private long rescanIntervalMs = 0;
+    private long refreshTimeoutMs = CellInfoRefresher.DEFAULT_TIMEOUT_MS;
+
+    MultiSimMonitor(
+        Context context,
+        TelephonyManager baseTelephonyManager,
+        CellInfoReader cellInfoReader,
+        Handler handler,
+        Executor executor,
+        PluginMetrics metrics,
+        SubscriptionCellMonitor.Listener listener
+    ) {
+        this.context = context;
+        this.baseTelephonyManager = baseTelephonyManager;
+        this.cellInfoReader = cellInfoReader;
+        this.handler = handler;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    /**
+     * @return false if subscriptions cannot be monitored on this device or without READ_PHONE_STATE
+     */
+    boolean isAvailable() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            && ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_PHONE_STATE)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    int size() {
+        return monitors.size();
+    }
+
+    void setHysteresis(int dbmHysteresis, int rssiHysteresis) {
+        this.dbmHysteresis = dbmHysteresis;
+        this.rssiHysteresis = rssiHysteresis;
+        for (SubscriptionCellMonitor monitor : monitors.values()) {
+            monitor.setHysteresis(dbmHysteresis, rssiHysteresis);
+        }
+    }
+
+    void setRescanIntervalMs(long rescanIntervalMs) {
+        this.rescanIntervalMs = rescanIntervalMs;
+        for (SubscriptionCellMonitor monitor : monitors.values()) {
+            monitor.setRescanIntervalMs(rescanIntervalMs);
+        }
+    }
+
+    /**
+     * @param refreshTimeoutMs deadline of each subscription's cell info refresh
+     */
+    void setRefreshTimeoutMs(long refreshTimeoutMs) {
+        this.refreshTimeoutMs = refreshTimeoutMs;
+        for (SubscriptionCellMonitor monitor : monitors.values()) {
+            monitor.setRefreshTimeoutMs(refreshTimeoutMs);
+        }
+    }
+
+    /**
+     * Registers listeners for every active subscription, and for subscription changes.
+     */
+    void startListening() {
+        if (listening || !isAvailable()) {
+            return;
+        }
+
+        listening = true;
+        syncSubscriptions();
+
+        if (subscriptionsChangedListener == null) {
+            // below API 30 this binds to the looper of the creating thread, i.e. the worker thread
+            subscriptionsChangedListener = new SubscriptionManager.OnSubscriptionsChangedListener() {
+                @Override
+                public void onSubscriptionsChanged() {
+                    syncSubscriptions();
+                }
+            };
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            getSubscriptionManager().addOnSubscriptionsChangedListener(executor, subscriptionsChangedListener);
+        } else {
+            getSubscriptionManager().addOnSubscriptionsChangedListener(subscriptionsChangedListener);
+        }
+    }
+
+    /**
+     * Unregisters all listeners; cached cells are kept for one-shot requests.
+     */
+    void stopListening() {
+        if (!listening) {
+            return;
+        }
+
+        listening = false;
+        getSubscriptionManager().removeOnSubscriptionsChangedListener(subscriptionsChangedListener);
+
+        for (SubscriptionCellMonitor monitor : monitors.values()) {
+            monitor.unregister();
+        }
+    }
+
+    /**
+     * Adds monitors for new subscriptions and drops the ones of removed subscriptions,
+     * leaving the monitors of unchanged subscriptions registered.
+     */
+    void syncSubscriptions() {
+        if (!isAvailable()) {
+            return;
+        }
+
+        List<SubscriptionInfo> infoList;
+
+        try {
+            infoList = getSubscriptionManager().getActiveSubscriptionInfoList();
+        } catch (SecurityException e) {
+            Timber.w(e, "syncSubscriptions() not permitted to read subscriptions");
+            return;
+        }
+
+        Set<Integer> activeIds = new HashSet<>();
+
+        if (infoList != null) {
+            for (SubscriptionInfo info : infoList) {
+                int subscriptionId = info.getSubscriptionId();
+                activeIds.add(subscriptionId);
+
+                SubscriptionCellMonitor monitor = monitors.get(subscriptionId);
+
+                if (monitor != null) {
+                    monitor.update(info);
+                    continue;
+                }
+
+                monitor = new SubscriptionCellMonitor(
+                    info,
+                    baseTelephonyManager,
+                    cellInfoReader,
+                    handler,
+                    executor,
+                    metrics,
+                    listener
+                );
+                monitor.setHysteresis(dbmHysteresis, rssiHysteresis);
+                monitor.setRescanIntervalMs(rescanIntervalMs);
+                monitor.setRefreshTimeoutMs(refreshTimeoutMs);
+                monitors.put(subscriptionId, monitor);
+
+                if (listening) {
+                    monitor.register();
+                }
+                Timber.v("syncSubscriptions() added subscription %s", subscriptionId);
+            }
+        }
+
+        Iterator<SubscriptionCellMonitor> iterator = monitors.values().iterator();
+
+        while (iterator.hasNext()) {
+            SubscriptionCellMonitor monitor = iterator.next();
+            if (!activeIds.contains(monitor.subscriptionId)) {
+                monitor.unregister();
+                iterator.remove();
+                Timber.v("syncSubscriptions() removed subscription %s", monitor.subscriptionId);
+            }
+        }
+    }
+
+    /**
+     * Queries every subscription at once, unless a refresh is already in flight.
+     * @param timeoutMs longest time to wait for all subscriptions, after which the cache is used as is
+     */
+    void refreshAll(long timeoutMs) {
+        if (pendingRefreshes > 0) {
+            return;
+        }
+
+        if (!listening) {
+            // not kept current by subscription change callbacks
+            syncSubscriptions();
+        }
+
+        if (monitors.isEmpty()) {
+            completeRefresh();
+            return;
+        }
+
+        int generation = ++refreshGeneration;
+        pendingRefreshes = monitors.size();
+        handler.postDelayed(refreshTimeoutRunnable, timeoutMs);
+
+        for (SubscriptionCellMonitor monitor : new ArrayList<>(monitors.values())) {
+            monitor.requestUpdate(() -> onMonitorRefreshed(generation));
+        }
+    }
+
+    /**
+     * @param onComplete run on the worker thread once the in-flight refresh completed,
+     * or right away if there is none
+     */
+    void whenRefreshed(Runnable onComplete) {
+        if (pendingRefreshes == 0) {
+            onComplete.run();
+        } else {
+            refreshWaiters.add(onComplete);
+        }
+    }
+
+    private void onMonitorRefreshed(int generation) {
+        // late answers of a refresh that already timed out are ignored
+        if (generation != refreshGeneration || pendingRefreshes == 0) {
+            return;
+        }
+        if (--pendingRefreshes == 0) {
+            completeRefresh();
+        }
+    }
+
+    private void completeRefresh() {
+        handler.removeCallbacks(refreshTimeoutRunnable);
+        pendingRefreshes = 0;
+
+        ArrayList<Runnable> waiters = new ArrayList<>(refreshWaiters);
+        refreshWaiters.clear();
+
+        for (Runnable waiter : waiters) {
+            waiter.run();
+        }
+    }
+
+    /**
+     * @return the cached cells of each subscription, keyed by subscription id
+     */
+    JSONObject toJson() throws JSONException {
+        long now = SystemClock.elapsedRealtime();
+        JSONObject result = new JSONObject();
+        for (SubscriptionCellMonitor monitor : monitors.values()) {
+            result.putOpt(String.valueOf(monitor.subscriptionId), monitor.toJson(now));
+        }
+        return result;
+    }
+
+    private SubscriptionManager getSubscriptionManager() {
+        if (subscriptionManager == null) {
+            subscriptionManager = context.getSystemService(SubscriptionManager.class);
+        }
+        return subscriptionManager;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hrs.signalstrength;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkRequest;
+import android.os.Handler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A NetworkCallback together with whether it is currently registered, so that it is
+ * registered with the ConnectivityManager at most once however often callers ask for it.
+ * ConnectivityManager rejects a callback that is already registered, and every extra
+ * registration would deliver each callback once more.
+ * Only accessed from the plugin worker thread.
+ */
+class NetworkCallbackRegistration {
+    private static final String KEY_REGISTERED = "registered";
+    private static final String KEY_REGISTRATIONS = "registrations";
+    private static final String KEY_REDUNDANT = "redundant";
+
+    private final ConnectivityManager connectivityManager;
+    private final ConnectivityManager.NetworkCallback callback;
+    private final Handler handler;
+    private boolean registered = false;
+    private long registrationCount = 0;
+    private long redundantCount = 0;
+
+    NetworkCallbackRegistration(
+        ConnectivityManager connectivityManager,
+        ConnectivityManager.NetworkCallback callback,
+        Handler handler
+    ) {
+        this.connectivityManager = connectivityManager;
+        this.callback = callback;
+        this.handler = handler;
+    }
+
+    /**
+     * Passively listens to networks matching the request.
+     * @return false if the callback was already registered
+     */
+    boolean listen(NetworkRequest request) {
+        if (!markRegistered()) {
+            return false;
+        }
+        connectivityManager.registerNetworkCallback(request, callback, handler);
+        return true;
+    }
+
+    /**
+     * Asks the system for a network matching the request, until released.
+     * @return false if the callback was already registered
+     */
+    boolean request(NetworkRequest request) {
+        if (!markRegistered()) {
+            return false;
+        }
+        connectivityManager.requestNetwork(request, callback, handler);
+        return true;
+    }
+
+    void release() {
+        if (!registered) {
+            return;
+        }
+        connectivityManager.unregisterNetworkCallback(callback);
+        registered = false;
+    }
+
+    private boolean markRegistered() {
+        if (registered) {
+            redundantCount++;
+            return false;
+        }
+        registered = true;
+        registrationCount++;
+        return true;
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_REGISTERED, registered)
+            .put(KEY_REGISTRATIONS, registrationCount)
+            .put(KEY_REDUNDANT, redundantCount);
+    }
+}
@@ -0,0 +1,222 @@
+package com.hrs.signalstrength;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+
+import timber.log.Timber;
+
+/**
+ * Collects js callbacks that are waiting on the same native query,
+ * so that concurrent requests share a single in-flight query and
+ * are all completed from its result.
+ * Waiters that are not completed before their deadline are failed
+ * individually, with the last known state attached when available.
+ * Only accessed from the plugin worker thread.
+ */
+class PendingRequestGroup {
+    private static final String KEY_MESSAGE = "message";
+    private static final String KEY_LAST_KNOWN_STATE = "lastKnownState";
+    private static final String KEY_DEPTH = "depth";
+    private static final String KEY_MAX_DEPTH = "maxDepth";
+    private static final String KEY_QUERIES = "queries";
+    private static final String KEY_COMPLETED = "completed";
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_TIMED_OUT = "timedOut";
+    private static final String KEY_MEAN_WAIT_MS = "meanWaitMs";
+    private static final String KEY_MAX_WAIT_MS = "maxWaitMs";
+
+    interface Delegate {
+        /**
+         * @param fieldMask FieldMask bits of the fields the timed out waiter asked for
+         * @return the state to attach to timeout errors, or null if none is known
+         */
+        JSONObject getLastKnownState(int fieldMask) throws JSONException;
+
+        /**
+         * Invoked when every waiter has timed out, and the in-flight query
+         * should be abandoned so that the next waiter can start a new one.
+         */
+        void onRequestAbandoned();
+    }
+
+    private class Waiter implements Runnable {
+        final CallbackContext callbackContext;
+        final long enqueuedAtMs;
+        final boolean binary;
+        final int fieldMask;
+
+        Waiter(CallbackContext callbackContext, long enqueuedAtMs, boolean binary, int fieldMask) {
+            this.callbackContext = callbackContext;
+            this.enqueuedAtMs = enqueuedAtMs;
+            this.binary = binary;
+            this.fieldMask = fieldMask;
+        }
+
+        @Override
+        public void run() {
+            onWaiterTimeout(this);
+        }
+    }
+
+    private final String name;
+    private final Handler handler;
+    private final Delegate delegate;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private boolean inFlight = false;
+    private int maxDepth = 0;
+    private long queryCount = 0;
+    private long completedCount = 0;
+    private long failedCount = 0;
+    private long timedOutCount = 0;
+    private long totalWaitMs = 0;
+    private long maxWaitMs = 0;
+
+    PendingRequestGroup(String name, Handler handler, Delegate delegate) {
+        this.name = name;
+        this.handler = handler;
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param timeoutMs how long this waiter may wait for a result; 0 to wait indefinitely
+     * @param binary true if this waiter should be completed with the binary encoding of the result
+     * @param fieldMask FieldMask bits of the json payload fields this waiter wants
+     * @return true if no query is in flight, and the caller should start one
+     */
+    boolean join(CallbackContext callbackContext, long timeoutMs, boolean binary, int fieldMask) {
+        long now = SystemClock.uptimeMillis();
+        Waiter waiter = new Waiter(callbackContext, now, binary, fieldMask);
+        waiters.add(waiter);
+
+        if (timeoutMs > 0) {
+            handler.postAtTime(waiter, now + timeoutMs);
+        }
+
+        boolean leader = !inFlight;
+        inFlight = true;
+        maxDepth = Math.max(maxDepth, waiters.size());
+        if (leader) {
+            queryCount++;
+        }
+
+        return leader;
+    }
+
+    boolean isEmpty() {
+        return waiters.isEmpty();
+    }
+
+    /**
+     * @return true if any waiter asked for a binary result, so the caller should encode one
+     */
+    boolean hasBinaryWaiters() {
+        for (Waiter waiter : waiters) {
+            if (waiter.binary) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param payload json payload, projected to the field mask of each waiter
+     * @param frame binary encoding of the payload for binary waiters; they get the json payload if null
+     * @return false if there were no waiters to complete
+     * @throws JSONException if a payload could not be built; the remaining waiters are left
+     * to be failed by the caller
+     */
+    boolean success(ProjectedPayload payload, byte[] frame) throws JSONException {
+        inFlight = false;
+        boolean completedAny = false;
+        Waiter waiter;
+        while ((waiter = waiters.peek()) != null) {
+            // built before the waiter is dequeued, so a failed build leaves it for error()
+            JSONObject json = waiter.binary && frame != null ? null : payload.get(waiter.fieldMask);
+            waiters.poll();
+            handler.removeCallbacks(waiter);
+            recordWait(waiter, false);
+            if (json == null) {
+                waiter.callbackContext.success(frame);
+            } else {
+                waiter.callbackContext.success(json);
+            }
+            completedAny = true;
+        }
+        return completedAny;
+    }
+
+    /**
+     * @return false if there were no waiters to complete
+     */
+    boolean error(String errorMessage) {
+        inFlight = false;
+        boolean completedAny = false;
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            handler.removeCallbacks(waiter);
+            recordWait(waiter, true);
+            waiter.callbackContext.error(errorMessage);
+            completedAny = true;
+        }
+        return completedAny;
+    }
+
+    private void onWaiterTimeout(Waiter waiter) {
+        // the waiter may have been completed while its timeout was queued
+        if (!waiters.remove(waiter)) {
+            return;
+        }
+
+        timedOutCount++;
+        recordWait(waiter, true);
+
+        try {
+            JSONObject error = new JSONObject()
+                .put(KEY_MESSAGE, name + " timed out");
+            if (delegate != null) {
+                error.putOpt(KEY_LAST_KNOWN_STATE, delegate.getLastKnownState(waiter.fieldMask));
+            }
+            waiter.callbackContext.error(error);
+        } catch (JSONException e) {
+            Timber.e(e, "%s failed to build timeout error", name);
+            waiter.callbackContext.error(name + " timed out");
+        }
+
+        if (waiters.isEmpty() && inFlight) {
+            inFlight = false;
+            if (delegate != null) {
+                delegate.onRequestAbandoned();
+            }
+        }
+    }
+
+    private void recordWait(Waiter waiter, boolean failed) {
+        long waitMs = SystemClock.uptimeMillis() - waiter.enqueuedAtMs;
+        totalWaitMs += waitMs;
+        maxWaitMs = Math.max(maxWaitMs, waitMs);
+        if (failed) {
+            failedCount++;
+        } else {
+            completedCount++;
+        }
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        long waitCount = completedCount + failedCount;
+        return new JSONObject()
+            .put(KEY_DEPTH, waiters.size())
+            .put(KEY_MAX_DEPTH, maxDepth)
+            .put(KEY_QUERIES, queryCount)
+            .put(KEY_COMPLETED, completedCount)
+            .put(KEY_FAILED, failedCount)
+            .put(KEY_TIMED_OUT, timedOutCount)
+            .put(KEY_MEAN_WAIT_MS, waitCount > 0 ? totalWaitMs / waitCount : 0)
+            .put(KEY_MAX_WAIT_MS, maxWaitMs);
+    }
+}
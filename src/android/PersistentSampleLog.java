@@ -0,0 +1,350 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * Circular log of fixed-size signal samples in a memory-mapped file, so that
+ * history survives webview reloads and process death. Appending a sample is a
+ * handful of stores into the mapping; the kernel writes pages back on its own.
+ *
+ * File layout (little-endian):
+ * <pre>
+ * 32 byte header:
+ *     u32 MAGIC, u16 VERSION, u16 RECORD_SIZE, u32 record capacity, 20 reserved bytes
+ * RECORD_SIZE byte records:
+ *     i64 sequence (0 for an empty slot), i64 timestamp (unix epoch ms),
+ *     u8 source (SignalHistory.SOURCE_*), u8 cell type code, u8 connected, i8 level,
+ *     i32 dbm (cell) or rssi (wifi), i32 linkSpeedMbps (wifi), u32 checksum
+ * </pre>
+ * There is no write pointer in the header. A record is invalidated, filled, then
+ * published by writing its sequence last, and its checksum covers every field, so a
+ * crash mid-write leaves at most one invalid slot. On open, the slot after the highest
+ * valid sequence is where writing resumes.
+ * Only accessed from the plugin worker thread.
+ */
+class PersistentSampleLog {
+    static final int MAGIC = 0x5347534c;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 32;
+    static final int DEFAULT_PAGE_LIMIT = 500;
+    // 2M records; also keeps every offset into the mapping within int range
+    static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int OFFSET_SEQUENCE = 0;
+    private static final int OFFSET_TIMESTAMP = 8;
+    private static final int OFFSET_SOURCE = 16;
+    private static final int OFFSET_CELL_TYPE = 17;
+    private static final int OFFSET_CONNECTED = 18;
+    private static final int OFFSET_LEVEL = 19;
+    private static final int OFFSET_SIGNAL = 20;
+    private static final int OFFSET_LINK_SPEED = 24;
+    private static final int OFFSET_CHECKSUM = 28;
+
+    private static final String KEY_SEQUENCE = "sequence";
+    private static final String KEY_TIMESTAMP = "timestamp";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_CELL_TYPE = "cellType";
+    private static final String KEY_DBM = "dbm";
+    private static final String KEY_LEVEL = "level";
+    private static final String KEY_CONNECTED = "connected";
+    private static final String KEY_RSSI = "rssi";
+    private static final String KEY_LINK_SPEED_MBPS = "linkSpeedMbps";
+    private static final String KEY_SAMPLES = "samples";
+    private static final String KEY_NEXT_SEQUENCE = "nextSequence";
+    private static final String KEY_PATH = "path";
+    private static final String KEY_SIZE_BYTES = "sizeBytes";
+    private static final String KEY_CAPACITY = "capacity";
+    private static final String SOURCE_NAME_CELL = "cell";
+    private static final String SOURCE_NAME_WIFI = "wifi";
+
+    private final File file;
+    private RandomAccessFile randomAccessFile = null;
+    private FileChannel channel = null;
+    private MappedByteBuffer buffer = null;
+    private int capacity = 0;
+    // slot the next record is written to
+    private int head = 0;
+    private long lastSequence = 0;
+
+    PersistentSampleLog(File file) {
+        this.file = file;
+    }
+
+    boolean isOpen() {
+        return buffer != null;
+    }
+
+    /**
+     * Maps the log file, keeping existing records if the file was created with the same capacity.
+     * @param maxBytes size cap of the file, including its header; clamped to MAX_BYTES
+     */
+    void open(long maxBytes) throws IOException {
+        long clampedBytes = Math.min(maxBytes, MAX_BYTES);
+        int newCapacity = (int) Math.max(1, (clampedBytes - HEADER_SIZE) / RECORD_SIZE);
+
+        if (isOpen() && newCapacity == capacity) {
+            return;
+        }
+
+        close();
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("failed to create " + parent);
+        }
+
+        long size = HEADER_SIZE + (long) newCapacity * RECORD_SIZE;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+
+        boolean reuse = channel.size() == size;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = newCapacity;
+
+        if (reuse && buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION
+            && buffer.getShort(6) == RECORD_SIZE && buffer.getInt(8) == capacity) {
+            recover();
+        } else {
+            Timber.i("PersistentSampleLog creating %s with %s records", file, capacity);
+            format();
+        }
+    }
+
+    void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            Timber.w(e, "failed to close %s", file);
+        }
+        channel = null;
+        randomAccessFile = null;
+    }
+
+    /**
+     * Asks the kernel to write dirty pages back, e.g. before the app goes to the background.
+     */
+    void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    void addCell(long timestamp, boolean found, String cellType, int dbm, int level) {
+        append(timestamp, SignalHistory.SOURCE_CELL, SignalHistory.getCellTypeCode(cellType), found, level, dbm, 0);
+    }
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     */
+    void addWifi(long timestamp, WifiSnapshot info) {
+        if (info == null) {
+            append(timestamp, SignalHistory.SOURCE_WIFI, 0, false, WifiSnapshot.LEVEL_UNAVAILABLE, 0, 0);
+        } else {
+            append(timestamp, SignalHistory.SOURCE_WIFI, 0, true, info.level, info.rssi, info.linkSpeedMbps);
+        }
+    }
+
+    /**
+     * @param from only records with a timestamp at or after this are returned
+     * @param to only records with a timestamp at or before this are returned
+     * @param afterSequence only records logged after this sequence are returned, for paging
+     * @param limit maximum number of records to return
+     * @return {samples, nextSequence}, where nextSequence is set if more records may match
+     */
+    JSONObject query(long from, long to, long afterSequence, int limit) throws JSONException {
+        JSONArray samples = new JSONArray();
+        JSONObject result = new JSONObject().put(KEY_SAMPLES, samples);
+
+        if (!isOpen()) {
+            return result;
+        }
+
+        long lastReturnedSequence = afterSequence;
+
+        // starting at the write position visits slots oldest first
+        for (int n = 0; n < capacity; n++) {
+            int offset = getOffset((head + n) % capacity);
+            long sequence = buffer.getLong(offset + OFFSET_SEQUENCE);
+
+            if (sequence <= afterSequence || !isValid(offset)) {
+                continue;
+            }
+
+            long timestamp = buffer.getLong(offset + OFFSET_TIMESTAMP);
+
+            if (timestamp < from || timestamp > to) {
+                continue;
+            }
+
+            if (samples.length() >= limit) {
+                result.put(KEY_NEXT_SEQUENCE, lastReturnedSequence);
+                break;
+            }
+
+            samples.put(getSampleJson(offset, sequence, timestamp));
+            lastReturnedSequence = sequence;
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes dirty pages back, so that the raw file can be uploaded as is.
+     */
+    JSONObject getFileJson() throws JSONException {
+        flush();
+        return new JSONObject()
+            .put(KEY_PATH, file.getAbsolutePath())
+            .put(KEY_SIZE_BYTES, file.length())
+            .put(KEY_CAPACITY, capacity);
+    }
+
+    private void append(long timestamp, int source, int cellType, boolean connected, int level, int signal, int linkSpeed) {
+        if (!isOpen()) {
+            return;
+        }
+
+        int offset = getOffset(head);
+        long sequence = ++lastSequence;
+
+        // invalidate first, so a torn write is never mistaken for a complete record
+        buffer.putLong(offset + OFFSET_SEQUENCE, 0);
+        buffer.putLong(offset + OFFSET_TIMESTAMP, timestamp);
+        buffer.put(offset + OFFSET_SOURCE, (byte) source);
+        buffer.put(offset + OFFSET_CELL_TYPE, (byte) cellType);
+        buffer.put(offset + OFFSET_CONNECTED, (byte) (connected ? 1 : 0));
+        buffer.put(offset + OFFSET_LEVEL, (byte) level);
+        buffer.putInt(offset + OFFSET_SIGNAL, signal);
+        buffer.putInt(offset + OFFSET_LINK_SPEED, linkSpeed);
+        buffer.putInt(offset + OFFSET_CHECKSUM, getChecksum(offset, sequence));
+        buffer.putLong(offset + OFFSET_SEQUENCE, sequence);
+
+        head = (head + 1) % capacity;
+    }
+
+    private void format() {
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        for (int slot = 0; slot < capacity; slot++) {
+            buffer.putLong(getOffset(slot) + OFFSET_SEQUENCE, 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) VERSION);
+        buffer.putShort(6, (short) RECORD_SIZE);
+        buffer.putInt(8, capacity);
+        buffer.force();
+        head = 0;
+        lastSequence = 0;
+    }
+
+    private void recover() {
+        int newestSlot = -1;
+        long newestSequence = 0;
+        int invalidCount = 0;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = getOffset(slot);
+            long sequence = buffer.getLong(offset + OFFSET_SEQUENCE);
+
+            if (sequence == 0) {
+                continue;
+            }
+            if (!isValid(offset)) {
+                // left behind by a crash mid-write
+                buffer.putLong(offset + OFFSET_SEQUENCE, 0);
+                invalidCount++;
+                continue;
+            }
+            if (sequence > newestSequence) {
+                newestSequence = sequence;
+                newestSlot = slot;
+            }
+        }
+
+        lastSequence = newestSequence;
+        head = newestSlot >= 0 ? (newestSlot + 1) % capacity : 0;
+        Timber.i("PersistentSampleLog recovered %s at sequence %s, discarded %s", file, lastSequence, invalidCount);
+    }
+
+    private boolean isValid(int offset) {
+        long sequence = buffer.getLong(offset + OFFSET_SEQUENCE);
+        return sequence != 0 && buffer.getInt(offset + OFFSET_CHECKSUM) == getChecksum(offset, sequence);
+    }
+
+    /**
+     * FNV-1a over the record fields, read straight from the mapping.
+     */
+    private int getChecksum(int offset, long sequence) {
+        int hash = 0x811c9dc5;
+        hash = mix(hash, (int) sequence);
+        hash = mix(hash, (int) (sequence >>> 32));
+        for (int i = OFFSET_TIMESTAMP; i < OFFSET_CHECKSUM; i += 4) {
+            hash = mix(hash, buffer.getInt(offset + i));
+        }
+        return hash;
+    }
+
+    private static int mix(int hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    private JSONObject getSampleJson(int offset, long sequence, long timestamp) throws JSONException {
+        boolean connected = buffer.get(offset + OFFSET_CONNECTED) != 0;
+        int level = buffer.get(offset + OFFSET_LEVEL);
+        int signal = buffer.getInt(offset + OFFSET_SIGNAL);
+        JSONObject result = new JSONObject()
+            .put(KEY_SEQUENCE, sequence)
+            .put(KEY_TIMESTAMP, timestamp)
+            .put(KEY_CONNECTED, connected);
+
+        if (buffer.get(offset + OFFSET_SOURCE) == SignalHistory.SOURCE_CELL) {
+            result.put(KEY_SOURCE, SOURCE_NAME_CELL)
+                .put(KEY_CELL_TYPE, SignalHistory.getCellType(buffer.get(offset + OFFSET_CELL_TYPE)))
+                .put(KEY_DBM, signal)
+                .put(KEY_LEVEL, level);
+        } else {
+            result.put(KEY_SOURCE, SOURCE_NAME_WIFI);
+            if (connected) {
+                result.put(KEY_RSSI, signal)
+                    .put(KEY_LINK_SPEED_MBPS, buffer.getInt(offset + OFFSET_LINK_SPEED));
+                if (level != WifiSnapshot.LEVEL_UNAVAILABLE) {
+                    result.put(KEY_LEVEL, level);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static int getOffset(int slot) {
+        // capacity is bounded by MAX_BYTES, so the offset always fits a buffer index
+        return (int) (HEADER_SIZE + (long) slot * RECORD_SIZE);
+    }
+}
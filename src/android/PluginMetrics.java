@@ -0,0 +1,163 @@
+package com.hrs.signalstrength;
+
+import android.os.SystemClock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters and latency histograms describing what the plugin has been doing,
+ * so that stale readings reported from the field can be diagnosed.
+ * Recording only touches preallocated histograms and map entries created on first use.
+ * Only accessed from the plugin worker thread.
+ */
+class PluginMetrics {
+    private static final String KEY_SINCE_RESET_MS = "sinceResetMs";
+    private static final String KEY_ACTIONS = "actions";
+    private static final String KEY_QUEUE_WAIT = "queueWait";
+    private static final String KEY_RUN = "run";
+    private static final String KEY_CELL_INFO_QUERIES = "cellInfoQueries";
+    private static final String KEY_CALLBACKS = "callbacks";
+    private static final String KEY_EVENTS = "events";
+    private static final String KEY_EMITTED = "emitted";
+    private static final String KEY_SUPPRESSED = "suppressed";
+    private static final String KEY_DROPPED = "dropped";
+    private static final String KEY_WIFI_STATE_ERRORS = "wifiStateErrors";
+    private static final String KEY_STALE_CALLBACKS = "staleCallbacks";
+
+    private static class ActionTimings {
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram run = new LatencyHistogram();
+    }
+
+    private static class EventCounts {
+        // dispatched to at least one subscriber
+        long emitted = 0;
+        // filtered out as unchanged by hysteresis
+        long suppressed = 0;
+        // changed, but nobody was subscribed to the type
+        long dropped = 0;
+    }
+
+    private static class Counter {
+        long value = 0;
+    }
+
+    private final LinkedHashMap<String, ActionTimings> actions = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Counter> callbacks = new LinkedHashMap<>();
+    private final LinkedHashMap<String, EventCounts> events = new LinkedHashMap<>();
+    private LatencyHistogram cellInfoQueries = new LatencyHistogram();
+    private long wifiStateErrorCount = 0;
+    private long staleCallbackCount = 0;
+    private long resetUptimeMs = SystemClock.uptimeMillis();
+
+    /**
+     * @param queueWaitNanos time between the action arriving from js and starting on the worker thread
+     * @param runNanos time spent running the action on the worker thread
+     */
+    void recordAction(String action, long queueWaitNanos, long runNanos) {
+        ActionTimings timings = actions.get(action);
+        if (timings == null) {
+            timings = new ActionTimings();
+            actions.put(action, timings);
+        }
+        timings.queueWait.record(queueWaitNanos);
+        timings.run.record(runNanos);
+    }
+
+    /**
+     * @param durationNanos time until a cell info query answered; a blocking call below API 29
+     */
+    void recordCellInfoQuery(long durationNanos) {
+        cellInfoQueries.record(durationNanos);
+    }
+
+    /**
+     * @param name listener and callback method, e.g. "networkCallback.onLost"
+     */
+    void countCallback(String name) {
+        Counter counter = callbacks.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            callbacks.put(name, counter);
+        }
+        counter.value++;
+    }
+
+    void countEventEmitted(String type) {
+        getEventCounts(type).emitted++;
+    }
+
+    void countEventSuppressed(String type) {
+        getEventCounts(type).suppressed++;
+    }
+
+    void countEventDropped(String type) {
+        getEventCounts(type).dropped++;
+    }
+
+    void countWifiStateError() {
+        wifiStateErrorCount++;
+    }
+
+    /**
+     * Counts listener callbacks that were still queued when their listener was unregistered.
+     */
+    void countStaleCallback() {
+        staleCallbackCount++;
+    }
+
+    void reset() {
+        actions.clear();
+        callbacks.clear();
+        events.clear();
+        cellInfoQueries = new LatencyHistogram();
+        wifiStateErrorCount = 0;
+        staleCallbackCount = 0;
+        resetUptimeMs = SystemClock.uptimeMillis();
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONObject actionsJson = new JSONObject();
+        for (Map.Entry<String, ActionTimings> entry : actions.entrySet()) {
+            actionsJson.put(entry.getKey(), new JSONObject()
+                .put(KEY_QUEUE_WAIT, entry.getValue().queueWait.toJson())
+                .put(KEY_RUN, entry.getValue().run.toJson()));
+        }
+
+        JSONObject callbacksJson = new JSONObject();
+        for (Map.Entry<String, Counter> entry : callbacks.entrySet()) {
+            callbacksJson.put(entry.getKey(), entry.getValue().value);
+        }
+
+        JSONObject eventsJson = new JSONObject();
+        for (Map.Entry<String, EventCounts> entry : events.entrySet()) {
+            EventCounts counts = entry.getValue();
+            eventsJson.put(entry.getKey(), new JSONObject()
+                .put(KEY_EMITTED, counts.emitted)
+                .put(KEY_SUPPRESSED, counts.suppressed)
+                .put(KEY_DROPPED, counts.dropped));
+        }
+
+        return new JSONObject()
+            .put(KEY_SINCE_RESET_MS, SystemClock.uptimeMillis() - resetUptimeMs)
+            .put(KEY_ACTIONS, actionsJson)
+            .put(KEY_CELL_INFO_QUERIES, cellInfoQueries.toJson())
+            .put(KEY_CALLBACKS, callbacksJson)
+            .put(KEY_EVENTS, eventsJson)
+            .put(KEY_WIFI_STATE_ERRORS, wifiStateErrorCount)
+            .put(KEY_STALE_CALLBACKS, staleCallbackCount);
+    }
+
+    private EventCounts getEventCounts(String type) {
+        EventCounts counts = events.get(type);
+        if (counts == null) {
+            counts = new EventCounts();
+            events.put(type, counts);
+        }
+        return counts;
+    }
+}
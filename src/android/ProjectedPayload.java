@@ -0,0 +1,35 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+
+/**
+ * A json payload built lazily for each FieldMask it is requested with, so that
+ * waiters and subscribers sharing a mask share a single payload instance.
+ * Payloads read the current state when first requested, so this should not
+ * outlive the callback that created it.
+ * Only accessed from the plugin worker thread.
+ */
+class ProjectedPayload {
+    interface Builder {
+        JSONObject build(int fieldMask) throws JSONException;
+    }
+
+    private final Builder builder;
+    private final HashMap<Integer, JSONObject> payloads = new HashMap<>();
+
+    ProjectedPayload(Builder builder) {
+        this.builder = builder;
+    }
+
+    JSONObject get(int fieldMask) throws JSONException {
+        JSONObject result = payloads.get(fieldMask);
+        if (result == null) {
+            result = builder.build(fieldMask);
+            payloads.put(fieldMask, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Rolling-window aggregates (count, min, max, mean, variance and approximate
+ * percentiles) of a single signal source, e.g. primary cell dBm or wifi RSSI.
+ * Each window is split into a fixed number of time buckets, and each bucket
+ * keeps a small histogram of values, so memory is fixed and each sample
+ * is added in constant time. Buckets older than the window are recycled.
+ * Only accessed from the plugin worker thread.
+ */
+class RollingSignalStats {
+    static final long[] DEFAULT_WINDOWS_MS = {10000, 60000, 300000};
+
+    private static final int BUCKET_COUNT = 10;
+    private static final int MIN_VALUE = -150;
+    private static final int MAX_VALUE = -20;
+    // the dBm of a cell snapshot without signal data
+    private static final int NO_SIGNAL = -1;
+    // same value as WifiInfo.INVALID_RSSI
+    private static final int INVALID_RSSI = -127;
+    private static final int BIN_WIDTH = 2;
+    private static final int BIN_COUNT = (MAX_VALUE - MIN_VALUE) / BIN_WIDTH + 1;
+
+    private static final String KEY_WINDOW_MS = "windowMs";
+    private static final String KEY_COUNT = "count";
+    private static final String KEY_MIN = "min";
+    private static final String KEY_MAX = "max";
+    private static final String KEY_MEAN = "mean";
+    private static final String KEY_VARIANCE = "variance";
+    private static final String KEY_P50 = "p50";
+    private static final String KEY_P95 = "p95";
+
+    private static class Window {
+        final long windowMs;
+        final long bucketMs;
+        final long[] epochs = new long[BUCKET_COUNT];
+        final int[] counts = new int[BUCKET_COUNT];
+        final double[] sums = new double[BUCKET_COUNT];
+        final double[] sumSquares = new double[BUCKET_COUNT];
+        final int[] mins = new int[BUCKET_COUNT];
+        final int[] maxs = new int[BUCKET_COUNT];
+        final int[] bins = new int[BUCKET_COUNT * BIN_COUNT];
+        // scratch histogram for merging buckets on read
+        final int[] merged = new int[BIN_COUNT];
+
+        Window(long windowMs) {
+            this.windowMs = windowMs;
+            this.bucketMs = Math.max(1, windowMs / BUCKET_COUNT);
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                epochs[i] = -1;
+            }
+        }
+
+        void add(long timeMs, int value) {
+            long epoch = timeMs / bucketMs;
+            int slot = (int) (epoch % BUCKET_COUNT);
+
+            if (epochs[slot] != epoch) {
+                // recycle the bucket left over from a previous lap around the window
+                epochs[slot] = epoch;
+                counts[slot] = 0;
+                sums[slot] = 0;
+                sumSquares[slot] = 0;
+                mins[slot] = Integer.MAX_VALUE;
+                maxs[slot] = Integer.MIN_VALUE;
+                int offset = slot * BIN_COUNT;
+                for (int i = 0; i < BIN_COUNT; i++) {
+                    bins[offset + i] = 0;
+                }
+            }
+
+            counts[slot]++;
+            sums[slot] += value;
+            sumSquares[slot] += (double) value * value;
+            mins[slot] = Math.min(mins[slot], value);
+            maxs[slot] = Math.max(maxs[slot], value);
+            bins[slot * BIN_COUNT + getBin(value)]++;
+        }
+
+        JSONObject toJson(long timeMs) throws JSONException {
+            long currentEpoch = timeMs / bucketMs;
+            int count = 0;
+            double sum = 0;
+            double sumSquare = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+
+            for (int i = 0; i < BIN_COUNT; i++) {
+                merged[i] = 0;
+            }
+
+            for (int slot = 0; slot < BUCKET_COUNT; slot++) {
+                long age = currentEpoch - epochs[slot];
+                if (epochs[slot] < 0 || age < 0 || age >= BUCKET_COUNT || counts[slot] == 0) {
+                    continue;
+                }
+                count += counts[slot];
+                sum += sums[slot];
+                sumSquare += sumSquares[slot];
+                min = Math.min(min, mins[slot]);
+                max = Math.max(max, maxs[slot]);
+                int offset = slot * BIN_COUNT;
+                for (int i = 0; i < BIN_COUNT; i++) {
+                    merged[i] += bins[offset + i];
+                }
+            }
+
+            JSONObject result = new JSONObject()
+                .put(KEY_WINDOW_MS, windowMs)
+                .put(KEY_COUNT, count);
+
+            if (count > 0) {
+                double mean = sum / count;
+                result.put(KEY_MIN, min)
+                    .put(KEY_MAX, max)
+                    .put(KEY_MEAN, mean)
+                    .put(KEY_VARIANCE, Math.max(0, sumSquare / count - mean * mean))
+                    .put(KEY_P50, getPercentile(count, 0.5, min, max))
+                    .put(KEY_P95, getPercentile(count, 0.95, min, max));
+            }
+
+            return result;
+        }
+
+        private int getPercentile(int count, double percentile, int min, int max) {
+            int target = (int) Math.ceil(count * percentile);
+            int seen = 0;
+            for (int i = 0; i < BIN_COUNT; i++) {
+                seen += merged[i];
+                if (seen >= target) {
+                    // report the middle of the bin, bounded by the observed range
+                    int value = MIN_VALUE + i * BIN_WIDTH + BIN_WIDTH / 2;
+                    return Math.min(max, Math.max(min, value));
+                }
+            }
+            return max;
+        }
+    }
+
+    private Window[] windows;
+
+    RollingSignalStats(long[] windowsMs) {
+        setWindows(windowsMs);
+    }
+
+    /**
+     * Replaces the tracked windows; any previously aggregated samples are discarded.
+     */
+    void setWindows(long[] windowsMs) {
+        windows = new Window[windowsMs.length];
+        for (int i = 0; i < windowsMs.length; i++) {
+            windows[i] = new Window(windowsMs[i]);
+        }
+    }
+
+    /**
+     * @param timeMs monotonic sample time (e.g. SystemClock.elapsedRealtime())
+     */
+    void add(long timeMs, int value) {
+        for (Window window : windows) {
+            window.add(timeMs, value);
+        }
+    }
+
+    JSONArray toJson(long timeMs) throws JSONException {
+        JSONArray result = new JSONArray();
+        for (Window window : windows) {
+            result.put(window.toJson(timeMs));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the value is within the range of a real dBm / RSSI reading
+     */
+    static boolean isValidSample(int value) {
+        return value >= MIN_VALUE && value < NO_SIGNAL && value != INVALID_RSSI;
+    }
+
+    private static int getBin(int value) {
+        int clamped = Math.min(MAX_VALUE, Math.max(MIN_VALUE, value));
+        return (clamped - MIN_VALUE) / BIN_WIDTH;
+    }
+}
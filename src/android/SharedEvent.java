@@ -0,0 +1,117 @@
+package com.hrs.signalstrength;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+
+/**
+ * A single state change, as fanned out to every matching subscription.
+ * Payloads are built once per event in each requested format and field mask, and plugin
+ * results are cached so that the same serialized message is sent to every subscriber.
+ * Only accessed from the plugin worker thread.
+ */
+class SharedEvent {
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_DATA = "data";
+    private static final String KEY_STATS = "stats";
+
+    final String type;
+    // Primary cell reading, used for per-subscription dBm thresholds
+    final boolean hasCellDbm;
+    final String cellType;
+    final int cellDbm;
+    // json payloads keyed by FieldMask; built when the event is emitted, as delivery may be delayed
+    private final HashMap<Integer, JSONObject> data = new HashMap<>();
+    private final byte[] frame;
+    private final JSONArray stats;
+    private final HashMap<Integer, PluginResult> jsonResults = new HashMap<>();
+    private final HashMap<Integer, PluginResult> jsonResultsWithStats = new HashMap<>();
+    private PluginResult binaryResult = null;
+
+    /**
+     * @param data unprojected json payload, or null if no subscriber wants json or
+     * projected payloads are added with putData()
+     * @param frame binary payload, or null if no subscriber wants binary
+     * @param stats rolling stats of the event source, or null if no subscriber attaches them
+     * @param cellType primary cell type for cell events, otherwise null
+     */
+    SharedEvent(
+        String type,
+        JSONObject data,
+        byte[] frame,
+        JSONArray stats,
+        String cellType,
+        int cellDbm
+    ) {
+        this.type = type;
+        if (data != null) {
+            this.data.put(FieldMask.ALL, data);
+        }
+        this.frame = frame;
+        this.stats = stats;
+        this.hasCellDbm = cellType != null;
+        this.cellType = cellType;
+        this.cellDbm = cellDbm;
+    }
+
+    /**
+     * @param data json payload projected to the given FieldMask
+     */
+    void putData(int fieldMask, JSONObject data) {
+        this.data.put(fieldMask, data);
+    }
+
+    boolean hasFrame() {
+        return frame != null;
+    }
+
+    /**
+     * @param fieldMask FieldMask of the subscriber; events without a matching projection send their full payload
+     * @return the {type, data[, stats]} envelope sent to json subscribers
+     */
+    JSONObject getEnvelope(int fieldMask, boolean withStats) throws JSONException {
+        JSONObject result = new JSONObject()
+            .put(KEY_TYPE, type)
+            .put(KEY_DATA, getData(fieldMask));
+        if (withStats) {
+            result.putOpt(KEY_STATS, stats);
+        }
+        return result;
+    }
+
+    PluginResult getJsonResult(int fieldMask, boolean withStats) throws JSONException {
+        boolean attachStats = withStats && stats != null;
+        HashMap<Integer, PluginResult> results = attachStats ? jsonResultsWithStats : jsonResults;
+        PluginResult result = results.get(fieldMask);
+        if (result == null) {
+            result = createResult(getEnvelope(fieldMask, attachStats));
+            results.put(fieldMask, result);
+        }
+        return result;
+    }
+
+    PluginResult getBinaryResult() {
+        if (binaryResult == null) {
+            binaryResult = new PluginResult(PluginResult.Status.OK, frame);
+            binaryResult.setKeepCallback(true);
+        }
+        return binaryResult;
+    }
+
+    private JSONObject getData(int fieldMask) {
+        JSONObject result = data.get(fieldMask);
+        if (result == null) {
+            result = data.get(FieldMask.ALL);
+        }
+        return result != null ? result : new JSONObject();
+    }
+
+    private static PluginResult createResult(JSONObject payload) {
+        PluginResult result = new PluginResult(PluginResult.Status.OK, payload);
+        result.setKeepCallback(true);
+        return result;
+    }
+}
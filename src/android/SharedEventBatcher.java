@@ -0,0 +1,116 @@
+package com.hrs.signalstrength;
+
+import android.os.Handler;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import timber.log.Timber;
+
+/**
+ * Optionally buffers shared js events, so that they cross the webview bridge
+ * as a single array payload once the batch is full or its delay elapses,
+ * instead of one plugin result per event.
+ * Only accessed from the plugin worker thread.
+ */
+class SharedEventBatcher {
+    static final long DEFAULT_MAX_DELAY_MS = 1000;
+
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_MAX_SIZE = "maxSize";
+    private static final String KEY_MAX_DELAY_MS = "maxDelayMs";
+    private static final String KEY_BATCHES = "batches";
+    private static final String KEY_BATCHED_EVENTS = "batchedEvents";
+    private static final String KEY_LARGEST_BATCH = "largestBatch";
+    private static final String KEY_PENDING = "pending";
+
+    interface BatchSink {
+        /**
+         * @return false if the batch could not be delivered (e.g. no js callback is set)
+         */
+        boolean deliver(JSONArray events) throws JSONException;
+    }
+
+    private final Handler handler;
+    private final BatchSink sink;
+    private final Runnable flushRunnable = this::flush;
+    private JSONArray pendingEvents = new JSONArray();
+    private int maxSize = 0;
+    private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private long batchCount = 0;
+    private long batchedEventCount = 0;
+    private int largestBatch = 0;
+
+    SharedEventBatcher(Handler handler, BatchSink sink) {
+        this.handler = handler;
+        this.sink = sink;
+    }
+
+    /**
+     * @param maxSize number of events that triggers a flush; 1 or less disables batching
+     * @param maxDelayMs longest time the first event of a batch may wait before a flush
+     */
+    void setBatchOptions(int maxSize, long maxDelayMs) {
+        this.maxSize = maxSize;
+        this.maxDelayMs = Math.max(0, maxDelayMs);
+        if (!isEnabled()) {
+            // deliver anything already buffered rather than stranding it
+            flush();
+        }
+    }
+
+    boolean isEnabled() {
+        return maxSize > 1;
+    }
+
+    void add(JSONObject event) {
+        pendingEvents.put(event);
+
+        if (pendingEvents.length() >= maxSize) {
+            flush();
+        } else if (pendingEvents.length() == 1) {
+            handler.postDelayed(flushRunnable, maxDelayMs);
+        }
+    }
+
+    void flush() {
+        handler.removeCallbacks(flushRunnable);
+
+        if (pendingEvents.length() == 0) {
+            return;
+        }
+
+        JSONArray events = pendingEvents;
+        pendingEvents = new JSONArray();
+
+        try {
+            if (sink.deliver(events)) {
+                batchCount++;
+                batchedEventCount += events.length();
+                largestBatch = Math.max(largestBatch, events.length());
+            }
+        } catch (JSONException e) {
+            Timber.e(e, "failed to deliver batch of %s shared events", events.length());
+        }
+    }
+
+    /**
+     * Discards any buffered events, e.g. when the subscription is removed.
+     */
+    void clear() {
+        handler.removeCallbacks(flushRunnable);
+        pendingEvents = new JSONArray();
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_ENABLED, isEnabled())
+            .put(KEY_MAX_SIZE, maxSize)
+            .put(KEY_MAX_DELAY_MS, maxDelayMs)
+            .put(KEY_BATCHES, batchCount)
+            .put(KEY_BATCHED_EVENTS, batchedEventCount)
+            .put(KEY_LARGEST_BATCH, largestBatch)
+            .put(KEY_PENDING, pendingEvents.length());
+    }
+}
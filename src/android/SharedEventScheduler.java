@@ -0,0 +1,144 @@
+package com.hrs.signalstrength;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Sits between the native listeners and a subscription's js callback.
+ * Only the latest pending event of each type is kept, and pending events
+ * are flushed to the webview at most once per configured interval.
+ * Only accessed from the plugin worker thread.
+ */
+class SharedEventScheduler {
+    private static final String KEY_SUBMITTED = "submitted";
+    private static final String KEY_DELIVERED = "delivered";
+    private static final String KEY_MERGED = "merged";
+    private static final String KEY_DROPPED = "dropped";
+    private static final String KEY_SUPPRESSED = "suppressed";
+    private static final String KEY_PENDING = "pending";
+    private static final String KEY_MIN_INTERVAL_MS = "minIntervalMs";
+
+    static final int OUTCOME_DELIVERED = 0;
+    // the event could not be delivered (e.g. no js callback is set)
+    static final int OUTCOME_DROPPED = 1;
+    // the sink deliberately filtered the event out; it does not count against the rate limit
+    static final int OUTCOME_SUPPRESSED = 2;
+
+    interface EventSink {
+        /**
+         * @return one of the OUTCOME_ constants
+         */
+        int deliver(String type, Object data) throws JSONException;
+    }
+
+    private final Handler handler;
+    private final EventSink sink;
+    private final LinkedHashMap<String, Object> pendingEvents = new LinkedHashMap<>();
+    private final Runnable flushRunnable = this::flush;
+    private long minIntervalMs = 0;
+    private long lastFlushUptimeMs = 0;
+    private boolean flushScheduled = false;
+    private long submittedCount = 0;
+    private long deliveredCount = 0;
+    private long mergedCount = 0;
+    private long droppedCount = 0;
+    private long suppressedCount = 0;
+
+    SharedEventScheduler(Handler handler, EventSink sink) {
+        this.handler = handler;
+        this.sink = sink;
+    }
+
+    void setMinIntervalMs(long intervalMs) {
+        minIntervalMs = Math.max(0, intervalMs);
+    }
+
+    /**
+     * @param data the event payload; a json object, or a binary frame
+     */
+    void submit(String type, Object data) {
+        submittedCount++;
+
+        // a newer event of the same type replaces the pending one
+        if (pendingEvents.put(type, data) != null) {
+            mergedCount++;
+        }
+
+        if (flushScheduled) {
+            return;
+        }
+
+        long nextFlushUptimeMs = lastFlushUptimeMs + minIntervalMs;
+
+        if (minIntervalMs > 0 && SystemClock.uptimeMillis() < nextFlushUptimeMs) {
+            flushScheduled = true;
+            handler.postAtTime(flushRunnable, nextFlushUptimeMs);
+            return;
+        }
+
+        flush();
+    }
+
+    void flush() {
+        flushScheduled = false;
+
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+
+        boolean anyDelivered = false;
+
+        for (Map.Entry<String, Object> event : pendingEvents.entrySet()) {
+            int outcome = OUTCOME_DROPPED;
+            try {
+                outcome = sink.deliver(event.getKey(), event.getValue());
+            } catch (JSONException e) {
+                Timber.e(e, "failed to deliver shared event %s", event.getKey());
+            }
+            if (outcome == OUTCOME_DELIVERED) {
+                deliveredCount++;
+                anyDelivered = true;
+            } else if (outcome == OUTCOME_SUPPRESSED) {
+                suppressedCount++;
+            } else {
+                droppedCount++;
+            }
+        }
+
+        // only events that reached the webview open a new rate limit window
+        if (anyDelivered) {
+            lastFlushUptimeMs = SystemClock.uptimeMillis();
+        }
+
+        pendingEvents.clear();
+    }
+
+    /**
+     * Discards any pending events, e.g. when the subscription is removed.
+     */
+    void clear() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        droppedCount += pendingEvents.size();
+        pendingEvents.clear();
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_SUBMITTED, submittedCount)
+            .put(KEY_DELIVERED, deliveredCount)
+            .put(KEY_MERGED, mergedCount)
+            .put(KEY_DROPPED, droppedCount)
+            .put(KEY_SUPPRESSED, suppressedCount)
+            .put(KEY_PENDING, pendingEvents.size())
+            .put(KEY_MIN_INTERVAL_MS, minIntervalMs);
+    }
+}
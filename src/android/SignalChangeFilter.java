@@ -0,0 +1,170 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Remembers a compact snapshot of the last emitted primary cell and wifi state,
+ * and decides whether a new reading differs enough to be worth emitting.
+ * A reading is considered changed when its level changes, when its dBm / RSSI
+ * moves beyond the configured hysteresis band, or when the serving cell / BSSID changes.
+ * A reading that passes is only remembered once commitCell() / commitWifi() confirm
+ * that its event was dispatched, so a reading nobody received is not held against the next one.
+ * Only accessed from the plugin worker thread.
+ */
+class SignalChangeFilter {
+    private static final String KEY_DBM_HYSTERESIS = "dbmHysteresis";
+    private static final String KEY_RSSI_HYSTERESIS = "rssiHysteresis";
+    private static final String KEY_CELL_SUPPRESSED = "cellSuppressed";
+    private static final String KEY_WIFI_SUPPRESSED = "wifiSuppressed";
+
+    private int dbmHysteresis = 0;
+    private int rssiHysteresis = 0;
+
+    private boolean hasCellState = false;
+    private boolean lastCellFound = false;
+    private String lastCellType = null;
+    private int lastCellDbm = 0;
+    private int lastCellLevel = 0;
+    private int lastCellConnectionStatus = 0;
+    private boolean hasPendingCell = false;
+    private boolean pendingCellFound = false;
+    private String pendingCellType = null;
+    private int pendingCellDbm = 0;
+    private int pendingCellLevel = 0;
+    private int pendingCellConnectionStatus = 0;
+
+    private boolean hasWifiState = false;
+    private boolean lastWifiEnabled = false;
+    private boolean lastWifiConnected = false;
+    private final WifiSnapshot lastWifi = new WifiSnapshot();
+    private boolean hasPendingWifi = false;
+    private boolean pendingWifiEnabled = false;
+    private boolean pendingWifiConnected = false;
+    private final WifiSnapshot pendingWifi = new WifiSnapshot();
+
+    private long cellSuppressedCount = 0;
+    private long wifiSuppressedCount = 0;
+
+    void setHysteresis(int dbmHysteresis, int rssiHysteresis) {
+        this.dbmHysteresis = Math.max(0, dbmHysteresis);
+        this.rssiHysteresis = Math.max(0, rssiHysteresis);
+    }
+
+    int getDbmHysteresis() {
+        return dbmHysteresis;
+    }
+
+    int getRssiHysteresis() {
+        return rssiHysteresis;
+    }
+
+    /**
+     * Forget the last emitted state so the next reading of each type is always emitted.
+     */
+    void reset() {
+        hasCellState = false;
+        hasWifiState = false;
+        hasPendingCell = false;
+        hasPendingWifi = false;
+    }
+
+    boolean shouldEmitCell(boolean found, String cellType, int dbm, int level, int connectionStatus) {
+        boolean changed = !hasCellState
+            || found != lastCellFound
+            || level != lastCellLevel
+            || connectionStatus != lastCellConnectionStatus
+            || !equals(cellType, lastCellType)
+            || Math.abs(dbm - lastCellDbm) > dbmHysteresis;
+
+        hasPendingCell = changed;
+        if (!changed) {
+            cellSuppressedCount++;
+            return false;
+        }
+
+        pendingCellFound = found;
+        pendingCellType = cellType;
+        pendingCellDbm = dbm;
+        pendingCellLevel = level;
+        pendingCellConnectionStatus = connectionStatus;
+        return true;
+    }
+
+    /**
+     * Remembers the reading last passed by shouldEmitCell() as emitted.
+     */
+    void commitCell() {
+        if (!hasPendingCell) {
+            return;
+        }
+        hasPendingCell = false;
+        hasCellState = true;
+        lastCellFound = pendingCellFound;
+        lastCellType = pendingCellType;
+        lastCellDbm = pendingCellDbm;
+        lastCellLevel = pendingCellLevel;
+        lastCellConnectionStatus = pendingCellConnectionStatus;
+    }
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     */
+    boolean shouldEmitWifi(boolean enabled, WifiSnapshot info) {
+        boolean connected = info != null;
+        boolean changed = !hasWifiState
+            || enabled != lastWifiEnabled
+            || connected != lastWifiConnected
+            || (connected && isWifiInfoChanged(info));
+
+        hasPendingWifi = changed;
+        if (!changed) {
+            wifiSuppressedCount++;
+            return false;
+        }
+
+        pendingWifiEnabled = enabled;
+        pendingWifiConnected = connected;
+        if (connected) {
+            pendingWifi.copyFrom(info);
+        }
+        return true;
+    }
+
+    /**
+     * Remembers the reading last passed by shouldEmitWifi() as emitted.
+     */
+    void commitWifi() {
+        if (!hasPendingWifi) {
+            return;
+        }
+        hasPendingWifi = false;
+        hasWifiState = true;
+        lastWifiEnabled = pendingWifiEnabled;
+        lastWifiConnected = pendingWifiConnected;
+        if (pendingWifiConnected) {
+            lastWifi.copyFrom(pendingWifi);
+        }
+    }
+
+    private boolean isWifiInfoChanged(WifiSnapshot info) {
+        return !equals(info.bssid, lastWifi.bssid)
+            || info.level != lastWifi.level
+            || Math.abs(info.rssi - lastWifi.rssi) > rssiHysteresis
+            || info.linkSpeedMbps != lastWifi.linkSpeedMbps
+            || info.txLinkSpeedMbps != lastWifi.txLinkSpeedMbps
+            || info.rxLinkSpeedMbps != lastWifi.rxLinkSpeedMbps;
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_DBM_HYSTERESIS, dbmHysteresis)
+            .put(KEY_RSSI_HYSTERESIS, rssiHysteresis)
+            .put(KEY_CELL_SUPPRESSED, cellSuppressedCount)
+            .put(KEY_WIFI_SUPPRESSED, wifiSuppressedCount);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,397 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Watches the primary cell and wifi readings for signs of an imminent drop, so that
+ * the webview can listen to rare degrading / recovered transitions instead of every reading.
+ * Each source tracks an exponentially weighted slope of its signal strength (and of the
+ * link speed for wifi), weighted by the time between readings since these arrive irregularly,
+ * as well as how often its serving cell type / BSSID changed within a recent window.
+ * A source is degrading while any reason applies; reasons clear with some hysteresis,
+ * so that a reading hovering around a threshold does not toggle the state.
+ * Only accessed from the plugin worker thread.
+ */
+class SignalDegradationDetector {
+    static final int SOURCE_CELL = 0;
+    static final int SOURCE_WIFI = 1;
+
+    static final int REASON_WEAK = 1;
+    static final int REASON_FALLING = 1 << 1;
+    static final int REASON_FLAPPING = 1 << 2;
+    static final int REASON_LINK_SPEED_FALLING = 1 << 3;
+
+    static final double DEFAULT_SLOPE_DB_PER_SEC = 0.5;
+    static final long DEFAULT_SLOPE_TIME_CONSTANT_MS = 5000;
+    static final int DEFAULT_CELL_DBM = -110;
+    static final int DEFAULT_WIFI_RSSI = -75;
+    static final int DEFAULT_MARGIN_DB = 15;
+    static final int DEFAULT_FLAP_COUNT = 3;
+    static final long DEFAULT_FLAP_WINDOW_MS = 60000;
+    static final double DEFAULT_LINK_SPEED_FALL_PERCENT_PER_SEC = 10;
+    // a weak reading must rise this far above the threshold to clear
+    private static final int WEAK_RECOVERY_DB = 3;
+    // link speeds below this are too coarse for a relative slope to mean anything
+    private static final int MIN_LINK_SPEED_MBPS = 6;
+    private static final int MAX_FLAP_COUNT = 32;
+
+    private static final String KEY_SLOPE_DB_PER_SEC = "slopeDbPerSec";
+    private static final String KEY_SLOPE_TIME_CONSTANT_MS = "slopeTimeConstantMs";
+    private static final String KEY_CELL_DBM = "cellDbm";
+    private static final String KEY_WIFI_RSSI = "wifiRssi";
+    private static final String KEY_MARGIN_DB = "marginDb";
+    private static final String KEY_FLAP_COUNT = "flapCount";
+    private static final String KEY_FLAP_WINDOW_MS = "flapWindowMs";
+    private static final String KEY_LINK_SPEED_FALL_PERCENT_PER_SEC = "linkSpeedFallPercentPerSec";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_DEGRADED = "degraded";
+    private static final String KEY_REASONS = "reasons";
+    private static final String KEY_DEGRADED_FOR_MS = "degradedForMs";
+    private static final String KEY_CELL_TYPE = "cellType";
+    private static final String KEY_BSSID = "bssid";
+    private static final String KEY_DBM = "dbm";
+    private static final String KEY_RSSI = "rssi";
+    private static final String KEY_SLOPE = "slopeDbPerSec";
+    private static final String KEY_LINK_SPEED_MBPS = "linkSpeedMbps";
+    private static final String KEY_LINK_SPEED_SLOPE = "linkSpeedSlopeMbpsPerSec";
+    private static final String KEY_SERVING_CHANGES = "servingChanges";
+    private static final String KEY_DEGRADING_COUNT = "degradingCount";
+    private static final String KEY_RECOVERED_COUNT = "recoveredCount";
+    private static final String KEY_CELL = "cell";
+    private static final String KEY_WIFI = "wifi";
+    private static final String SOURCE_NAME_CELL = "cell";
+    private static final String SOURCE_NAME_WIFI = "wifi";
+    private static final String REASON_NAME_WEAK = "weak";
+    private static final String REASON_NAME_FALLING = "falling";
+    private static final String REASON_NAME_FLAPPING = "flapping";
+    private static final String REASON_NAME_LINK_SPEED_FALLING = "linkSpeedFalling";
+
+    /**
+     * Time weighted exponential moving average of the rate of change between readings.
+     */
+    private static class Trend {
+        boolean hasSample = false;
+        long lastTimeMs = 0;
+        double lastValue = 0;
+        double slopePerSec = 0;
+        double mean = 0;
+
+        void add(long now, double value, long timeConstantMs) {
+            if (!hasSample) {
+                hasSample = true;
+                lastTimeMs = now;
+                lastValue = value;
+                slopePerSec = 0;
+                mean = value;
+                return;
+            }
+
+            long elapsedMs = now - lastTimeMs;
+
+            if (elapsedMs <= 0) {
+                // several readings within the same millisecond count as one
+                lastValue = value;
+                return;
+            }
+
+            double weight = 1 - Math.exp(-(double) elapsedMs / timeConstantMs);
+            slopePerSec += weight * ((value - lastValue) * 1000 / elapsedMs - slopePerSec);
+            mean += weight * (value - mean);
+            lastTimeMs = now;
+            lastValue = value;
+        }
+
+        void reset() {
+            hasSample = false;
+            slopePerSec = 0;
+        }
+    }
+
+    private static class SourceState {
+        final int source;
+        final Trend signal = new Trend();
+        final Trend linkSpeed = new Trend();
+        // ring of the times the serving cell type / BSSID changed
+        final long[] servingChangeTimes = new long[MAX_FLAP_COUNT];
+        int servingChangeHead = 0;
+        int servingChangeCount = 0;
+        boolean hasServing = false;
+        boolean servingConnected = false;
+        String serving = null;
+        int signalValue = 0;
+        int linkSpeedMbps = 0;
+        int reasons = 0;
+        boolean reportedDegraded = false;
+        long degradedSinceMs = 0;
+        long degradingCount = 0;
+        long recoveredCount = 0;
+
+        SourceState(int source) {
+            this.source = source;
+        }
+
+        void addServingChange(long now) {
+            servingChangeTimes[servingChangeHead] = now;
+            servingChangeHead = (servingChangeHead + 1) % MAX_FLAP_COUNT;
+            servingChangeCount = Math.min(servingChangeCount + 1, MAX_FLAP_COUNT);
+        }
+
+        int countServingChanges(long now, long windowMs) {
+            int count = 0;
+            for (int n = 1; n <= servingChangeCount; n++) {
+                long time = servingChangeTimes[(servingChangeHead - n + MAX_FLAP_COUNT) % MAX_FLAP_COUNT];
+                if (now - time > windowMs) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        void reset() {
+            signal.reset();
+            linkSpeed.reset();
+            servingChangeCount = 0;
+            hasServing = false;
+            servingConnected = false;
+            serving = null;
+            reasons = 0;
+            reportedDegraded = false;
+        }
+    }
+
+    private final SourceState cell = new SourceState(SOURCE_CELL);
+    private final SourceState wifi = new SourceState(SOURCE_WIFI);
+    private double slopeDbPerSec = DEFAULT_SLOPE_DB_PER_SEC;
+    private long slopeTimeConstantMs = DEFAULT_SLOPE_TIME_CONSTANT_MS;
+    private int cellDbm = DEFAULT_CELL_DBM;
+    private int wifiRssi = DEFAULT_WIFI_RSSI;
+    private int marginDb = DEFAULT_MARGIN_DB;
+    private int flapCount = DEFAULT_FLAP_COUNT;
+    private long flapWindowMs = DEFAULT_FLAP_WINDOW_MS;
+    private double linkSpeedFallPercentPerSec = DEFAULT_LINK_SPEED_FALL_PERCENT_PER_SEC;
+
+    void applyOptions(JSONObject options) {
+        if (options == null) {
+            return;
+        }
+        if (options.has(KEY_SLOPE_DB_PER_SEC)) {
+            slopeDbPerSec = Math.max(0.01, options.optDouble(KEY_SLOPE_DB_PER_SEC, DEFAULT_SLOPE_DB_PER_SEC));
+        }
+        if (options.has(KEY_SLOPE_TIME_CONSTANT_MS)) {
+            slopeTimeConstantMs = Math.max(1,
+                options.optLong(KEY_SLOPE_TIME_CONSTANT_MS, DEFAULT_SLOPE_TIME_CONSTANT_MS));
+        }
+        if (options.has(KEY_CELL_DBM)) {
+            cellDbm = options.optInt(KEY_CELL_DBM, DEFAULT_CELL_DBM);
+        }
+        if (options.has(KEY_WIFI_RSSI)) {
+            wifiRssi = options.optInt(KEY_WIFI_RSSI, DEFAULT_WIFI_RSSI);
+        }
+        if (options.has(KEY_MARGIN_DB)) {
+            marginDb = Math.max(0, options.optInt(KEY_MARGIN_DB, DEFAULT_MARGIN_DB));
+        }
+        if (options.has(KEY_FLAP_COUNT)) {
+            // 0 turns flapping detection off
+            flapCount = Math.min(MAX_FLAP_COUNT, Math.max(0, options.optInt(KEY_FLAP_COUNT, DEFAULT_FLAP_COUNT)));
+        }
+        if (options.has(KEY_FLAP_WINDOW_MS)) {
+            flapWindowMs = Math.max(1, options.optLong(KEY_FLAP_WINDOW_MS, DEFAULT_FLAP_WINDOW_MS));
+        }
+        if (options.has(KEY_LINK_SPEED_FALL_PERCENT_PER_SEC)) {
+            linkSpeedFallPercentPerSec = Math.max(0.01,
+                options.optDouble(KEY_LINK_SPEED_FALL_PERCENT_PER_SEC, DEFAULT_LINK_SPEED_FALL_PERCENT_PER_SEC));
+        }
+    }
+
+    /**
+     * Forgets all trends, e.g. when nobody listens anymore.
+     */
+    void reset() {
+        cell.reset();
+        wifi.reset();
+    }
+
+    void addCell(long now, boolean found, String cellType, int dbm) {
+        updateServing(cell, now, found, found ? cellType : null);
+
+        if (found && RollingSignalStats.isValidSample(dbm)) {
+            cell.signalValue = dbm;
+            cell.signal.add(now, dbm, slopeTimeConstantMs);
+        }
+
+        evaluate(cell, now, found, cellDbm);
+    }
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     */
+    void addWifi(long now, WifiSnapshot info) {
+        boolean connected = info != null;
+        updateServing(wifi, now, connected, connected ? info.bssid : null);
+
+        if (connected && RollingSignalStats.isValidSample(info.rssi)) {
+            wifi.signalValue = info.rssi;
+            wifi.signal.add(now, info.rssi, slopeTimeConstantMs);
+        }
+        if (connected && info.linkSpeedMbps > 0) {
+            wifi.linkSpeedMbps = info.linkSpeedMbps;
+            wifi.linkSpeed.add(now, info.linkSpeedMbps, slopeTimeConstantMs);
+        }
+
+        evaluate(wifi, now, connected, wifiRssi);
+    }
+
+    /**
+     * @return true while any reason for the given source to degrade applies
+     */
+    boolean isDegraded(int source) {
+        return getState(source).reasons != 0;
+    }
+
+    /**
+     * @return true if the given source turned degrading or recovered since this was last called for it
+     */
+    boolean hasTransition(int source) {
+        SourceState state = getState(source);
+        return (state.reasons != 0) != state.reportedDegraded;
+    }
+
+    /**
+     * Marks the pending transition of the given source as reported.
+     * @return the payload of the signalDegrading / signalRecovered event describing it
+     */
+    JSONObject takeTransition(int source, long now) throws JSONException {
+        SourceState state = getState(source);
+        JSONObject result = getStateJson(state, now);
+
+        state.reportedDegraded = state.reasons != 0;
+        if (state.reportedDegraded) {
+            state.degradedSinceMs = now;
+            state.degradingCount++;
+        } else {
+            result.put(KEY_DEGRADED_FOR_MS, now - state.degradedSinceMs);
+            state.recoveredCount++;
+        }
+
+        return result;
+    }
+
+    JSONObject getStatsJson(long now) throws JSONException {
+        return new JSONObject()
+            .put(KEY_CELL, getStateJson(cell, now)
+                .put(KEY_DEGRADING_COUNT, cell.degradingCount)
+                .put(KEY_RECOVERED_COUNT, cell.recoveredCount))
+            .put(KEY_WIFI, getStateJson(wifi, now)
+                .put(KEY_DEGRADING_COUNT, wifi.degradingCount)
+                .put(KEY_RECOVERED_COUNT, wifi.recoveredCount));
+    }
+
+    private SourceState getState(int source) {
+        return source == SOURCE_CELL ? cell : wifi;
+    }
+
+    /**
+     * @param serving cell type or BSSID, if known
+     */
+    private void updateServing(SourceState state, long now, boolean connected, String serving) {
+        if (state.hasServing && (connected != state.servingConnected || !equals(serving, state.serving))) {
+            state.addServingChange(now);
+            // readings of another cell or access point do not continue the trend
+            state.signal.reset();
+            state.linkSpeed.reset();
+        }
+        state.hasServing = true;
+        state.servingConnected = connected;
+        state.serving = serving;
+    }
+
+    /**
+     * @param hasReading false if the source is not connected, in which case the
+     * signal reasons of its last connection are kept until it reconnects
+     */
+    private void evaluate(SourceState state, long now, boolean hasReading, int threshold) {
+        int previous = state.reasons;
+        int reasons = 0;
+
+        if (hasReading && state.signal.hasSample) {
+            int weakLimit = threshold + ((previous & REASON_WEAK) != 0 ? WEAK_RECOVERY_DB : 0);
+            double fallLimit = (previous & REASON_FALLING) != 0 ? -slopeDbPerSec / 2 : -slopeDbPerSec;
+
+            if (state.signalValue <= weakLimit) {
+                reasons |= REASON_WEAK;
+            }
+            if (state.signalValue <= threshold + marginDb && state.signal.slopePerSec <= fallLimit) {
+                reasons |= REASON_FALLING;
+            }
+        } else {
+            reasons |= previous & (REASON_WEAK | REASON_FALLING);
+        }
+
+        if (state.source == SOURCE_WIFI) {
+            if (hasReading && state.linkSpeed.hasSample && state.linkSpeed.mean >= MIN_LINK_SPEED_MBPS) {
+                double fallLimit = -linkSpeedFallPercentPerSec / 100
+                    * ((previous & REASON_LINK_SPEED_FALLING) != 0 ? 0.5 : 1);
+                if (state.linkSpeed.slopePerSec / state.linkSpeed.mean <= fallLimit) {
+                    reasons |= REASON_LINK_SPEED_FALLING;
+                }
+            } else if (!hasReading) {
+                reasons |= previous & REASON_LINK_SPEED_FALLING;
+            }
+        }
+
+        if (flapCount > 0 && state.countServingChanges(now, flapWindowMs) >= flapCount) {
+            reasons |= REASON_FLAPPING;
+        }
+
+        state.reasons = reasons;
+    }
+
+    private JSONObject getStateJson(SourceState state, long now) throws JSONException {
+        boolean isCell = state.source == SOURCE_CELL;
+        JSONObject result = new JSONObject()
+            .put(KEY_SOURCE, isCell ? SOURCE_NAME_CELL : SOURCE_NAME_WIFI)
+            .put(KEY_DEGRADED, state.reasons != 0)
+            .put(KEY_REASONS, getReasonsJson(state.reasons))
+            .putOpt(isCell ? KEY_CELL_TYPE : KEY_BSSID, state.serving)
+            .put(KEY_SERVING_CHANGES, state.countServingChanges(now, flapWindowMs));
+
+        if (state.signal.hasSample) {
+            result.put(isCell ? KEY_DBM : KEY_RSSI, state.signalValue)
+                .put(KEY_SLOPE, round(state.signal.slopePerSec));
+        }
+        if (!isCell && state.linkSpeed.hasSample) {
+            result.put(KEY_LINK_SPEED_MBPS, state.linkSpeedMbps)
+                .put(KEY_LINK_SPEED_SLOPE, round(state.linkSpeed.slopePerSec));
+        }
+
+        return result;
+    }
+
+    private static JSONArray getReasonsJson(int reasons) {
+        JSONArray result = new JSONArray();
+        if ((reasons & REASON_WEAK) != 0) {
+            result.put(REASON_NAME_WEAK);
+        }
+        if ((reasons & REASON_FALLING) != 0) {
+            result.put(REASON_NAME_FALLING);
+        }
+        if ((reasons & REASON_FLAPPING) != 0) {
+            result.put(REASON_NAME_FLAPPING);
+        }
+        if ((reasons & REASON_LINK_SPEED_FALLING) != 0) {
+            result.put(REASON_NAME_LINK_SPEED_FALLING);
+        }
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
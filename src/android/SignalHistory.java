@@ -0,0 +1,211 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Fixed-capacity ring buffer of primitive signal samples.
+ * Samples are stored in parallel arrays, so memory use is bounded by
+ * the configured capacity regardless of how long the app runs.
+ * Only accessed from the plugin worker thread.
+ */
+class SignalHistory {
+    static final int DEFAULT_CAPACITY = 256;
+    static final int SOURCE_CELL = 0;
+    static final int SOURCE_WIFI = 1;
+
+    private static final String KEY_TIMESTAMP = "timestamp";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_CELL_TYPE = "cellType";
+    private static final String KEY_DBM = "dbm";
+    private static final String KEY_LEVEL = "level";
+    private static final String KEY_CONNECTED = "connected";
+    private static final String KEY_RSSI = "rssi";
+    private static final String KEY_LINK_SPEED_MBPS = "linkSpeedMbps";
+    private static final String SOURCE_NAME_CELL = "cell";
+    private static final String SOURCE_NAME_WIFI = "wifi";
+
+    // Cell types are stored as an index into this table
+    private static final String[] CELL_TYPES = {
+        CellSnapshot.CELL_TYPE_UNKNOWN,
+        CellSnapshot.CELL_TYPE_CDMA,
+        CellSnapshot.CELL_TYPE_GSM,
+        CellSnapshot.CELL_TYPE_LTE,
+        CellSnapshot.CELL_TYPE_NR,
+        CellSnapshot.CELL_TYPE_TDSCDMA,
+        CellSnapshot.CELL_TYPE_WCDMA
+    };
+
+    private long[] timestamps;
+    private byte[] sources;
+    private byte[] cellTypes;
+    private boolean[] connected;
+    private int[] dbms;
+    private int[] levels;
+    private int[] rssis;
+    private int[] linkSpeeds;
+    private int capacity = 0;
+    private int head = 0;
+    private int size = 0;
+
+    SignalHistory(int capacity) {
+        setCapacity(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Resizes the buffer, keeping the most recent samples that still fit.
+     */
+    void setCapacity(int newCapacity) {
+        newCapacity = Math.max(1, newCapacity);
+
+        if (newCapacity == capacity) {
+            return;
+        }
+
+        long[] newTimestamps = new long[newCapacity];
+        byte[] newSources = new byte[newCapacity];
+        byte[] newCellTypes = new byte[newCapacity];
+        boolean[] newConnected = new boolean[newCapacity];
+        int[] newDbms = new int[newCapacity];
+        int[] newLevels = new int[newCapacity];
+        int[] newRssis = new int[newCapacity];
+        int[] newLinkSpeeds = new int[newCapacity];
+        int newSize = Math.min(size, newCapacity);
+
+        for (int i = 0; i < newSize; i++) {
+            int from = indexOf(size - newSize + i);
+            newTimestamps[i] = timestamps[from];
+            newSources[i] = sources[from];
+            newCellTypes[i] = cellTypes[from];
+            newConnected[i] = connected[from];
+            newDbms[i] = dbms[from];
+            newLevels[i] = levels[from];
+            newRssis[i] = rssis[from];
+            newLinkSpeeds[i] = linkSpeeds[from];
+        }
+
+        timestamps = newTimestamps;
+        sources = newSources;
+        cellTypes = newCellTypes;
+        connected = newConnected;
+        dbms = newDbms;
+        levels = newLevels;
+        rssis = newRssis;
+        linkSpeeds = newLinkSpeeds;
+        capacity = newCapacity;
+        size = newSize;
+        head = newSize % newCapacity;
+    }
+
+    void addCell(long timestamp, boolean found, String cellType, int dbm, int level) {
+        int i = next();
+        timestamps[i] = timestamp;
+        sources[i] = SOURCE_CELL;
+        cellTypes[i] = (byte) getCellTypeCode(cellType);
+        connected[i] = found;
+        dbms[i] = dbm;
+        levels[i] = level;
+        rssis[i] = 0;
+        linkSpeeds[i] = 0;
+    }
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     */
+    void addWifi(long timestamp, WifiSnapshot info) {
+        int i = next();
+        timestamps[i] = timestamp;
+        sources[i] = SOURCE_WIFI;
+        cellTypes[i] = 0;
+        connected[i] = info != null;
+        dbms[i] = 0;
+        levels[i] = info != null ? info.level : WifiSnapshot.LEVEL_UNAVAILABLE;
+        rssis[i] = info != null ? info.rssi : 0;
+        linkSpeeds[i] = info != null ? info.linkSpeedMbps : 0;
+    }
+
+    /**
+     * @param since only samples with a timestamp greater than this are returned
+     * @param limit maximum number of samples to return
+     * @return matching samples, oldest first
+     */
+    JSONArray toJson(long since, int limit) throws JSONException {
+        JSONArray result = new JSONArray();
+        int start = 0;
+
+        // samples are chronological, so skip straight past anything too old
+        while (start < size && timestamps[indexOf(start)] <= since) {
+            start++;
+        }
+
+        // limit defaults to Integer.MAX_VALUE, so it must not be added to start directly
+        int end = start + Math.min(Math.max(0, limit), size - start);
+
+        for (int n = start; n < end; n++) {
+            result.put(getSampleJson(indexOf(n)));
+        }
+
+        return result;
+    }
+
+    private JSONObject getSampleJson(int i) throws JSONException {
+        JSONObject result = new JSONObject()
+            .put(KEY_TIMESTAMP, timestamps[i])
+            .put(KEY_CONNECTED, connected[i]);
+
+        if (sources[i] == SOURCE_CELL) {
+            result.put(KEY_SOURCE, SOURCE_NAME_CELL)
+                .put(KEY_CELL_TYPE, getCellType(cellTypes[i]))
+                .put(KEY_DBM, dbms[i])
+                .put(KEY_LEVEL, levels[i]);
+        } else {
+            result.put(KEY_SOURCE, SOURCE_NAME_WIFI);
+            if (connected[i]) {
+                result.put(KEY_RSSI, rssis[i])
+                    .put(KEY_LINK_SPEED_MBPS, linkSpeeds[i]);
+                if (levels[i] != WifiSnapshot.LEVEL_UNAVAILABLE) {
+                    result.put(KEY_LEVEL, levels[i]);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the array index to write the next sample to, overwriting the oldest sample when full
+     */
+    private int next() {
+        int i = head;
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+        return i;
+    }
+
+    /**
+     * @param n position from the oldest retained sample
+     */
+    private int indexOf(int n) {
+        return (head - size + n + capacity) % capacity;
+    }
+
+    static int getCellTypeCode(String cellType) {
+        for (int i = 0; i < CELL_TYPES.length; i++) {
+            if (CELL_TYPES[i].equals(cellType)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    static String getCellType(int code) {
+        return code >= 0 && code < CELL_TYPES.length ? CELL_TYPES[code] : CellSnapshot.CELL_TYPE_UNKNOWN;
+    }
+}
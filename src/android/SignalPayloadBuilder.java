@@ -0,0 +1,171 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds the json payloads sent to the webview from cell and wifi snapshots.
+ * Deliberately free of android framework types, so that payload building
+ * can be exercised and measured on a plain JVM.
+ */
+final class SignalPayloadBuilder {
+    private static final String KEY_DBM = "dbm";
+    private static final String KEY_RSSI = "rssi";
+    private static final String KEY_LEVEL = "level";
+    private static final String KEY_MAX_LEVEL = "maxLevel";
+    private static final String KEY_CELL_TYPE = "cellType";
+    private static final String KEY_CELL_DATA_LOADED = "cellDataLoaded";
+    private static final String KEY_PRIMARY = "primary";
+    private static final String KEY_ALTERNATES = "alternates";
+    private static final String KEY_CONNECTION_STATUS = "connectionStatus";
+    private static final String KEY_RSRP = "rsrp";
+    private static final String KEY_RSRQ = "rsrq";
+    private static final String KEY_SINR = "sinr";
+    private static final String KEY_SSID = "ssid";
+    private static final String KEY_BSSID = "bssid";
+    private static final String KEY_NETWORK_ID = "networkId";
+    private static final String KEY_LINK_SPEED_MBPS = "linkSpeedMbps";
+    private static final String KEY_TX_LINK_SPEED_MBPS = "txLinkSpeedMbps";
+    private static final String KEY_MAX_TX_LINK_SPEED_MBPS = "maxTxLinkSpeedMbps";
+    private static final String KEY_RX_LINK_SPEED_MBPS = "rxLinkSpeedMbps";
+    private static final String KEY_MAX_RX_LINK_SPEED_MBPS = "maxRxLinkSpeedMbps";
+    private static final String KEY_INFO = "info";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_CONNECTED = "connected";
+
+    private SignalPayloadBuilder() {
+    }
+
+    static JSONObject getCellStatePayloadJson(CellSnapshotSet cells) throws JSONException {
+        return getCellStatePayloadJson(cells, FieldMask.ALL);
+    }
+
+    /**
+     * @param fieldMask FieldMask bits of the fields to include
+     */
+    static JSONObject getCellStatePayloadJson(CellSnapshotSet cells, int fieldMask) throws JSONException {
+        CellSnapshot primary = cells.getPrimary();
+        int primaryIndex = cells.getPrimaryIndex();
+        JSONObject result;
+
+        if (primary != null) {
+            result = getCellInfoJson(primary, fieldMask);
+        } else {
+            result = new JSONObject();
+        }
+
+        if (FieldMask.includes(fieldMask, FieldMask.PRIMARY)) {
+            // Only flag as primary if we found an actual serving cell, rather than a fallback
+            result.put(KEY_PRIMARY, cells.isPrimaryServing());
+        }
+
+        if (!FieldMask.includes(fieldMask, FieldMask.ALTERNATES)) {
+            return result;
+        }
+
+        JSONArray alternates = new JSONArray();
+
+        for (int i = 0; i < cells.size(); i++) {
+            if (i != primaryIndex) {
+                alternates.put(getCellInfoJson(cells.get(i), fieldMask));
+            }
+        }
+
+        result.put(KEY_ALTERNATES, alternates);
+
+        return result;
+    }
+
+    static JSONObject getCellInfoJson(CellSnapshot info, int fieldMask) throws JSONException {
+        JSONObject result = new JSONObject();
+
+        if (FieldMask.includes(fieldMask, FieldMask.CELL_TYPE)) {
+            result.put(KEY_CELL_TYPE, info.cellType);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.DBM)) {
+            result.put(KEY_DBM, info.dbm);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.LEVEL)) {
+            result.put(KEY_LEVEL, info.level);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.CONNECTION_STATUS)) {
+            result.put(KEY_CONNECTION_STATUS, info.connectionStatus);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.CELL_DATA_LOADED)) {
+            result.put(KEY_CELL_DATA_LOADED, info.loaded);
+        }
+
+        if (!FieldMask.includes(fieldMask, FieldMask.SIGNAL_QUALITY)) {
+            return result;
+        }
+        if (info.rsrp != CellSnapshot.UNAVAILABLE) {
+            result.put(KEY_RSRP, info.rsrp);
+        }
+        if (info.rsrq != CellSnapshot.UNAVAILABLE) {
+            result.put(KEY_RSRQ, info.rsrq);
+        }
+        if (info.sinr != CellSnapshot.UNAVAILABLE) {
+            result.put(KEY_SINR, info.sinr);
+        }
+
+        return result;
+    }
+
+    static JSONObject getWifiStatePayloadJson(boolean wifiEnabled, WifiSnapshot info) throws JSONException {
+        return getWifiStatePayloadJson(wifiEnabled, info, FieldMask.ALL);
+    }
+
+    /**
+     * @param fieldMask FieldMask bits of the info fields to include; enabled and connected are always included
+     */
+    static JSONObject getWifiStatePayloadJson(boolean wifiEnabled, WifiSnapshot info, int fieldMask) throws JSONException {
+        JSONObject result = new JSONObject();
+        boolean hasWifiInfo = info != null;
+
+        result.put(KEY_ENABLED, wifiEnabled);
+        result.put(KEY_CONNECTED, hasWifiInfo);
+
+        if (hasWifiInfo) {
+            result.put(KEY_INFO, getWifiInfoJson(info, fieldMask));
+        }
+
+        return result;
+    }
+
+    static JSONObject getWifiInfoJson(WifiSnapshot info, int fieldMask) throws JSONException {
+        JSONObject result = new JSONObject();
+        boolean includeLevel = info.level != WifiSnapshot.LEVEL_UNAVAILABLE
+            && FieldMask.includes(fieldMask, FieldMask.LEVEL);
+
+        if (FieldMask.includes(fieldMask, FieldMask.SSID)) {
+            result.put(KEY_SSID, info.ssid);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.BSSID)) {
+            result.put(KEY_BSSID, info.bssid);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.NETWORK_ID)) {
+            result.put(KEY_NETWORK_ID, info.networkId);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.RSSI)) {
+            result.put(KEY_RSSI, info.rssi);
+        }
+        if (FieldMask.includes(fieldMask, FieldMask.LINK_SPEED)) {
+            result.put(KEY_LINK_SPEED_MBPS, info.linkSpeedMbps);
+        }
+
+        if (includeLevel) {
+            result.put(KEY_LEVEL, info.level);
+            result.put(KEY_MAX_LEVEL, info.maxLevel);
+        }
+
+        if (info.hasLinkSpeedDetails && FieldMask.includes(fieldMask, FieldMask.LINK_SPEED_DETAILS)) {
+            result.put(KEY_TX_LINK_SPEED_MBPS, info.txLinkSpeedMbps);
+            result.put(KEY_MAX_TX_LINK_SPEED_MBPS, info.maxTxLinkSpeedMbps);
+            result.put(KEY_RX_LINK_SPEED_MBPS, info.rxLinkSpeedMbps);
+            result.put(KEY_MAX_RX_LINK_SPEED_MBPS, info.maxRxLinkSpeedMbps);
+        }
+
+        return result;
+    }
+}
@@ -16,23 +16,14 @@ import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.os.Handler;
-import android.telephony.CellInfoNr;
-import android.telephony.CellInfoTdscdma;
-import android.telephony.CellSignalStrength;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyCallback;
 import android.telephony.TelephonyManager;
 
-import android.telephony.CellSignalStrengthGsm;
-import android.telephony.CellSignalStrengthCdma;
-import android.telephony.CellSignalStrengthLte;
-import android.telephony.CellSignalStrengthWcdma;
-
 import android.telephony.CellInfo;
-import android.telephony.CellInfoLte;
-import android.telephony.CellInfoCdma;
-import android.telephony.CellInfoWcdma;
-import android.telephony.CellInfoGsm;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
@@ -40,13 +31,16 @@ import androidx.core.app.ActivityCompat;
 
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CallbackContext;
-import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import timber.log.Timber;
 
@@ -63,48 +57,112 @@ public class SignalStrength extends CordovaPlugin {
     private static final String ACTION_GET_CELL_STATE = "getCellState";
     private static final String ACTION_GET_WIFI_STATE = "getWifiState";
     private static final String ACTION_SET_SHARED_EVENT_DELEGATE = "setSharedEventDelegate";
+    private static final String ACTION_GET_STATS = "getStats";
+    private static final String ACTION_GET_HISTORY = "getHistory";
+    private static final String ACTION_GET_SIGNAL_STATS = "getSignalStats";
+    private static final String ACTION_SUBSCRIBE = "subscribe";
+    private static final String ACTION_UNSUBSCRIBE = "unsubscribe";
+    private static final String ACTION_CONFIGURE = "configure";
+    private static final String ACTION_GET_METRICS = "getMetrics";
+    private static final String ACTION_SET_TRACE_ENABLED = "setTraceEnabled";
+    private static final String ACTION_DUMP_TRACE = "dumpTrace";
+    private static final String ACTION_QUERY_PERSISTENT_LOG = "queryPersistentLog";
 
-    private static final String KEY_DBM = "dbm";
-    private static final String KEY_RSSI = "rssi";
-    private static final String KEY_LEVEL = "level";
-    private static final String KEY_MAX_LEVEL = "maxLevel";
-    private static final String KEY_CELL_TYPE = "cellType";
-    private static final String KEY_CELL_DATA_LOADED = "cellDataLoaded";
-    private static final String KEY_PRIMARY = "primary";
-    private static final String KEY_ALTERNATES = "alternates";
-    private static final String KEY_CONNECTION_STATUS = "connectionStatus";
-    private static final String KEY_SSID = "ssid";
-    private static final String KEY_BSSID = "bssid";
-    private static final String KEY_NETWORK_ID = "networkId";
-    private static final String KEY_LINK_SPEED_MBPS = "linkSpeedMbps";
-    private static final String KEY_TX_LINK_SPEED_MBPS = "txLinkSpeedMbps";
-    private static final String KEY_MAX_TX_LINK_SPEED_MBPS = "maxTxLinkSpeedMbps";
-    private static final String KEY_RX_LINK_SPEED_MBPS = "rxLinkSpeedMbps";
-    private static final String KEY_MAX_RX_LINK_SPEED_MBPS = "maxRxLinkSpeedMbps";
-    private static final String KEY_TYPE = "type";
-    private static final String KEY_DATA = "data";
-    private static final String KEY_INFO = "info";
-    private static final String KEY_ENABLED = "enabled";
-    private static final String KEY_CONNECTED = "connected";
     private static final String KEY_REASON = "reason";
+    private static final String KEY_CHANGE_FILTER = "changeFilter";
+    private static final String KEY_DBM_HYSTERESIS = "dbmHysteresis";
+    private static final String KEY_RSSI_HYSTERESIS = "rssiHysteresis";
+    private static final String KEY_CELL_RESCAN_INTERVAL_MS = "cellRescanIntervalMs";
+    private static final String KEY_MAX_AGE_MS = "maxAgeMs";
+    private static final String KEY_TIMEOUT_MS = "timeoutMs";
+    private static final String KEY_CELL_STATE_REQUESTS = "cellStateRequests";
+    private static final String KEY_WIFI_STATE_REQUESTS = "wifiStateRequests";
+    private static final String KEY_CACHE_AGE_MS = "cacheAgeMs";
+    private static final String KEY_HISTORY_CAPACITY = "historyCapacity";
+    private static final String KEY_STATS_WINDOWS_MS = "statsWindowsMs";
+    private static final String KEY_CELL = "cell";
+    private static final String KEY_WIFI = "wifi";
+    private static final String KEY_BINARY = "binary";
+    private static final String KEY_FIELDS = "fields";
+    private static final String KEY_LEGACY_POLL_MIN_INTERVAL_MS = "legacyPollMinIntervalMs";
+    private static final String KEY_LEGACY_POLL_MAX_INTERVAL_MS = "legacyPollMaxIntervalMs";
+    private static final String KEY_LEGACY_WIFI_POLL = "legacyWifiPoll";
+    private static final String KEY_KEEP_RUNNING_IN_BACKGROUND = "keepRunningInBackground";
+    private static final String KEY_LISTENERS_PARKED = "listenersParked";
+    private static final String KEY_SUBSCRIPTIONS = "subscriptions";
+    private static final String KEY_MULTI_SIM = "multiSim";
+    private static final String KEY_SIM_SUBSCRIPTIONS = "simSubscriptions";
+    private static final String KEY_CELL_REFRESH_TIMEOUT_MS = "cellRefreshTimeoutMs";
+    private static final String KEY_CELL_INFO_REFRESH = "cellInfoRefresh";
+    private static final String KEY_STALE = "stale";
+    private static final String KEY_PERSISTENT_LOG_MAX_BYTES = "persistentLogMaxBytes";
+    private static final String KEY_DEGRADATION = "degradation";
+    private static final String KEY_WIFI_CALLBACKS = "wifiCallbacks";
+    private static final String KEY_LISTENER = "listener";
+    private static final String KEY_STATE_REQUEST = "stateRequest";
+    private static final String KEY_DEDUPLICATION = "deduplication";
+    private static final String KEY_FROM = "from";
+    private static final String KEY_TO = "to";
+    private static final String KEY_AFTER_SEQUENCE = "afterSequence";
+    private static final String KEY_LIMIT = "limit";
+    private static final String KEY_AS_FILE = "asFile";
 
     private static final String EVENT_TYPE_CELL_STATE_UPDATED = "cellStateUpdated";
     private static final String EVENT_TYPE_WIFI_STATE_UPDATED = "wifiStateUpdated";
+    private static final String EVENT_TYPE_SIGNAL_DEGRADING = "signalDegrading";
+    private static final String EVENT_TYPE_SIGNAL_RECOVERED = "signalRecovered";
     private static final String REASON_LOST_CONNECTION = "lostConnection";
     private static final String REASON_UNAVAILABLE = "unavailable";
     private static final String REASON_DISABLED = "disabled";
-    private static final String CELL_TYPE_UNKNOWN = "UNKNOWN";
+    private static final long DEFAULT_CELL_RESCAN_INTERVAL_MS = 30000;
+    private static final long DEFAULT_WIFI_STATE_TIMEOUT_MS = 10000;
+    private static final String WORKER_THREAD_NAME = "SignalStrengthWorker";
+    private static final String PERSISTENT_LOG_DIRECTORY = "signal-strength";
+    private static final String PERSISTENT_LOG_FILE_NAME = "samples.log";
+    // setSharedEventDelegate() is a subscription under this fixed id, so it replaces itself
+    private static final String SHARED_EVENT_DELEGATE_ID = "sharedEventDelegate";
 
     private TelephonyManager telephonyManager = null;
     private WifiManager wifiManager = null;
+    private WifiInfoReader wifiInfoReader = null;
+    private CellInfoReader cellInfoReader = null;
+    private CellInfoRefresher cellInfoRefresher = null;
+    private MultiSimMonitor multiSimMonitor = null;
+    private boolean multiSimEnabled = false;
     private ConnectivityManager connectivityManager = null;
-    private final ArrayList<CallbackContext> networkInfoCallbacks = new ArrayList<>();
-    private CallbackContext sharedJsEventCallback = null;
+    // All listener callbacks and plugin state changes are confined to this thread
+    private HandlerThread workerThread = null;
+    private Handler workerHandler = null;
+    private Executor workerExecutor = null;
+    private PendingRequestGroup networkInfoCallbacks = null;
+    private PendingRequestGroup cellStateCallbacks = null;
+    private NetworkCallbackRegistration wifiListenerRegistration = null;
+    private NetworkCallbackRegistration wifiStateRequestRegistration = null;
+    private boolean wifiStateChangedReceiverRegistered = false;
+    private final WifiCallbackDeduplicator wifiCallbackDeduplicator = new WifiCallbackDeduplicator();
+    private final WifiStateCache wifiStateCache = new WifiStateCache();
+    private final EventSubscriptionRegistry eventSubscriptions = new EventSubscriptionRegistry();
     private TelephonyCallback cellChangeCallback = null;
-    private Handler legacyWifiInfoPollHandler = null;
     private Runnable legacyWifiInfoPollRunnable = null;
+    private final AdaptivePollInterval legacyWifiPollInterval = new AdaptivePollInterval();
+    private boolean activityPaused = false;
+    private boolean keepRunningInBackground = false;
+    private TelephonyCallback parkedCellChangeCallback = null;
     private IntentFilter wifiStateChangedFilter = null;
-    private boolean eventListenerCallbacksEnabled = false;
+    // Read from cordova threads too, so only ever replaced as a whole by compare-and-set
+    private final ListenerStateHolder listenerState = new ListenerStateHolder();
+    private final SignalChangeFilter changeFilter = new SignalChangeFilter();
+    private final CellSnapshotSet cellSnapshots = new CellSnapshotSet();
+    private final SignalHistory signalHistory = new SignalHistory(SignalHistory.DEFAULT_CAPACITY);
+    private final RollingSignalStats cellSignalStats = new RollingSignalStats(RollingSignalStats.DEFAULT_WINDOWS_MS);
+    private final RollingSignalStats wifiSignalStats = new RollingSignalStats(RollingSignalStats.DEFAULT_WINDOWS_MS);
+    private final BinaryStateEncoder binaryEncoder = new BinaryStateEncoder();
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final TraceRecorder trace = new TraceRecorder(TraceRecorder.DEFAULT_CAPACITY);
+    private PersistentSampleLog persistentLog = null;
+    private final SignalDegradationDetector degradationDetector = new SignalDegradationDetector();
+    private long cellRescanIntervalMs = DEFAULT_CELL_RESCAN_INTERVAL_MS;
+    private Boolean locationPermissionGranted = null;
 
     @RequiresApi(api = Build.VERSION_CODES.S)
     private class PluginTelephonyCallback extends TelephonyCallback
@@ -112,26 +170,68 @@ public class SignalStrength extends CordovaPlugin {
 
         @Override
         public void onCellInfoChanged(@NonNull List<CellInfo> list) {
+            metrics.countCallback("telephonyCallback.onCellInfoChanged");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyCellInfoChanged(list);
         }
 
         @Override
         public void onSignalStrengthsChanged(@NonNull android.telephony.SignalStrength signalStrength) {
-            notifyCellInfoRefresh();
+            metrics.countCallback("telephonyCallback.onSignalStrengthsChanged");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
+            notifySignalStrengthsChanged(signalStrength);
         }
     }
 
-    private final PhoneStateListener legacyCellChangeCallback = new PhoneStateListener() {
+    @RequiresApi(api = Build.VERSION_CODES.S)
+    private class ParkedTelephonyCallback extends TelephonyCallback
+        implements TelephonyCallback.SignalStrengthsListener {
+
+        @Override
+        public void onSignalStrengthsChanged(@NonNull android.telephony.SignalStrength signalStrength) {
+            metrics.countCallback("parkedTelephonyCallback.onSignalStrengthsChanged");
+            if (isStaleCallback(listenerState.get().isListeningOrParked())) {
+                return;
+            }
+            notifySignalStrengthsChanged(signalStrength);
+        }
+    }
+
+    private class PluginPhoneStateListener extends PhoneStateListener {
+        PluginPhoneStateListener() {
+            super();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.Q)
+        PluginPhoneStateListener(Executor executor) {
+            super(executor);
+        }
+
         @Override
         public void onCellInfoChanged(List<CellInfo> cellInfo) {
+            metrics.countCallback("phoneStateListener.onCellInfoChanged");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyCellInfoChanged(cellInfo);
         }
 
         @Override
         public void onSignalStrengthsChanged(android.telephony.SignalStrength signalStrength) {
-            notifyCellInfoRefresh();
+            metrics.countCallback("phoneStateListener.onSignalStrengthsChanged");
+            // this listener stays registered for signal strengths while parked
+            if (isStaleCallback(listenerState.get().isListeningOrParked())) {
+                return;
+            }
+            notifySignalStrengthsChanged(signalStrength);
         }
-    };
+    }
+
+    private PhoneStateListener legacyCellChangeCallback = null;
 
     private final NetworkRequest networkRequest = new NetworkRequest.Builder()
         .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
@@ -141,16 +241,28 @@ public class SignalStrength extends CordovaPlugin {
 
         @Override
         public void onAvailable(@NonNull Network network) {
+            metrics.countCallback("networkCallback.onAvailable");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyWifiNetworkAvailable(network);
         }
 
         @Override
         public void onUnavailable() {
+            metrics.countCallback("networkCallback.onUnavailable");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyWifiNetworkUnavailable();
         }
 
         @Override
         public void onLost(@NonNull Network network) {
+            metrics.countCallback("networkCallback.onLost");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyWifiNetworkLostConnection();
         }
 
@@ -160,13 +272,62 @@ public class SignalStrength extends CordovaPlugin {
             @NonNull Network network,
             @NonNull NetworkCapabilities networkCapabilities
         ) {
+            metrics.countCallback("networkCallback.onCapabilitiesChanged");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             notifyWifiNetworkCapabilitiesChanged(network, networkCapabilities);
         }
     };
 
+    /**
+     * Dedicated to one-shot getWifiState() requests, so that it can be released
+     * as soon as the pending waiters are completed without affecting the shared listener.
+     */
+    private final ConnectivityManager.NetworkCallback wifiStateRequestCallback = new ConnectivityManager.NetworkCallback() {
+
+        @Override
+        public void onUnavailable() {
+            metrics.countCallback("wifiStateRequestCallback.onUnavailable");
+            notifyWifiNetworkUnavailable();
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            metrics.countCallback("wifiStateRequestCallback.onLost");
+            notifyWifiNetworkLostConnection();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.Q)
+        @Override
+        public void onCapabilitiesChanged(
+            @NonNull Network network,
+            @NonNull NetworkCapabilities networkCapabilities
+        ) {
+            metrics.countCallback("wifiStateRequestCallback.onCapabilitiesChanged");
+            notifyWifiNetworkCapabilitiesChanged(network, networkCapabilities);
+        }
+    };
+
+    private final PendingRequestGroup.Delegate wifiStateRequestDelegate = new PendingRequestGroup.Delegate() {
+        @Override
+        public JSONObject getLastKnownState(int fieldMask) throws JSONException {
+            return getCachedWifiStateJson(Long.MAX_VALUE, fieldMask);
+        }
+
+        @Override
+        public void onRequestAbandoned() {
+            releaseWifiStateRequest();
+        }
+    };
+
     private final BroadcastReceiver wifiStateChangedReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
+            metrics.countCallback("wifiStateChangedReceiver.onReceive");
+            if (isStaleCallback(listenerState.get().isListening())) {
+                return;
+            }
             if (WifiManager.NETWORK_STATE_CHANGED_ACTION.equals(intent.getAction())) {
                 Timber.v("SignalStrength wifiStateReceiver NETWORK_STATE_CHANGED_ACTION");
                 if (!wifiManager.isWifiEnabled()) {
@@ -182,32 +343,143 @@ public class SignalStrength extends CordovaPlugin {
         Activity activity = cordova.getActivity();
         telephonyManager = (TelephonyManager) activity.getSystemService(Context.TELEPHONY_SERVICE);
         wifiManager = (WifiManager) activity.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        wifiInfoReader = new WifiInfoReader(wifiManager);
+        cellInfoReader = new CellInfoReader(trace);
+        persistentLog = new PersistentSampleLog(
+            new File(new File(activity.getNoBackupFilesDir(), PERSISTENT_LOG_DIRECTORY), PERSISTENT_LOG_FILE_NAME)
+        );
         connectivityManager = activity.getSystemService(ConnectivityManager.class);
+        workerThread = new HandlerThread(WORKER_THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+        workerThread.start();
+        workerHandler = new Handler(workerThread.getLooper());
+        workerExecutor = workerHandler::post;
+        cellInfoRefresher = new CellInfoRefresher(telephonyManager, workerHandler, workerExecutor, metrics);
+        wifiListenerRegistration = new NetworkCallbackRegistration(connectivityManager, networkCallback, workerHandler);
+        wifiStateRequestRegistration = new NetworkCallbackRegistration(
+            connectivityManager,
+            wifiStateRequestCallback,
+            workerHandler
+        );
+        multiSimMonitor = new MultiSimMonitor(
+            activity.getApplicationContext(),
+            telephonyManager,
+            cellInfoReader,
+            workerHandler,
+            workerExecutor,
+            metrics,
+            this::notifySubscriptionCellsChanged
+        );
+        // start out with the same settings as the plugin's own filter and rescans
+        multiSimMonitor.setHysteresis(changeFilter.getDbmHysteresis(), changeFilter.getRssiHysteresis());
+        multiSimMonitor.setRescanIntervalMs(cellRescanIntervalMs);
+        networkInfoCallbacks = new PendingRequestGroup(ACTION_GET_WIFI_STATE, workerHandler, wifiStateRequestDelegate);
+        cellStateCallbacks = new PendingRequestGroup(ACTION_GET_CELL_STATE, workerHandler, null);
+    }
+
+    @Override
+    public void onPause(boolean multitasking) {
+        super.onPause(multitasking);
+        // the webview may be suspended until we resume, so hand over everything buffered now
+        workerHandler.post(() -> {
+            activityPaused = true;
+            eventSubscriptions.flush();
+            persistentLog.flush();
+            updateListenerParking();
+        });
+    }
+
+    @Override
+    public void onResume(boolean multitasking) {
+        super.onResume(multitasking);
+        workerHandler.post(() -> {
+            activityPaused = false;
+            // permissions may have been changed from system settings while we were in the background
+            locationPermissionGranted = null;
+            updateListenerParking();
+        });
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        unregisterEventCallbackListeners();
+        // takes effect right away, so callbacks and actions still queued on the worker thread are dropped
+        listenerState.destroy();
+        workerHandler.post(() -> {
+            unregisterEventCallbackListeners();
+            multiSimMonitor.stopListening();
+            eventSubscriptions.clear();
+            releaseWifiStateRequest();
+            persistentLog.close();
+        });
+        // lets the cleanup above run before the thread exits
+        workerThread.quitSafely();
+    }
+
+    @Override
+    public void onReset() {
+        super.onReset();
+        // the webview navigated, so every js callback we hold is gone
+        workerHandler.post(() -> {
+            eventSubscriptions.clear();
+            onLastSubscriptionRemoved();
+        });
     }
 
     @Override
     public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
         Timber.v("execute action %s", action);
+        if (listenerState.get().destroyed) {
+            // the worker thread is gone or about to be, so nothing posted to it would ever answer
+            callbackContext.error(action + " ERROR: plugin destroyed");
+            return true;
+        }
         switch (action) {
             // included for backward compatibility; will be removed in a future plugin version
             case ACTION_DBM:
                 getDbm(callbackContext);
                 break;
             case ACTION_GET_CELL_STATE:
-                getCellState(callbackContext);
+                getCellState(callbackContext, getRequestOptions(args));
                 break;
             case ACTION_GET_WIFI_STATE:
-                getWifiState(callbackContext);
+                getWifiState(callbackContext, getRequestOptions(args));
                 break;
             case ACTION_SET_SHARED_EVENT_DELEGATE:
                 boolean remove = args.optBoolean(0, false);
-                setSharedEventDelegate(callbackContext, remove);
+                JSONObject options = args.optJSONObject(1);
+                setSharedEventDelegate(callbackContext, remove, options);
+                break;
+            case ACTION_GET_STATS:
+                getStats(callbackContext);
+                break;
+            case ACTION_GET_HISTORY:
+                long since = args.optLong(0, 0);
+                int limit = args.optInt(1, Integer.MAX_VALUE);
+                getHistory(callbackContext, since, limit);
+                break;
+            case ACTION_GET_SIGNAL_STATS:
+                getSignalStats(callbackContext);
+                break;
+            case ACTION_SUBSCRIBE:
+                subscribe(callbackContext, args.getString(0), args.optJSONObject(1));
+                break;
+            case ACTION_UNSUBSCRIBE:
+                unsubscribe(callbackContext, args.getString(0));
+                break;
+            case ACTION_CONFIGURE:
+                configure(callbackContext, args.optJSONObject(0));
+                break;
+            case ACTION_GET_METRICS:
+                getMetrics(callbackContext, args.optBoolean(0, false));
+                break;
+            case ACTION_SET_TRACE_ENABLED:
+                setTraceEnabled(callbackContext, args.optBoolean(0, false), args.optInt(1, 0));
+                break;
+            case ACTION_DUMP_TRACE:
+                dumpTrace(callbackContext, args.optBoolean(0, false));
+                break;
+            case ACTION_QUERY_PERSISTENT_LOG:
+                queryPersistentLog(callbackContext, getRequestOptions(args));
                 break;
             default:
                 return false;
@@ -220,13 +492,23 @@ public class SignalStrength extends CordovaPlugin {
      * @deprecated use getCellState() instead
      */
     private void getDbm(CallbackContext callbackContext) {
-        getCellState(callbackContext);
+        getCellState(callbackContext, new JSONObject());
     }
 
-    private void getCellState(CallbackContext callbackContext) {
-        cordova.getThreadPool().execute(() -> {
+    private JSONObject getRequestOptions(JSONArray args) {
+        JSONObject options = args.optJSONObject(0);
+        return options != null ? options : new JSONObject();
+    }
+
+    private void getCellState(CallbackContext callbackContext, JSONObject options) {
+        postAction(ACTION_GET_CELL_STATE, () -> {
             try {
-                getCellStateSync(callbackContext);
+                getCellStateSync(
+                    callbackContext,
+                    options.optLong(KEY_MAX_AGE_MS, 0),
+                    options.optBoolean(KEY_BINARY, false),
+                    FieldMask.compile(options.optJSONArray(KEY_FIELDS))
+                );
             } catch (JSONException e) {
                 String errorMessage = "getCellState ERROR: " + e.getMessage();
                 callbackContext.error(errorMessage);
@@ -235,10 +517,16 @@ public class SignalStrength extends CordovaPlugin {
         });
     }
 
-    private void getWifiState(CallbackContext callbackContext) {
-        cordova.getThreadPool().execute(() -> {
+    private void getWifiState(CallbackContext callbackContext, JSONObject options) {
+        postAction(ACTION_GET_WIFI_STATE, () -> {
             try {
-                getWifiStateSync(callbackContext);
+                getWifiStateSync(
+                    callbackContext,
+                    options.optLong(KEY_MAX_AGE_MS, 0),
+                    options.optLong(KEY_TIMEOUT_MS, DEFAULT_WIFI_STATE_TIMEOUT_MS),
+                    options.optBoolean(KEY_BINARY, false),
+                    FieldMask.compile(options.optJSONArray(KEY_FIELDS))
+                );
             } catch (JSONException e) {
                 String errorMessage = "getWifiState ERROR: " + e.getMessage();
                 callbackContext.error(errorMessage);
@@ -247,35 +535,443 @@ public class SignalStrength extends CordovaPlugin {
         });
     }
 
-    private void setSharedEventDelegate(CallbackContext callbackContext, boolean remove) {
-        cordova.getThreadPool().execute(() -> {
-            setSharedEventDelegateSync(callbackContext, remove);
+    private void setSharedEventDelegate(CallbackContext callbackContext, boolean remove, JSONObject options) {
+        postAction(ACTION_SET_SHARED_EVENT_DELEGATE, () -> {
+            setSharedEventDelegateSync(callbackContext, remove, options);
         });
     }
 
-    private void setSharedEventDelegateSync(CallbackContext callbackContext, boolean remove) {
+    private void setSharedEventDelegateSync(CallbackContext callbackContext, boolean remove, JSONObject options) {
         if (remove) {
-            unregisterEventCallbackListeners();
-            sharedJsEventCallback = null;
+            unsubscribeSync(SHARED_EVENT_DELEGATE_ID);
         } else {
-            sharedJsEventCallback = callbackContext;
-            registerEventCallbackListeners();
+            // the delegate predates subscribe(), and still takes the plugin-wide options
+            applySharedEventOptions(options);
+            subscribeSync(callbackContext, SHARED_EVENT_DELEGATE_ID, options);
+        }
+    }
+
+    private void subscribe(CallbackContext callbackContext, String subscriptionId, JSONObject options) {
+        postAction(ACTION_SUBSCRIBE, () -> {
+            subscribeSync(callbackContext, subscriptionId, options);
+        });
+    }
+
+    private void unsubscribe(CallbackContext callbackContext, String subscriptionId) {
+        postAction(ACTION_UNSUBSCRIBE, () -> {
+            unsubscribeSync(subscriptionId);
+            callbackContext.success();
+        });
+    }
+
+    private void configure(CallbackContext callbackContext, JSONObject options) {
+        postAction(ACTION_CONFIGURE, () -> {
+            applySharedEventOptions(options);
+            updateListenerParking();
+            updateMultiSimListening();
+            callbackContext.success();
+        });
+    }
+
+    /**
+     * Registers (or replaces) a subscription, registering the native listeners
+     * if this is the first one.
+     */
+    private void subscribeSync(CallbackContext callbackContext, String subscriptionId, JSONObject options) {
+        EventSubscription subscription = new EventSubscription(subscriptionId, callbackContext, workerHandler);
+        subscription.applyOptions(options);
+
+        boolean listening = listenerState.get().isListening();
+        EventSubscription replaced = eventSubscriptions.put(subscription);
+
+        if (replaced != null) {
+            replaced.close();
+        }
+
+        Timber.v("subscribeSync() id = %s, count = %s", subscriptionId, eventSubscriptions.size());
+        registerEventCallbackListeners();
+        updateListenerParking();
+        updateMultiSimListening();
+
+        // freshly registered or unparked listeners report the current state by themselves
+        if (listening) {
+            sendCurrentState(subscription);
+        }
+
+        // transitions that nobody subscribed to are still pending
+        long now = SystemClock.elapsedRealtime();
+        emitDegradationEvent(SignalDegradationDetector.SOURCE_CELL, now);
+        emitDegradationEvent(SignalDegradationDetector.SOURCE_WIFI, now);
+    }
+
+    /**
+     * Brings a subscriber that joined while the listeners were running up to date,
+     * as the change filter holds back the current state until it changes again.
+     */
+    private void sendCurrentState(EventSubscription subscription) {
+        long now = SystemClock.elapsedRealtime();
+        try {
+            int cellFormats = subscription.getFormats(EVENT_TYPE_CELL_STATE_UPDATED);
+            if (cellFormats != 0 && cellSnapshots.isFresh(now, Long.MAX_VALUE)) {
+                subscription.submit(createCellStateEvent(cellFormats, getFieldMasks(subscription, cellFormats), null));
+            }
+            int wifiFormats = subscription.getFormats(EVENT_TYPE_WIFI_STATE_UPDATED);
+            if (wifiFormats != 0 && wifiStateCache.isFresh(now, Long.MAX_VALUE)) {
+                WifiSnapshot info = wifiStateCache.connected ? wifiStateCache.info : null;
+                subscription.submit(createWifiStateEvent(
+                    wifiFormats,
+                    getFieldMasks(subscription, wifiFormats),
+                    wifiStateCache.enabled,
+                    info,
+                    wifiStateCache.reason,
+                    null
+                ));
+            }
+        } catch (JSONException e) {
+            Timber.e(e, "failed to send current state to subscription %s", subscription.id);
+        }
+    }
+
+    /**
+     * @return the FieldMask of the subscriber's json payloads, or none if it only takes binary frames
+     */
+    private static Set<Integer> getFieldMasks(EventSubscription subscription, int formats) {
+        return (formats & EventSubscriptionRegistry.FORMAT_JSON) != 0
+            ? Collections.singleton(subscription.getFieldMask())
+            : Collections.<Integer>emptySet();
+    }
+
+    /**
+     * Removes a subscription, tearing down the native listeners if it was the last one.
+     */
+    private void unsubscribeSync(String subscriptionId) {
+        EventSubscription subscription = eventSubscriptions.remove(subscriptionId);
+
+        if (subscription == null) {
+            return;
+        }
+
+        subscription.close();
+        Timber.v("unsubscribeSync() id = %s, count = %s", subscriptionId, eventSubscriptions.size());
+
+        if (eventSubscriptions.isEmpty()) {
+            onLastSubscriptionRemoved();
         }
     }
 
+    private void onLastSubscriptionRemoved() {
+        unregisterEventCallbackListeners();
+        updateMultiSimListening();
+        changeFilter.reset();
+        degradationDetector.reset();
+    }
+
+    private void applySharedEventOptions(JSONObject options) {
+        if (options == null) {
+            return;
+        }
+        if (options.has(KEY_DBM_HYSTERESIS) || options.has(KEY_RSSI_HYSTERESIS)) {
+            int dbmHysteresis = options.optInt(KEY_DBM_HYSTERESIS, 0);
+            int rssiHysteresis = options.optInt(KEY_RSSI_HYSTERESIS, 0);
+            changeFilter.setHysteresis(dbmHysteresis, rssiHysteresis);
+            multiSimMonitor.setHysteresis(dbmHysteresis, rssiHysteresis);
+        }
+        if (options.has(KEY_CELL_RESCAN_INTERVAL_MS)) {
+            cellRescanIntervalMs = options.optLong(KEY_CELL_RESCAN_INTERVAL_MS, DEFAULT_CELL_RESCAN_INTERVAL_MS);
+            multiSimMonitor.setRescanIntervalMs(cellRescanIntervalMs);
+        }
+        if (options.has(KEY_CELL_REFRESH_TIMEOUT_MS)) {
+            long refreshTimeoutMs = options.optLong(KEY_CELL_REFRESH_TIMEOUT_MS, CellInfoRefresher.DEFAULT_TIMEOUT_MS);
+            cellInfoRefresher.setTimeoutMs(refreshTimeoutMs);
+            multiSimMonitor.setRefreshTimeoutMs(refreshTimeoutMs);
+        }
+        if (options.has(KEY_MULTI_SIM)) {
+            multiSimEnabled = options.optBoolean(KEY_MULTI_SIM, false);
+        }
+        if (options.has(KEY_HISTORY_CAPACITY)) {
+            signalHistory.setCapacity(options.optInt(KEY_HISTORY_CAPACITY, SignalHistory.DEFAULT_CAPACITY));
+        }
+        if (options.has(KEY_DEGRADATION)) {
+            degradationDetector.applyOptions(options.optJSONObject(KEY_DEGRADATION));
+        }
+        if (options.has(KEY_PERSISTENT_LOG_MAX_BYTES)) {
+            setPersistentLogMaxBytes(options.optLong(KEY_PERSISTENT_LOG_MAX_BYTES, 0));
+        }
+        if (options.has(KEY_STATS_WINDOWS_MS)) {
+            long[] windowsMs = getStatsWindowsMs(options.optJSONArray(KEY_STATS_WINDOWS_MS));
+            cellSignalStats.setWindows(windowsMs);
+            wifiSignalStats.setWindows(windowsMs);
+        }
+        if (options.has(KEY_KEEP_RUNNING_IN_BACKGROUND)) {
+            keepRunningInBackground = options.optBoolean(KEY_KEEP_RUNNING_IN_BACKGROUND, false);
+        }
+        if (options.has(KEY_LEGACY_POLL_MIN_INTERVAL_MS) || options.has(KEY_LEGACY_POLL_MAX_INTERVAL_MS)) {
+            legacyWifiPollInterval.setBounds(
+                options.optLong(KEY_LEGACY_POLL_MIN_INTERVAL_MS, legacyWifiPollInterval.getMinIntervalMs()),
+                options.optLong(KEY_LEGACY_POLL_MAX_INTERVAL_MS, legacyWifiPollInterval.getMaxIntervalMs())
+            );
+        }
+    }
+
+    /**
+     * @param maxBytes size cap of the log file, up to PersistentSampleLog.MAX_BYTES;
+     * 0 or less stops logging, keeping the file
+     */
+    private void setPersistentLogMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            persistentLog.close();
+            return;
+        }
+        if (maxBytes > PersistentSampleLog.MAX_BYTES) {
+            Timber.w("persistentLogMaxBytes %s exceeds %s, clamping", maxBytes, PersistentSampleLog.MAX_BYTES);
+        }
+        try {
+            persistentLog.open(maxBytes);
+        } catch (IOException | RuntimeException e) {
+            // e.g. the mapping failing for lack of address space or storage
+            Timber.e(e, "failed to open the persistent sample log");
+            persistentLog.close();
+        }
+    }
+
+    private long[] getStatsWindowsMs(JSONArray windows) {
+        if (windows == null || windows.length() == 0) {
+            return RollingSignalStats.DEFAULT_WINDOWS_MS;
+        }
+        long[] result = new long[windows.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.max(1, windows.optLong(i, RollingSignalStats.DEFAULT_WINDOWS_MS[0]));
+        }
+        return result;
+    }
+
+    private void getStats(CallbackContext callbackContext) {
+        postAction(ACTION_GET_STATS, () -> {
+            try {
+                JSONObject result = new JSONObject()
+                    .put(KEY_SUBSCRIPTIONS, eventSubscriptions.getStatsJson())
+                    .put(KEY_CHANGE_FILTER, changeFilter.getStatsJson())
+                    .put(KEY_CELL_STATE_REQUESTS, cellStateCallbacks.getStatsJson())
+                    .put(KEY_WIFI_STATE_REQUESTS, networkInfoCallbacks.getStatsJson())
+                    .put(KEY_LEGACY_WIFI_POLL, legacyWifiPollInterval.getStatsJson())
+                    .put(KEY_CELL_INFO_REFRESH, cellInfoRefresher.getStatsJson())
+                    .put(KEY_DEGRADATION, degradationDetector.getStatsJson(SystemClock.elapsedRealtime()))
+                    .put(KEY_WIFI_CALLBACKS, new JSONObject()
+                        .put(KEY_LISTENER, wifiListenerRegistration.getStatsJson())
+                        .put(KEY_STATE_REQUEST, wifiStateRequestRegistration.getStatsJson())
+                        .put(KEY_DEDUPLICATION, wifiCallbackDeduplicator.getStatsJson()))
+                    .put(KEY_LISTENERS_PARKED, listenerState.get().parked);
+                callbackContext.success(result);
+            } catch (JSONException e) {
+                String errorMessage = "getStats ERROR: " + e.getMessage();
+                callbackContext.error(errorMessage);
+                Timber.e(e, errorMessage);
+            }
+        });
+    }
+
+    private void getMetrics(CallbackContext callbackContext, boolean reset) {
+        postAction(ACTION_GET_METRICS, () -> {
+            try {
+                callbackContext.success(metrics.toJson());
+                if (reset) {
+                    metrics.reset();
+                }
+            } catch (JSONException e) {
+                String errorMessage = "getMetrics ERROR: " + e.getMessage();
+                callbackContext.error(errorMessage);
+                Timber.e(e, errorMessage);
+            }
+        });
+    }
+
+    /**
+     * @param capacity number of records kept; values of 0 or less keep the current capacity
+     */
+    private void setTraceEnabled(CallbackContext callbackContext, boolean enabled, int capacity) {
+        postAction(ACTION_SET_TRACE_ENABLED, () -> {
+            if (capacity > 0) {
+                trace.setCapacity(capacity);
+            }
+            trace.setEnabled(enabled);
+            callbackContext.success();
+        });
+    }
+
+    private void dumpTrace(CallbackContext callbackContext, boolean clear) {
+        postAction(ACTION_DUMP_TRACE, () -> {
+            callbackContext.success(trace.dump());
+            if (clear) {
+                trace.clear();
+            }
+        });
+    }
+
+    /**
+     * Runs an action on the worker thread, recording how long it waited in the queue and ran.
+     */
+    private void postAction(String action, Runnable task) {
+        long queuedNanos = System.nanoTime();
+        workerHandler.post(() -> {
+            long startNanos = System.nanoTime();
+            task.run();
+            metrics.recordAction(action, startNanos - queuedNanos, System.nanoTime() - startNanos);
+        });
+    }
+
+    private void getHistory(CallbackContext callbackContext, long since, int limit) {
+        postAction(ACTION_GET_HISTORY, () -> {
+            try {
+                callbackContext.success(signalHistory.toJson(since, limit));
+            } catch (JSONException e) {
+                String errorMessage = "getHistory ERROR: " + e.getMessage();
+                callbackContext.error(errorMessage);
+                Timber.e(e, errorMessage);
+            }
+        });
+    }
+
+    private void queryPersistentLog(CallbackContext callbackContext, JSONObject options) {
+        postAction(ACTION_QUERY_PERSISTENT_LOG, () -> {
+            try {
+                if (options.optBoolean(KEY_AS_FILE, false)) {
+                    callbackContext.success(persistentLog.getFileJson());
+                    return;
+                }
+                JSONObject result = persistentLog.query(
+                    options.optLong(KEY_FROM, 0),
+                    options.optLong(KEY_TO, Long.MAX_VALUE),
+                    options.optLong(KEY_AFTER_SEQUENCE, 0),
+                    Math.max(1, options.optInt(KEY_LIMIT, PersistentSampleLog.DEFAULT_PAGE_LIMIT))
+                );
+                callbackContext.success(result);
+            } catch (JSONException e) {
+                String errorMessage = "queryPersistentLog ERROR: " + e.getMessage();
+                callbackContext.error(errorMessage);
+                Timber.e(e, errorMessage);
+            }
+        });
+    }
+
+    private void getSignalStats(CallbackContext callbackContext) {
+        postAction(ACTION_GET_SIGNAL_STATS, () -> {
+            try {
+                long now = SystemClock.elapsedRealtime();
+                JSONObject result = new JSONObject()
+                    .put(KEY_CELL, cellSignalStats.toJson(now))
+                    .put(KEY_WIFI, wifiSignalStats.toJson(now));
+                callbackContext.success(result);
+            } catch (JSONException e) {
+                String errorMessage = "getSignalStats ERROR: " + e.getMessage();
+                callbackContext.error(errorMessage);
+                Timber.e(e, errorMessage);
+            }
+        });
+    }
+
     private void registerEventCallbackListeners() {
-        if (!eventListenerCallbacksEnabled) {
-            registerTelephonyListener();
-            registerWifiListener();
-            eventListenerCallbacksEnabled = true;
+        // fails if onDestroy() got in first, in which case nothing may be registered anymore
+        if (!listenerState.register()) {
+            return;
         }
+        // one-shot requests may have passed readings through the filter that no listener received
+        changeFilter.reset();
+        registerTelephonyListener();
+        registerWifiListener();
     }
 
     private void unregisterEventCallbackListeners() {
-        if (eventListenerCallbacksEnabled) {
+        ListenerState previous = listenerState.unregister();
+        if (previous == null) {
+            return;
+        }
+
+        if (previous.parked) {
+            unregisterParkedTelephonyListener();
+        } else {
             unregisterTelephonyListener();
             unregisterWifiListener();
-            eventListenerCallbacksEnabled = false;
+        }
+    }
+
+    /**
+     * @param current false if the listener the callback came from was unregistered since it was queued
+     * @return true if the callback must be dropped
+     */
+    private boolean isStaleCallback(boolean current) {
+        if (!current) {
+            metrics.countStaleCallback();
+        }
+        return !current;
+    }
+
+    /**
+     * Parks the listeners while the activity is paused, unless the app asked to keep them running.
+     */
+    private void updateListenerParking() {
+        if (activityPaused && !keepRunningInBackground) {
+            parkEventCallbackListeners();
+        } else {
+            unparkEventCallbackListeners();
+        }
+    }
+
+    private void parkEventCallbackListeners() {
+        if (!listenerState.park()) {
+            return;
+        }
+        Timber.v("parkEventCallbackListeners()");
+        unregisterTelephonyListener();
+        unregisterWifiListener();
+        registerParkedTelephonyListener();
+        updateMultiSimListening();
+    }
+
+    private void unparkEventCallbackListeners() {
+        if (!listenerState.unpark()) {
+            return;
+        }
+        Timber.v("unparkEventCallbackListeners()");
+        unregisterParkedTelephonyListener();
+        // the webview has not seen anything since we parked, so let the current state through
+        changeFilter.reset();
+        registerTelephonyListener();
+        registerWifiListener();
+        updateMultiSimListening();
+        notifyCellInfoRefresh();
+    }
+
+    /**
+     * Follows every active subscription while the native listeners run unparked, if multiSim is enabled.
+     */
+    private void updateMultiSimListening() {
+        boolean listen = multiSimEnabled
+            && listenerState.get().isListening()
+            && hasLocationPermission();
+
+        if (listen) {
+            multiSimMonitor.startListening();
+        } else {
+            multiSimMonitor.stopListening();
+        }
+    }
+
+    private void registerParkedTelephonyListener() {
+        if (IS_ANDROID_12_OR_GREATER) {
+            if (parkedCellChangeCallback == null) {
+                parkedCellChangeCallback = new ParkedTelephonyCallback();
+            }
+            telephonyManager.registerTelephonyCallback(workerExecutor, parkedCellChangeCallback);
+        } else {
+            telephonyManager.listen(legacyCellChangeCallback, PhoneStateListener.LISTEN_SIGNAL_STRENGTHS);
+        }
+    }
+
+    private void unregisterParkedTelephonyListener() {
+        if (IS_ANDROID_12_OR_GREATER) {
+            telephonyManager.unregisterTelephonyCallback(parkedCellChangeCallback);
+        } else {
+            telephonyManager.listen(legacyCellChangeCallback, PhoneStateListener.LISTEN_NONE);
         }
     }
 
@@ -284,8 +980,15 @@ public class SignalStrength extends CordovaPlugin {
             if (cellChangeCallback == null) {
                 cellChangeCallback = new PluginTelephonyCallback();
             }
-            telephonyManager.registerTelephonyCallback(cordova.getContext().getMainExecutor(), cellChangeCallback);
+            telephonyManager.registerTelephonyCallback(workerExecutor, cellChangeCallback);
         } else {
+            if (legacyCellChangeCallback == null) {
+                // Without an executor, PhoneStateListener delivers callbacks on the looper
+                // of the thread it was created on, which is always the worker thread here.
+                legacyCellChangeCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                    ? new PluginPhoneStateListener(workerExecutor)
+                    : new PluginPhoneStateListener();
+            }
             int flags = PhoneStateListener.LISTEN_CELL_INFO
                 | PhoneStateListener.LISTEN_SIGNAL_STRENGTHS;
             telephonyManager.listen(legacyCellChangeCallback, flags);
@@ -306,11 +1009,14 @@ public class SignalStrength extends CordovaPlugin {
             wifiStateChangedFilter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
         }
 
-        cordova.getActivity().registerReceiver(wifiStateChangedReceiver, wifiStateChangedFilter);
+        if (!wifiStateChangedReceiverRegistered) {
+            cordova.getActivity().registerReceiver(wifiStateChangedReceiver, wifiStateChangedFilter, null, workerHandler);
+            wifiStateChangedReceiverRegistered = true;
+        }
 
         if (IS_ANDROID_12_OR_GREATER) {
-            connectivityManager.registerNetworkCallback(networkRequest, networkCallback);
-            connectivityManager.requestNetwork(networkRequest, networkCallback);
+            // one-shot getWifiState() requests bring their own callback, see wifiStateRequestCallback
+            wifiListenerRegistration.listen(networkRequest);
 
             // registered network callback might not give us any initial info if
             // the radio is off on startup, so manually check here for initialization purposes
@@ -320,81 +1026,188 @@ public class SignalStrength extends CordovaPlugin {
             return;
         }
 
-        if (legacyWifiInfoPollHandler == null) {
-            legacyWifiInfoPollHandler = new Handler(cordova.getActivity().getMainLooper());
+        startLegacyWifiPolling();
+    }
+
+    /**
+     * Starts polling legacy wifi info format, beginning with an immediate poll
+     * so that the shared callback gets fresh data.
+     */
+    private void startLegacyWifiPolling() {
+        if (IS_ANDROID_12_OR_GREATER) {
+            return;
         }
 
         if (legacyWifiInfoPollRunnable == null) {
             legacyWifiInfoPollRunnable = () -> {
-                final long nextPollDelayMs = 10000;
-                pollLegacyWifiStateSync();
-                legacyWifiInfoPollHandler.postDelayed(legacyWifiInfoPollRunnable, nextPollDelayMs);
+                metrics.countCallback("legacyWifiPoll.run");
+                WifiSnapshot snapshot = pollLegacyWifiStateSync();
+                long nextPollDelayMs = legacyWifiPollInterval.next(snapshot);
+                workerHandler.postDelayed(legacyWifiInfoPollRunnable, nextPollDelayMs);
             };
         }
 
-        // Start polling legacy wifi info format.
-        // The first poll should be relatively quick so the shared callback gets fresh data
-        legacyWifiInfoPollHandler.postDelayed(legacyWifiInfoPollRunnable, 50);
+        legacyWifiPollInterval.reset();
+        workerHandler.removeCallbacks(legacyWifiInfoPollRunnable);
+        workerHandler.post(legacyWifiInfoPollRunnable);
+    }
+
+    private void stopLegacyWifiPolling() {
+        if (legacyWifiInfoPollRunnable != null) {
+            workerHandler.removeCallbacks(legacyWifiInfoPollRunnable);
+        }
     }
 
     private void unregisterWifiListener() {
-        cordova.getActivity().unregisterReceiver(wifiStateChangedReceiver);
+        if (wifiStateChangedReceiverRegistered) {
+            cordova.getActivity().unregisterReceiver(wifiStateChangedReceiver);
+            wifiStateChangedReceiverRegistered = false;
+        }
 
         if (IS_ANDROID_12_OR_GREATER) {
-            connectivityManager.unregisterNetworkCallback(networkCallback);
+            wifiListenerRegistration.release();
+            // whatever arrives after registering again is news to the webview
+            wifiCallbackDeduplicator.reset();
             return;
         }
 
-        // Stop polling legacy wifi info format.
-        if (legacyWifiInfoPollHandler != null) {
-            legacyWifiInfoPollHandler.removeCallbacks(legacyWifiInfoPollRunnable);
+        stopLegacyWifiPolling();
+    }
+
+    private boolean hasLocationPermission() {
+        Boolean granted = locationPermissionGranted;
+        if (granted == null) {
+            granted = ActivityCompat.checkSelfPermission(
+                cordova.getContext(),
+                Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+            locationPermissionGranted = granted;
         }
+        return granted;
     }
 
     private void notifyCellInfoRefresh() {
-        if (ActivityCompat.checkSelfPermission(
-            cordova.getContext(),
-            Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            notifyCellInfoChanged(telephonyManager.getAllCellInfo());
+        if (hasLocationPermission()) {
+            cellInfoRefresher.refresh(infoList -> {
+                // a failed refresh leaves the last known cells in place
+                if (infoList != null) {
+                    notifyCellInfoChanged(infoList);
+                }
+            });
         } else {
             Timber.w("ACCESS_FINE_LOCATION permission not granted (from notifyCellInfoRefresh)");
         }
     }
 
+    /**
+     * Applies the given signal strengths to the cached primary cell when possible,
+     * and only falls back to a full getAllCellInfo() rescan when the cache is
+     * stale or the serving cell type no longer matches.
+     */
+    private void notifySignalStrengthsChanged(android.telephony.SignalStrength signalStrength) {
+        trace.record(TraceRecorder.TRACE_SIGNAL_STRENGTHS_CHANGED);
+
+        if (listenerState.get().parked) {
+            recordParkedSignalStrength(signalStrength);
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || signalStrength == null) {
+            notifyCellInfoRefresh();
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        boolean updated = !cellSnapshots.isStale(now, cellRescanIntervalMs)
+            && cellInfoReader.readPrimarySignalStrength(signalStrength.getCellSignalStrengths(), cellSnapshots);
+
+        if (!updated) {
+            notifyCellInfoRefresh();
+            return;
+        }
+
+        cellSnapshots.markUpdated(now);
+        recordCellSample();
+
+        if (!shouldEmitCellState(cellSnapshots)) {
+            return;
+        }
+
+        try {
+            emitCellStateEvent(null);
+        } catch (JSONException e) {
+            Timber.e(e, "failed to notify webview of signal strength updates");
+        }
+    }
+
+    /**
+     * Keeps the cached primary cell current while parked, without rescanning
+     * cell info or building anything for the webview.
+     */
+    private void recordParkedSignalStrength(android.telephony.SignalStrength signalStrength) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || signalStrength == null) {
+            return;
+        }
+        if (cellInfoReader.readPrimarySignalStrength(signalStrength.getCellSignalStrengths(), cellSnapshots)) {
+            cellSnapshots.markUpdated(SystemClock.elapsedRealtime());
+            recordCellSample();
+        }
+    }
+
     private void notifyCellInfoChanged(List<CellInfo> list) {
+        cellInfoReader.readCellSnapshots(list, cellSnapshots);
+        recordCellSample();
+
+        if (!shouldEmitCellState(cellSnapshots)) {
+            return;
+        }
+
         try {
-            JSONObject data = getCellStatePayloadJson(list);
-            emitSharedJsEvent(EVENT_TYPE_CELL_STATE_UPDATED, data);
+            emitCellStateEvent(null);
         } catch (JSONException e) {
             Timber.e(e, "failed to notify webview of cell info updates");
         }
     }
 
     private void notifyWifiNetworkAvailable(@NonNull Network network) {
-        Timber.v("notifyWifiNetworkAvailable handle=%s", network.getNetworkHandle());
+        trace.record(TraceRecorder.TRACE_WIFI_AVAILABLE);
     }
 
     private void notifyWifiNetworkLostConnection() {
-        Timber.v("notifyWifiNetworkLostConnection()");
+        trace.record(TraceRecorder.TRACE_WIFI_LOST_CONNECTION);
         notifyWifiNetworkDisconnected(REASON_LOST_CONNECTION);
     }
 
     private void notifyWifiNetworkUnavailable() {
-        Timber.v("notifyWifiNetworkUnavailable()");
+        trace.record(TraceRecorder.TRACE_WIFI_UNAVAILABLE);
         notifyWifiNetworkDisconnected(REASON_UNAVAILABLE);
     }
 
     private void notifyWifiDisabled() {
-        Timber.v("notifyWifiDisabled()");
+        trace.record(TraceRecorder.TRACE_WIFI_DISABLED);
         notifyWifiNetworkDisconnected(REASON_DISABLED);
     }
 
     private void notifyWifiNetworkDisconnected(String reason) {
-        Timber.v("notifyWifiNetworkDisconnected reason=%s", reason);
+        wifiCallbackDeduplicator.reset();
         try {
-            JSONObject data = getWifiStatePayloadJson(null).put(KEY_REASON, reason);
-            notifyNetworkInfoSuccess(data);
-            emitSharedJsEvent(EVENT_TYPE_WIFI_STATE_UPDATED, data);
+            boolean enabled = wifiManager.isWifiEnabled();
+            boolean changed = updateWifiState(enabled, null, reason);
+            if (!changed && networkInfoCallbacks.isEmpty()) {
+                return;
+            }
+            ProjectedPayload data = null;
+            if (networkInfoCallbacks.isEmpty()) {
+                releaseWifiStateRequest();
+            } else {
+                data = new ProjectedPayload(fieldMask -> SignalPayloadBuilder
+                    .getWifiStatePayloadJson(enabled, null, fieldMask)
+                    .put(KEY_REASON, reason)
+                    .put(KEY_CACHE_AGE_MS, 0));
+                notifyNetworkInfoSuccess(data);
+            }
+            if (changed) {
+                emitWifiStateEvent(enabled, null, reason, data);
+            }
         } catch (Exception e) {
             String errorMessage = "failed to obtain wifi info: " + e.getMessage();
             Timber.e(e, errorMessage);
@@ -407,12 +1220,36 @@ public class SignalStrength extends CordovaPlugin {
         @NonNull Network network,
         @NonNull NetworkCapabilities networkCapabilities
     ) {
-        Timber.v("notifyWifiNetworkCapabilitiesChanged handle=%s", network.getNetworkHandle());
         try {
             WifiInfo info = (WifiInfo) networkCapabilities.getTransportInfo();
-            JSONObject data = getWifiStatePayloadJson(info);
-            notifyNetworkInfoSuccess(data);
-            emitSharedJsEvent(EVENT_TYPE_WIFI_STATE_UPDATED, data);
+            WifiSnapshot snapshot = wifiInfoReader.read(info);
+            trace.record(TraceRecorder.TRACE_WIFI_CAPABILITIES_CHANGED, snapshot != null ? snapshot.rssi : 0);
+            // pending one-shot requests need an answer, so only drop repeats nobody waits for
+            if (snapshot == null || !networkInfoCallbacks.isEmpty()) {
+                wifiCallbackDeduplicator.reset();
+            } else if (wifiCallbackDeduplicator.isDuplicate(snapshot)) {
+                // the reading still counts as a sample; only the change filter and json are skipped
+                trace.record(TraceRecorder.TRACE_WIFI_CALLBACK_DEDUPLICATED);
+                recordWifiSample(wifiManager.isWifiEnabled(), snapshot, null);
+                return;
+            }
+            boolean enabled = wifiManager.isWifiEnabled();
+            boolean changed = updateWifiState(enabled, snapshot, null);
+            if (!changed && networkInfoCallbacks.isEmpty()) {
+                return;
+            }
+            ProjectedPayload data = null;
+            if (networkInfoCallbacks.isEmpty()) {
+                releaseWifiStateRequest();
+            } else {
+                data = new ProjectedPayload(fieldMask -> SignalPayloadBuilder
+                    .getWifiStatePayloadJson(enabled, snapshot, fieldMask)
+                    .put(KEY_CACHE_AGE_MS, 0));
+                notifyNetworkInfoSuccess(data);
+            }
+            if (changed) {
+                emitWifiStateEvent(enabled, snapshot, null, data);
+            }
         } catch (Exception e) {
             String errorMessage = "failed to obtain wifi info: " + e.getMessage();
             Timber.e(e, errorMessage);
@@ -420,290 +1257,537 @@ public class SignalStrength extends CordovaPlugin {
         }
     }
 
-    private void getCellStateSync(CallbackContext callbackContext) throws JSONException {
-        Timber.v("getCellStateSync()");
+    private void getCellStateSync(
+        CallbackContext callbackContext,
+        long maxAgeMs,
+        boolean binary,
+        int fieldMask
+    ) throws JSONException {
+        long now = SystemClock.elapsedRealtime();
+
+        if (maxAgeMs > 0 && binary && cellSnapshots.isFresh(now, maxAgeMs)) {
+            trace.record(TraceRecorder.TRACE_CELL_STATE_REQUEST, 1, 0);
+            callbackContext.success(binaryEncoder.encodeCellState(cellSnapshots, cellSnapshots.getAgeMs(now)));
+            return;
+        }
+
+        JSONObject cached = binary ? null : getCachedCellStateJson(maxAgeMs, fieldMask);
 
-        if (ActivityCompat.checkSelfPermission(
-            cordova.getContext(),
-            Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+        if (cached != null) {
+            trace.record(TraceRecorder.TRACE_CELL_STATE_REQUEST, 1, 0);
+            callbackContext.success(cached);
+            return;
+        }
+
+        // Concurrent requests share the result of the first caller's query
+        if (!cellStateCallbacks.join(callbackContext, 0, binary, fieldMask)) {
+            trace.record(TraceRecorder.TRACE_CELL_STATE_REQUEST, 0, 1);
+            return;
+        }
+
+        trace.record(TraceRecorder.TRACE_CELL_STATE_REQUEST, 0, 0);
+        queryCellStateSync();
+    }
+
+    private void queryCellStateSync() {
+        if (!hasLocationPermission()) {
             String errorMessage = "ACCESS_FINE_LOCATION permission not granted";
             Timber.w(errorMessage);
-            callbackContext.error(errorMessage);
+            cellStateCallbacks.error(errorMessage);
             return;
         }
 
-        // This will give info of all sims present inside your mobile
-        List<CellInfo> infoList = telephonyManager.getAllCellInfo();
+        boolean multiSim = multiSimEnabled && multiSimMonitor.isAvailable();
 
-        if (infoList != null) {
-            JSONObject data = getCellStatePayloadJson(infoList);
-            callbackContext.success(data);
-            emitSharedJsEvent(EVENT_TYPE_CELL_STATE_UPDATED, data);
-        } else {
-            String errorMessage = "failed to get cell info list";
-            Timber.w(errorMessage);
-            callbackContext.error(errorMessage);
+        if (multiSim) {
+            // runs in parallel with the default query below
+            multiSimMonitor.refreshAll(cellInfoRefresher.getTimeoutMs());
         }
+
+        cellInfoRefresher.refresh(infoList -> {
+            if (multiSim) {
+                multiSimMonitor.whenRefreshed(() -> completeCellStateQuery(infoList));
+            } else {
+                completeCellStateQuery(infoList);
+            }
+        });
     }
 
-    private void notifyNetworkInfoSuccess(JSONObject payload) {
-        if (networkInfoCallbacks.isEmpty()) {
-            Timber.w("notifyNetworkInfoSuccess() callback list is empty");
-            return;
+    /**
+     * @param infoList the refreshed cell info, or null if the refresh failed or passed its deadline
+     */
+    private void completeCellStateQuery(List<CellInfo> infoList) {
+        try {
+            long now = SystemClock.elapsedRealtime();
+
+            if (infoList != null) {
+                cellInfoReader.readCellSnapshots(infoList, cellSnapshots);
+                recordCellSample();
+                boolean changed = shouldEmitCellState(cellSnapshots);
+                ProjectedPayload data = new ProjectedPayload(fieldMask -> getCellStatePayloadJson(fieldMask)
+                    .put(KEY_CACHE_AGE_MS, 0));
+                byte[] frame = cellStateCallbacks.hasBinaryWaiters()
+                    ? binaryEncoder.encodeCellState(cellSnapshots, 0)
+                    : null;
+                cellStateCallbacks.success(data, frame);
+                if (changed) {
+                    emitCellStateEvent(data);
+                }
+            } else if (cellSnapshots.isFresh(now, Long.MAX_VALUE)) {
+                // answer with the last known cells rather than failing outright
+                long cacheAgeMs = cellSnapshots.getAgeMs(now);
+                ProjectedPayload data = new ProjectedPayload(fieldMask -> getCellStatePayloadJson(fieldMask)
+                    .put(KEY_CACHE_AGE_MS, cacheAgeMs)
+                    .put(KEY_STALE, true));
+                byte[] frame = cellStateCallbacks.hasBinaryWaiters()
+                    ? binaryEncoder.encodeCellState(cellSnapshots, cacheAgeMs, true)
+                    : null;
+                cellStateCallbacks.success(data, frame);
+            } else {
+                String errorMessage = "failed to get cell info list";
+                Timber.w(errorMessage);
+                cellStateCallbacks.error(errorMessage);
+            }
+        } catch (JSONException e) {
+            String errorMessage = "getCellState ERROR: " + e.getMessage();
+            Timber.e(e, errorMessage);
+            cellStateCallbacks.error(errorMessage);
         }
+    }
 
-        for (CallbackContext cb : networkInfoCallbacks) {
-            if (cb != null) {
-                cb.success(payload);
-            }
+    /**
+     * @param fieldMask FieldMask bits of the fields to include
+     * @return the payload of the last known cell state, keyed per subscription as well if multiSim is enabled
+     */
+    private JSONObject getCellStatePayloadJson(int fieldMask) throws JSONException {
+        JSONObject result = SignalPayloadBuilder.getCellStatePayloadJson(cellSnapshots, fieldMask);
+        if (FieldMask.includes(fieldMask, FieldMask.SIM_SUBSCRIPTIONS)
+            && multiSimEnabled && multiSimMonitor.size() > 0) {
+            result.put(KEY_SIM_SUBSCRIPTIONS, multiSimMonitor.toJson());
         }
+        return result;
+    }
 
-        networkInfoCallbacks.clear();
+    private boolean notifySubscriptionCellsChanged(SubscriptionCellMonitor monitor) {
+        metrics.countCallback("subscriptionCellMonitor.onSubscriptionCellsChanged");
+        try {
+            return emitCellStateEvent(null);
+        } catch (JSONException e) {
+            Timber.e(e, "failed to notify webview of subscription %s cell updates", monitor.subscriptionId);
+            return false;
+        }
     }
 
-    private void notifyNetworkInfoError(String errorMessage) {
+    /**
+     * @return the last known cell state if it was updated within maxAgeMs, otherwise null
+     */
+    private JSONObject getCachedCellStateJson(long maxAgeMs, int fieldMask) throws JSONException {
+        if (maxAgeMs <= 0) {
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (!cellSnapshots.isFresh(now, maxAgeMs)) {
+            return null;
+        }
+        return getCellStatePayloadJson(fieldMask)
+            .put(KEY_CACHE_AGE_MS, cellSnapshots.getAgeMs(now));
+    }
+
+    private void notifyNetworkInfoSuccess(ProjectedPayload payload) throws JSONException {
+        releaseWifiStateRequest();
         if (networkInfoCallbacks.isEmpty()) {
+            Timber.w("notifyNetworkInfoSuccess() callback list is empty");
+            return;
+        }
+        // the cache always holds the state the payload was built from at this point
+        byte[] frame = networkInfoCallbacks.hasBinaryWaiters()
+            ? encodeCachedWifiState(0)
+            : null;
+        networkInfoCallbacks.success(payload, frame);
+    }
+
+    private void notifyNetworkInfoError(String errorMessage) {
+        metrics.countWifiStateError();
+        releaseWifiStateRequest();
+        if (!networkInfoCallbacks.error(errorMessage)) {
             Timber.w("notifyNetworkInfoError() callback list is empty");
+        }
+    }
+
+    private void getWifiStateSync(
+        CallbackContext callbackContext,
+        long maxAgeMs,
+        long timeoutMs,
+        boolean binary,
+        int fieldMask
+    ) throws JSONException {
+        long now = SystemClock.elapsedRealtime();
+
+        if (maxAgeMs > 0 && binary && wifiStateCache.isFresh(now, maxAgeMs)) {
+            trace.record(TraceRecorder.TRACE_WIFI_STATE_REQUEST, 1);
+            callbackContext.success(encodeCachedWifiState(wifiStateCache.getAgeMs(now)));
             return;
         }
 
-        for (CallbackContext cb : networkInfoCallbacks) {
-            if (cb != null) {
-                cb.error(errorMessage);
-            }
+        JSONObject cached = binary ? null : getCachedWifiStateJson(maxAgeMs, fieldMask);
+
+        if (cached != null) {
+            trace.record(TraceRecorder.TRACE_WIFI_STATE_REQUEST, 1);
+            callbackContext.success(cached);
+            return;
         }
 
-        networkInfoCallbacks.clear();
-    }
+        trace.record(TraceRecorder.TRACE_WIFI_STATE_REQUEST, 0);
 
-    private void getWifiStateSync(CallbackContext callbackContext) throws JSONException {
-        Timber.v("getWifiStateSync()");
         if (IS_ANDROID_12_OR_GREATER) {
-            requestStandardWifiStateSync(callbackContext);
+            requestStandardWifiStateSync(callbackContext, timeoutMs, binary, fieldMask);
         } else {
-            requestLegacyWifiStateSync(callbackContext);
+            requestLegacyWifiStateSync(callbackContext, binary, fieldMask);
         }
     }
 
-    private void requestStandardWifiStateSync(CallbackContext callbackContext) {
-        Timber.v("requestStandardWifiStateSync()");
-        networkInfoCallbacks.add(callbackContext);
-        connectivityManager.requestNetwork(networkRequest, networkCallback);
+    private byte[] encodeCachedWifiState(long cacheAgeMs) {
+        WifiSnapshot info = wifiStateCache.connected ? wifiStateCache.info : null;
+        return binaryEncoder.encodeWifiState(wifiStateCache.enabled, info, wifiStateCache.reason, cacheAgeMs);
     }
 
-    private void requestLegacyWifiStateSync(CallbackContext callbackContext) throws JSONException {
-        Timber.v("requestLegacyWifiStateSync()");
-        WifiInfo info = wifiManager.getConnectionInfo();
-        JSONObject result = getWifiStatePayloadJson(info);
-        callbackContext.success(result);
-        emitSharedJsEvent(EVENT_TYPE_WIFI_STATE_UPDATED, result);
+    /**
+     * @return the last known wifi state if it was updated within maxAgeMs, otherwise null
+     */
+    private JSONObject getCachedWifiStateJson(long maxAgeMs, int fieldMask) throws JSONException {
+        if (maxAgeMs <= 0) {
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (!wifiStateCache.isFresh(now, maxAgeMs)) {
+            return null;
+        }
+        WifiSnapshot info = wifiStateCache.connected ? wifiStateCache.info : null;
+        return SignalPayloadBuilder.getWifiStatePayloadJson(wifiStateCache.enabled, info, fieldMask)
+            .putOpt(KEY_REASON, wifiStateCache.reason)
+            .put(KEY_CACHE_AGE_MS, wifiStateCache.getAgeMs(now));
     }
 
-    private void pollLegacyWifiStateSync() {
-        Timber.v("pollLegacyWifiStateSync()");
-        try {
-            WifiInfo info = wifiManager.getConnectionInfo();
-            JSONObject result = getWifiStatePayloadJson(info);
-            emitSharedJsEvent(EVENT_TYPE_WIFI_STATE_UPDATED, result);
-        } catch (Exception e) {
-            Timber.e(e, "pollLegacyWifiStateSync() failed!");
+    /**
+     * Records the given reading as the last known wifi state.
+     * @return true if the reading differs enough from the last emitted state to be emitted
+     */
+    private boolean updateWifiState(boolean enabled, WifiSnapshot snapshot, String reason) {
+        recordWifiSample(enabled, snapshot, reason);
+        boolean changed = changeFilter.shouldEmitWifi(enabled, snapshot);
+        if (!changed) {
+            metrics.countEventSuppressed(EVENT_TYPE_WIFI_STATE_UPDATED);
+            trace.record(TraceRecorder.TRACE_WIFI_STATE_SUPPRESSED);
         }
+        return changed;
     }
 
-    private void emitSharedJsEvent(String type, JSONObject data) throws JSONException {
-        if (sharedJsEventCallback != null && type != null) {
-            Timber.v("emitSharedJsEvent type = %s", type);
-            if (data == null) {
-                data = new JSONObject();
+    /**
+     * Updates the cache, history, logs and detectors with a reading, without the change filter.
+     */
+    private void recordWifiSample(boolean enabled, WifiSnapshot snapshot, String reason) {
+        long now = SystemClock.elapsedRealtime();
+        wifiStateCache.update(enabled, snapshot, reason, now);
+        long timestamp = System.currentTimeMillis();
+        signalHistory.addWifi(timestamp, snapshot);
+        persistentLog.addWifi(timestamp, snapshot);
+        if (snapshot != null && RollingSignalStats.isValidSample(snapshot.rssi)) {
+            wifiSignalStats.add(now, snapshot.rssi);
+        }
+        degradationDetector.addWifi(now, snapshot);
+        emitDegradationEvent(SignalDegradationDetector.SOURCE_WIFI, now);
+    }
+
+    private void requestStandardWifiStateSync(
+        CallbackContext callbackContext,
+        long timeoutMs,
+        boolean binary,
+        int fieldMask
+    ) throws JSONException {
+        // A network request will never resolve while the radio is off, so answer right away
+        if (!wifiManager.isWifiEnabled()) {
+            updateWifiState(false, null, REASON_DISABLED);
+            if (binary) {
+                callbackContext.success(binaryEncoder.encodeWifiState(false, null, REASON_DISABLED, 0));
+                return;
             }
-            JSONObject payload = new JSONObject()
-                .put(KEY_TYPE, type)
-                .put(KEY_DATA, data);
-            PluginResult result = new PluginResult(PluginResult.Status.OK, payload);
-            result.setKeepCallback(true);
-            sharedJsEventCallback.sendPluginResult(result);
+            JSONObject result = SignalPayloadBuilder.getWifiStatePayloadJson(false, null, fieldMask)
+                .put(KEY_REASON, REASON_DISABLED)
+                .put(KEY_CACHE_AGE_MS, 0);
+            callbackContext.success(result);
+            return;
+        }
+
+        // Only the first waiter issues a network request; the rest share its result
+        if (networkInfoCallbacks.join(callbackContext, timeoutMs, binary, fieldMask)) {
+            wifiStateRequestRegistration.request(networkRequest);
         }
     }
 
-    private JSONObject getWifiStatePayloadJson(WifiInfo info) throws JSONException {
-        JSONObject result = new JSONObject();
-        boolean wifiEnabled = wifiManager.isWifiEnabled();
-        boolean hasWifiInfo = info != null;
+    private void releaseWifiStateRequest() {
+        wifiStateRequestRegistration.release();
+    }
 
-        result.put(KEY_ENABLED, wifiEnabled);
-        result.put(KEY_CONNECTED, hasWifiInfo);
+    private void requestLegacyWifiStateSync(
+        CallbackContext callbackContext,
+        boolean binary,
+        int fieldMask
+    ) throws JSONException {
+        WifiSnapshot snapshot = wifiInfoReader.read(wifiManager.getConnectionInfo());
+        boolean enabled = wifiManager.isWifiEnabled();
+        boolean changed = updateWifiState(enabled, snapshot, null);
+        ProjectedPayload result = null;
+        if (binary) {
+            callbackContext.success(binaryEncoder.encodeWifiState(enabled, snapshot, null, 0));
+        } else {
+            result = new ProjectedPayload(mask -> SignalPayloadBuilder
+                .getWifiStatePayloadJson(enabled, snapshot, mask)
+                .put(KEY_CACHE_AGE_MS, 0));
+            callbackContext.success(result.get(fieldMask));
+        }
+        if (changed) {
+            emitWifiStateEvent(enabled, snapshot, null, result);
+        }
+    }
 
-        if (hasWifiInfo) {
-            result.put(KEY_INFO, getWifiInfoJson(info));
+    /**
+     * @return the polled connection info, or null if wifi is not connected or the poll failed
+     */
+    private WifiSnapshot pollLegacyWifiStateSync() {
+        try {
+            WifiSnapshot snapshot = wifiInfoReader.read(wifiManager.getConnectionInfo());
+            trace.record(TraceRecorder.TRACE_LEGACY_WIFI_POLL, snapshot != null ? snapshot.rssi : 0);
+            boolean enabled = wifiManager.isWifiEnabled();
+            if (!updateWifiState(enabled, snapshot, null)) {
+                return snapshot;
+            }
+            emitWifiStateEvent(enabled, snapshot, null, null);
+            return snapshot;
+        } catch (Exception e) {
+            Timber.e(e, "pollLegacyWifiStateSync() failed!");
+            return null;
         }
+    }
 
-        Timber.v("getWifiStatePayloadJson() enabled = %s, has info = %s", wifiEnabled, hasWifiInfo);
+    /**
+     * @param data the json payloads if the caller already built some, otherwise null
+     * @return false if nobody subscribes to cell state events
+     */
+    private boolean emitCellStateEvent(ProjectedPayload data) throws JSONException {
+        int formats = eventSubscriptions.getFormats(EVENT_TYPE_CELL_STATE_UPDATED);
 
-        return result;
+        if (formats == 0) {
+            metrics.countEventDropped(EVENT_TYPE_CELL_STATE_UPDATED);
+            return false;
+        }
+
+        trace.record(TraceRecorder.TRACE_EVENT_EMITTED, TraceRecorder.EVENT_CELL_STATE);
+        emitSharedJsEvent(createCellStateEvent(formats, eventSubscriptions.getFieldMasks(EVENT_TYPE_CELL_STATE_UPDATED), data));
+        return true;
     }
 
-    private JSONObject getWifiInfoJson(WifiInfo info) throws JSONException {
-        JSONObject result = new JSONObject();
-        String ssid = info.getSSID();
-        int rssi = info.getRssi();
-        boolean includeLevel = false;
+    /**
+     * @param formats a FORMAT_* mask of the payloads to build
+     * @param fieldMasks the FieldMasks to build the json payload for
+     * @param data the json payloads if the caller already built some, otherwise null
+     */
+    private SharedEvent createCellStateEvent(int formats, Set<Integer> fieldMasks, ProjectedPayload data) throws JSONException {
+        if (data == null) {
+            data = new ProjectedPayload(this::getCellStatePayloadJson);
+        }
 
-        result.put(KEY_SSID, info.getSSID());
-        result.put(KEY_BSSID, info.getBSSID());
-        result.put(KEY_NETWORK_ID, info.getNetworkId());
-        result.put(KEY_RSSI, rssi);
-        result.put(KEY_LINK_SPEED_MBPS, info.getLinkSpeed());
+        byte[] frame = (formats & EventSubscriptionRegistry.FORMAT_BINARY) != 0
+            ? binaryEncoder.encodeCellState(cellSnapshots, BinaryStateEncoder.NO_CACHE_AGE)
+            : null;
+        CellSnapshot primary = cellSnapshots.getPrimary();
+        boolean hasDbm = primary != null && primary.loaded;
+        SharedEvent event = new SharedEvent(
+            EVENT_TYPE_CELL_STATE_UPDATED,
+            null,
+            frame,
+            getEventStatsJson(EVENT_TYPE_CELL_STATE_UPDATED, formats),
+            hasDbm ? primary.cellType : null,
+            hasDbm ? primary.dbm : 0
+        );
+        putEventData(event, fieldMasks, data);
+        return event;
+    }
 
-        if (Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.R) {
-            includeLevel = true;
-            result.put(KEY_LEVEL, wifiManager.calculateSignalLevel(rssi));
-            result.put(KEY_MAX_LEVEL, wifiManager.getMaxSignalLevel());
-            result.put(KEY_TX_LINK_SPEED_MBPS, info.getTxLinkSpeedMbps());
-            result.put(KEY_MAX_TX_LINK_SPEED_MBPS, info.getMaxSupportedTxLinkSpeedMbps());
-            result.put(KEY_RX_LINK_SPEED_MBPS, info.getRxLinkSpeedMbps());
-            result.put(KEY_MAX_RX_LINK_SPEED_MBPS, info.getMaxSupportedRxLinkSpeedMbps());
+    /**
+     * @param data the json payloads if the caller already built some, otherwise null
+     */
+    private void emitWifiStateEvent(
+        boolean enabled,
+        WifiSnapshot info,
+        String reason,
+        ProjectedPayload data
+    ) throws JSONException {
+        int formats = eventSubscriptions.getFormats(EVENT_TYPE_WIFI_STATE_UPDATED);
+
+        if (formats == 0) {
+            metrics.countEventDropped(EVENT_TYPE_WIFI_STATE_UPDATED);
+            return;
         }
 
-        Timber.v("getWifiInfoJson() ssid = %s, rssi = %s = includeLevel = %s", ssid, rssi, includeLevel);
+        trace.record(TraceRecorder.TRACE_EVENT_EMITTED, TraceRecorder.EVENT_WIFI_STATE);
+        emitSharedJsEvent(createWifiStateEvent(
+            formats,
+            eventSubscriptions.getFieldMasks(EVENT_TYPE_WIFI_STATE_UPDATED),
+            enabled,
+            info,
+            reason,
+            data
+        ));
+    }
 
-        return result;
+    /**
+     * @param formats a FORMAT_* mask of the payloads to build
+     * @param fieldMasks the FieldMasks to build the json payload for
+     * @param data the json payloads if the caller already built some, otherwise null
+     */
+    private SharedEvent createWifiStateEvent(
+        int formats,
+        Set<Integer> fieldMasks,
+        boolean enabled,
+        WifiSnapshot info,
+        String reason,
+        ProjectedPayload data
+    ) throws JSONException {
+        if (data == null) {
+            data = new ProjectedPayload(fieldMask -> SignalPayloadBuilder
+                .getWifiStatePayloadJson(enabled, info, fieldMask)
+                .putOpt(KEY_REASON, reason));
+        }
+
+        byte[] frame = (formats & EventSubscriptionRegistry.FORMAT_BINARY) != 0
+            ? binaryEncoder.encodeWifiState(enabled, info, reason, BinaryStateEncoder.NO_CACHE_AGE)
+            : null;
+        SharedEvent event = new SharedEvent(
+            EVENT_TYPE_WIFI_STATE_UPDATED,
+            null,
+            frame,
+            getEventStatsJson(EVENT_TYPE_WIFI_STATE_UPDATED, formats),
+            null,
+            0
+        );
+        putEventData(event, fieldMasks, data);
+        return event;
     }
 
-    private JSONObject getCellStatePayloadJson(List<CellInfo> infoList) throws JSONException {
-        JSONObject primary = null;
-        ArrayList<JSONObject> alternates = new ArrayList<>();
+    /**
+     * Builds the payload of the event once for each of the given field masks.
+     */
+    private void putEventData(SharedEvent event, Set<Integer> fieldMasks, ProjectedPayload data) throws JSONException {
+        for (int fieldMask : fieldMasks) {
+            event.putData(fieldMask, data.get(fieldMask));
+        }
+    }
 
-        if (infoList != null) {
-            Timber.v("getCellStatePayloadJson() checking %s instance(s)", infoList.size());
-            for (CellInfo info : infoList) {
-                if (info == null || !info.isRegistered()) {
-                    continue;
-                }
+    /**
+     * Emits a signalDegrading / signalRecovered event if the given source changed state.
+     * Transitions are held back while no native listeners run unparked or nobody
+     * subscribes to the event, and emitted with the next reading or subscriber once they do.
+     */
+    private void emitDegradationEvent(int source, long now) {
+        if (!listenerState.get().isListening() || !degradationDetector.hasTransition(source)) {
+            return;
+        }
 
-                JSONObject serializedInfo = getCellInfoJson(info);
+        try {
+            boolean degrading = degradationDetector.isDegraded(source);
+            String type = degrading ? EVENT_TYPE_SIGNAL_DEGRADING : EVENT_TYPE_SIGNAL_RECOVERED;
 
-                if (primary == null && serializedInfo.optBoolean(KEY_PRIMARY)) {
-                    primary = serializedInfo;
-                } else {
-                    serializedInfo.remove(KEY_PRIMARY);
-                    alternates.add(serializedInfo);
-                }
+            if (eventSubscriptions.getFormats(type) == 0) {
+                return;
             }
-        } else {
-            // shouldn't ever happen... but just in case
-            Timber.w("getCellStatePayloadJson() received null list");
+
+            JSONObject data = degradationDetector.takeTransition(source, now);
+
+            trace.record(
+                TraceRecorder.TRACE_EVENT_EMITTED,
+                degrading ? TraceRecorder.EVENT_SIGNAL_DEGRADING : TraceRecorder.EVENT_SIGNAL_RECOVERED
+            );
+            // no binary frame; binary subscribers receive these rare events as json
+            emitSharedJsEvent(new SharedEvent(type, data, null, null, null, 0));
+        } catch (JSONException e) {
+            Timber.e(e, "failed to notify webview of signal degradation");
         }
+    }
 
-        // If we failed to find a proper primary, try to
-        // fall back to an alternate instance that has loaded data
-        if (primary == null && !alternates.isEmpty()) {
-            for (JSONObject alternate : alternates) {
-                if (alternate != null && alternate.optBoolean(KEY_CELL_DATA_LOADED)) {
-                    primary = alternate;
-                    break;
-                }
-            }
-            // Couldn't find an alternate with loaded data, fall back to
-            // first instance as a last-ditch effort
-            if (primary == null) {
-                primary = alternates.get(0);
-            }
-            // If we found a new primary, remove it from the alternates list to
-            // avoid creating a cyclic JSON object
-            if (primary != null) {
-                primary.put(KEY_PRIMARY, false);
-                alternates.remove(primary);
-            }
+    private void emitSharedJsEvent(SharedEvent event) {
+        metrics.countEventEmitted(event.type);
+        eventSubscriptions.dispatch(event);
+        markStateEmitted(event.type);
+    }
+
+    /**
+     * Lets the change filter hold the next readings against the state this event carried.
+     */
+    private void markStateEmitted(String type) {
+        if (EVENT_TYPE_CELL_STATE_UPDATED.equals(type)) {
+            changeFilter.commitCell();
+        } else if (EVENT_TYPE_WIFI_STATE_UPDATED.equals(type)) {
+            changeFilter.commitWifi();
         }
+    }
 
-        JSONObject result;
+    /**
+     * @return rolling stats of the source the given event type belongs to,
+     * or null if there are none or no subscriber attaches them
+     */
+    private JSONArray getEventStatsJson(String type, int formats) throws JSONException {
+        if ((formats & EventSubscriptionRegistry.FORMAT_STATS) == 0) {
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        switch (type) {
+            case EVENT_TYPE_CELL_STATE_UPDATED:
+                return cellSignalStats.toJson(now);
+            case EVENT_TYPE_WIFI_STATE_UPDATED:
+                return wifiSignalStats.toJson(now);
+            default:
+                return null;
+        }
+    }
+
+    private void recordCellSample() {
+        CellSnapshot primary = cellSnapshots.getPrimary();
+        long timestamp = System.currentTimeMillis();
+        long now = SystemClock.elapsedRealtime();
 
-        if (primary != null) {
-            result = primary;
+        if (primary == null) {
+            signalHistory.addCell(timestamp, false, CellSnapshot.CELL_TYPE_UNKNOWN, -1, 0);
+            persistentLog.addCell(timestamp, false, CellSnapshot.CELL_TYPE_UNKNOWN, -1, 0);
+            degradationDetector.addCell(now, false, CellSnapshot.CELL_TYPE_UNKNOWN, -1);
         } else {
-            result = new JSONObject();
-            result.put(KEY_PRIMARY, false);
+            signalHistory.addCell(timestamp, true, primary.cellType, primary.dbm, primary.level);
+            persistentLog.addCell(timestamp, true, primary.cellType, primary.dbm, primary.level);
+            if (primary.loaded && RollingSignalStats.isValidSample(primary.dbm)) {
+                cellSignalStats.add(now, primary.dbm);
+            }
+            degradationDetector.addCell(now, true, primary.cellType, primary.loaded ? primary.dbm : CellSnapshot.UNAVAILABLE);
         }
 
-        result.put(KEY_ALTERNATES, new JSONArray(alternates));
-
-        return result;
+        emitDegradationEvent(SignalDegradationDetector.SOURCE_CELL, now);
     }
 
-    private JSONObject getCellInfoJson(CellInfo info) throws JSONException {
-        JSONObject result = new JSONObject();
-        String cellType = CELL_TYPE_UNKNOWN;
-        boolean primary = false;
-        boolean loaded = false;
-        int connectionStatus = 0;
-        int dbm = -1;
-        int level = 0;
-
-        if (info != null) {
-            cellType = info.getClass().getSimpleName();
-            boolean registered = info.isRegistered();
-            if (Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.P) {
-                connectionStatus = info.getCellConnectionStatus();
-                primary = registered && (
-                    connectionStatus == CellInfo.CONNECTION_PRIMARY_SERVING
-                        || connectionStatus == CellInfo.CONNECTION_SECONDARY_SERVING
-                );
-            } else {
-                primary = registered;
-            }
-        }
-
-        // Unfortunately, we need to switch over these manually instead of
-        // using getCellSignalStrength() so we can support android versions lower than 30.
-        if (info instanceof CellInfoCdma) {
-            CellInfoCdma cellInfoCdma = (CellInfoCdma) info;
-            CellSignalStrengthCdma cellSignalStrengthCdma = cellInfoCdma.getCellSignalStrength();
-            dbm = cellSignalStrengthCdma.getDbm();
-            level = cellSignalStrengthCdma.getLevel();
-            loaded = true;
-        } else if (info instanceof CellInfoGsm) {
-            CellInfoGsm cellInfogsm = (CellInfoGsm) info;
-            CellSignalStrengthGsm cellSignalStrengthGsm = cellInfogsm.getCellSignalStrength();
-            dbm = cellSignalStrengthGsm.getDbm();
-            level = cellSignalStrengthGsm.getLevel();
-            loaded = true;
-        } else if (info instanceof CellInfoLte) {
-            CellInfoLte cellInfoLte = (CellInfoLte) info;
-            CellSignalStrengthLte cellSignalStrengthLte = cellInfoLte.getCellSignalStrength();
-            dbm = cellSignalStrengthLte.getDbm();
-            level = cellSignalStrengthLte.getLevel();
-            loaded = true;
-        } else if (info instanceof CellInfoWcdma) {
-            CellInfoWcdma cellInfoWcdma = (CellInfoWcdma) info;
-            CellSignalStrengthWcdma cellSignalStrengthWcdma = cellInfoWcdma.getCellSignalStrength();
-            dbm = cellSignalStrengthWcdma.getDbm();
-            level = cellSignalStrengthWcdma.getLevel();
-            loaded = true;
-        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            if (info instanceof CellInfoNr) {
-                CellInfoNr cellInfoNr = (CellInfoNr) info;
-                CellSignalStrength cellSignalStrengthNr = cellInfoNr.getCellSignalStrength();
-                dbm = cellSignalStrengthNr.getDbm();
-                level = cellSignalStrengthNr.getLevel();
-                loaded = true;
-            } else if (info instanceof CellInfoTdscdma) {
-                CellInfoTdscdma cellInfoTdscdma = (CellInfoTdscdma) info;
-                CellSignalStrength cellSignalStrengthTdscdma = cellInfoTdscdma.getCellSignalStrength();
-                dbm = cellSignalStrengthTdscdma.getDbm();
-                level = cellSignalStrengthTdscdma.getLevel();
-                loaded = true;
-            }
-        }
-
-        Timber.v("getCellInfoJson() result = %s dbm(%s) level(%s) primary = %s", cellType, dbm, level, primary);
-
-        result.put(KEY_PRIMARY, primary);
-        result.put(KEY_CELL_TYPE, cellType);
-        result.put(KEY_DBM, dbm);
-        result.put(KEY_LEVEL, level);
-        result.put(KEY_CONNECTION_STATUS, connectionStatus);
-        result.put(KEY_CELL_DATA_LOADED, loaded);
+    private boolean shouldEmitCellState(CellSnapshotSet cells) {
+        CellSnapshot primary = cells.getPrimary();
+        boolean changed = primary == null
+            ? changeFilter.shouldEmitCell(false, CellSnapshot.CELL_TYPE_UNKNOWN, -1, 0, 0)
+            : changeFilter.shouldEmitCell(
+                true,
+                primary.cellType,
+                primary.dbm,
+                primary.level,
+                primary.connectionStatus
+            );
+
+        if (!changed) {
+            metrics.countEventSuppressed(EVENT_TYPE_CELL_STATE_UPDATED);
+            trace.record(TraceRecorder.TRACE_CELL_STATE_SUPPRESSED);
+        }
 
-        return result;
+        return changed;
     }
 }
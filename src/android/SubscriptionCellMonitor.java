@@ -0,0 +1,271 @@
+package com.hrs.signalstrength;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.telephony.CellInfo;
+import android.telephony.PhoneStateListener;
+import android.telephony.SubscriptionInfo;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Listens to the cells of a single active subscription (SIM) through a
+ * TelephonyManager bound to its subscription id, and caches them.
+ * Rescans go through a CellInfoRefresher of that TelephonyManager, so they share
+ * the deadline, merging and metrics of the default subscription's refreshes.
+ * Only accessed from the plugin worker thread.
+ */
+class SubscriptionCellMonitor {
+    private static final String KEY_SUBSCRIPTION_ID = "subscriptionId";
+    private static final String KEY_SLOT_INDEX = "slotIndex";
+    private static final String KEY_CARRIER_NAME = "carrierName";
+    private static final String KEY_CACHE_AGE_MS = "cacheAgeMs";
+
+    interface Listener {
+        /**
+         * Called when the primary cell of the subscription changed beyond the configured hysteresis.
+         * @return false if the change was not dispatched, so that the next reading is compared
+         * against the last dispatched one instead
+         */
+        boolean onSubscriptionCellsChanged(SubscriptionCellMonitor monitor);
+    }
+
+    final int subscriptionId;
+    private final TelephonyManager telephonyManager;
+    private final CellInfoReader cellInfoReader;
+    private final CellInfoRefresher cellInfoRefresher;
+    private final Executor executor;
+    private final PluginMetrics metrics;
+    private final Listener listener;
+    private final CellSnapshotSet cells = new CellSnapshotSet();
+    private final SignalChangeFilter changeFilter = new SignalChangeFilter();
+    private int slotIndex = -1;
+    private String carrierName = null;
+    private long rescanIntervalMs = 0;
+    private TelephonyCallback callback = null;
+    private PhoneStateListener legacyCallback = null;
+    private boolean registered = false;
+
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    SubscriptionCellMonitor(
+        SubscriptionInfo info,
+        TelephonyManager baseTelephonyManager,
+        CellInfoReader cellInfoReader,
+        Handler handler,
+        Executor executor,
+        PluginMetrics metrics,
+        Listener listener
+    ) {
+        this.subscriptionId = info.getSubscriptionId();
+        this.telephonyManager = baseTelephonyManager.createForSubscriptionId(subscriptionId);
+        this.cellInfoReader = cellInfoReader;
+        this.cellInfoRefresher = new CellInfoRefresher(telephonyManager, handler, executor, metrics);
+        this.executor = executor;
+        this.metrics = metrics;
+        this.listener = listener;
+        update(info);
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.S)
+    private class MonitorTelephonyCallback extends TelephonyCallback
+        implements TelephonyCallback.CellInfoListener, TelephonyCallback.SignalStrengthsListener {
+
+        @Override
+        public void onCellInfoChanged(@NonNull List<CellInfo> list) {
+            metrics.countCallback("subscriptionTelephonyCallback.onCellInfoChanged");
+            if (isStaleCallback()) {
+                return;
+            }
+            notifyCellInfoChanged(list);
+        }
+
+        @Override
+        public void onSignalStrengthsChanged(@NonNull android.telephony.SignalStrength signalStrength) {
+            metrics.countCallback("subscriptionTelephonyCallback.onSignalStrengthsChanged");
+            if (isStaleCallback()) {
+                return;
+            }
+            notifySignalStrengthsChanged(signalStrength);
+        }
+    }
+
+    private class MonitorPhoneStateListener extends PhoneStateListener {
+        MonitorPhoneStateListener() {
+            super();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.Q)
+        MonitorPhoneStateListener(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        public void onCellInfoChanged(List<CellInfo> cellInfo) {
+            metrics.countCallback("subscriptionPhoneStateListener.onCellInfoChanged");
+            if (isStaleCallback()) {
+                return;
+            }
+            notifyCellInfoChanged(cellInfo);
+        }
+
+        @Override
+        public void onSignalStrengthsChanged(android.telephony.SignalStrength signalStrength) {
+            metrics.countCallback("subscriptionPhoneStateListener.onSignalStrengthsChanged");
+            if (isStaleCallback()) {
+                return;
+            }
+            notifySignalStrengthsChanged(signalStrength);
+        }
+    }
+
+    /**
+     * Picks up slot and carrier changes of an already monitored subscription.
+     */
+    void update(SubscriptionInfo info) {
+        slotIndex = info.getSimSlotIndex();
+        CharSequence name = info.getCarrierName();
+        carrierName = name != null ? name.toString() : null;
+    }
+
+    void setHysteresis(int dbmHysteresis, int rssiHysteresis) {
+        changeFilter.setHysteresis(dbmHysteresis, rssiHysteresis);
+    }
+
+    void setRescanIntervalMs(long rescanIntervalMs) {
+        this.rescanIntervalMs = rescanIntervalMs;
+    }
+
+    void setRefreshTimeoutMs(long timeoutMs) {
+        cellInfoRefresher.setTimeoutMs(timeoutMs);
+    }
+
+    void register() {
+        if (registered) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            if (callback == null) {
+                callback = new MonitorTelephonyCallback();
+            }
+            telephonyManager.registerTelephonyCallback(executor, callback);
+        } else {
+            if (legacyCallback == null) {
+                // created on the worker thread, so callbacks arrive on its looper below Q too
+                legacyCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                    ? new MonitorPhoneStateListener(executor)
+                    : new MonitorPhoneStateListener();
+            }
+            telephonyManager.listen(
+                legacyCallback,
+                PhoneStateListener.LISTEN_CELL_INFO | PhoneStateListener.LISTEN_SIGNAL_STRENGTHS
+            );
+        }
+        registered = true;
+    }
+
+    void unregister() {
+        if (!registered) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            telephonyManager.unregisterTelephonyCallback(callback);
+        } else {
+            telephonyManager.listen(legacyCallback, PhoneStateListener.LISTEN_NONE);
+        }
+        registered = false;
+        // the webview has not seen anything since, so let the next reading through
+        changeFilter.reset();
+    }
+
+    /**
+     * Queries the current cells of this subscription, without blocking on API 29+.
+     * @param onDone run on the worker thread once the cache was refreshed, or the query failed
+     * or passed its deadline
+     */
+    void requestUpdate(Runnable onDone) {
+        cellInfoRefresher.refresh(infoList -> {
+            // a failed refresh leaves the last known cells in place
+            if (infoList != null) {
+                notifyCellInfoChanged(infoList);
+            }
+            onDone.run();
+        });
+    }
+
+    private void refreshCells() {
+        cellInfoRefresher.refresh(infoList -> {
+            if (infoList != null) {
+                notifyCellInfoChanged(infoList);
+            }
+        });
+    }
+
+    /**
+     * @return true if this monitor was unregistered while the callback was queued
+     */
+    private boolean isStaleCallback() {
+        if (!registered) {
+            metrics.countStaleCallback();
+        }
+        return !registered;
+    }
+
+    private void notifySignalStrengthsChanged(android.telephony.SignalStrength signalStrength) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || signalStrength == null) {
+            refreshCells();
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        boolean updated = !cells.isStale(now, rescanIntervalMs)
+            && cellInfoReader.readPrimarySignalStrength(signalStrength.getCellSignalStrengths(), cells);
+
+        if (!updated) {
+            refreshCells();
+            return;
+        }
+
+        cells.markUpdated(now);
+        notifyIfChanged();
+    }
+
+    private void notifyCellInfoChanged(List<CellInfo> list) {
+        cellInfoReader.readCellSnapshots(list, cells);
+        notifyIfChanged();
+    }
+
+    private void notifyIfChanged() {
+        CellSnapshot primary = cells.getPrimary();
+        boolean changed = primary == null
+            ? changeFilter.shouldEmitCell(false, CellSnapshot.CELL_TYPE_UNKNOWN, -1, 0, 0)
+            : changeFilter.shouldEmitCell(true, primary.cellType, primary.dbm, primary.level, primary.connectionStatus);
+
+        if (changed && listener.onSubscriptionCellsChanged(this)) {
+            changeFilter.commitCell();
+        }
+    }
+
+    /**
+     * @return the cached cell state of this subscription, or null if it was never read
+     */
+    JSONObject toJson(long now) throws JSONException {
+        if (!cells.isFresh(now, Long.MAX_VALUE)) {
+            return null;
+        }
+        return SignalPayloadBuilder.getCellStatePayloadJson(cells)
+            .put(KEY_SUBSCRIPTION_ID, subscriptionId)
+            .put(KEY_SLOT_INDEX, slotIndex)
+            .putOpt(KEY_CARRIER_NAME, carrierName)
+            .put(KEY_CACHE_AGE_MS, cells.getAgeMs(now));
+    }
+}
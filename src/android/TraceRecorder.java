@@ -0,0 +1,164 @@
+package com.hrs.signalstrength;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-size ring of primitive trace records for the listener hot paths,
+ * which replaces verbose logging there. Recording never allocates; once the ring
+ * is full, the oldest records are overwritten.
+ * Dumps are decoded offline, using the TRACE_* codes below.
+ *
+ * Dump layout (little-endian):
+ * <pre>
+ * u8  version
+ * u8  reserved
+ * u16 record count
+ * u32 overwritten record count
+ * i64 System.currentTimeMillis() at dump time
+ * i64 System.nanoTime() at dump time, to convert record timestamps to wall time
+ * 18 byte record, oldest first:
+ *     i64 System.nanoTime(), u16 code, i32 a, i32 b
+ * </pre>
+ * Only accessed from the plugin worker thread.
+ */
+class TraceRecorder {
+    static final int VERSION = 1;
+    static final int DEFAULT_CAPACITY = 1024;
+    static final int MAX_CAPACITY = 0xFFFF;
+
+    // a = number of CellInfo instances read, from a listener or a query
+    static final int TRACE_CELL_INFO_READ = 1;
+    // no args
+    static final int TRACE_SIGNAL_STRENGTHS_CHANGED = 2;
+    // a = dbm, b = level | (primary ? 0x100 : 0)
+    static final int TRACE_CELL_SNAPSHOT = 3;
+    // no args
+    static final int TRACE_CELL_STATE_SUPPRESSED = 4;
+    // no args
+    static final int TRACE_WIFI_AVAILABLE = 5;
+    // no args
+    static final int TRACE_WIFI_LOST_CONNECTION = 6;
+    // no args
+    static final int TRACE_WIFI_UNAVAILABLE = 7;
+    // no args
+    static final int TRACE_WIFI_DISABLED = 8;
+    // a = rssi, or 0 if there was no connection info
+    static final int TRACE_WIFI_CAPABILITIES_CHANGED = 9;
+    // a = rssi, or 0 if not connected
+    static final int TRACE_LEGACY_WIFI_POLL = 10;
+    // no args
+    static final int TRACE_WIFI_STATE_SUPPRESSED = 11;
+    // a = one of the EVENT_* constants below
+    static final int TRACE_EVENT_EMITTED = 12;
+    // a = 1 if answered from cache, b = 1 if it joined an in-flight request
+    static final int TRACE_CELL_STATE_REQUEST = 13;
+    // a = 1 if answered from cache
+    static final int TRACE_WIFI_STATE_REQUEST = 14;
+    // no args
+    static final int TRACE_WIFI_CALLBACK_DEDUPLICATED = 15;
+
+    static final int EVENT_CELL_STATE = 1;
+    static final int EVENT_WIFI_STATE = 2;
+    static final int EVENT_SIGNAL_DEGRADING = 3;
+    static final int EVENT_SIGNAL_RECOVERED = 4;
+
+    private static final int HEADER_SIZE = 1 + 1 + 2 + 4 + 8 + 8;
+    private static final int RECORD_SIZE = 8 + 2 + 4 + 4;
+
+    private long[] times;
+    private short[] codes;
+    private int[] argsA;
+    private int[] argsB;
+    private int next = 0;
+    private int size = 0;
+    private long overwrittenCount = 0;
+    private boolean enabled = false;
+
+    TraceRecorder(int capacity) {
+        allocate(capacity);
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Discards all records; the ring is only reallocated if its capacity changes.
+     */
+    void setCapacity(int capacity) {
+        int clamped = clampCapacity(capacity);
+        if (clamped != times.length) {
+            allocate(clamped);
+        } else {
+            clear();
+        }
+    }
+
+    void clear() {
+        next = 0;
+        size = 0;
+        overwrittenCount = 0;
+    }
+
+    void record(int code) {
+        record(code, 0, 0);
+    }
+
+    void record(int code, int a) {
+        record(code, a, 0);
+    }
+
+    void record(int code, int a, int b) {
+        if (!enabled) {
+            return;
+        }
+
+        times[next] = System.nanoTime();
+        codes[next] = (short) code;
+        argsA[next] = a;
+        argsB[next] = b;
+        next = (next + 1) % times.length;
+
+        if (size < times.length) {
+            size++;
+        } else {
+            overwrittenCount++;
+        }
+    }
+
+    byte[] dump() {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + size * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        out.put((byte) VERSION);
+        out.put((byte) 0);
+        out.putShort((short) size);
+        out.putInt((int) Math.min(overwrittenCount, 0xFFFFFFFFL));
+        out.putLong(System.currentTimeMillis());
+        out.putLong(System.nanoTime());
+
+        int start = (next - size + times.length) % times.length;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % times.length;
+            out.putLong(times[index]);
+            out.putShort(codes[index]);
+            out.putInt(argsA[index]);
+            out.putInt(argsB[index]);
+        }
+
+        return out.array();
+    }
+
+    private void allocate(int capacity) {
+        int clamped = clampCapacity(capacity);
+        times = new long[clamped];
+        codes = new short[clamped];
+        argsA = new int[clamped];
+        argsB = new int[clamped];
+        clear();
+    }
+
+    private static int clampCapacity(int capacity) {
+        return Math.min(Math.max(1, capacity), MAX_CAPACITY);
+    }
+}
@@ -0,0 +1,48 @@
+package com.hrs.signalstrength;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Detects capability callbacks whose connection info is identical to the previous one,
+ * so that no json is built or event emitted for them.
+ * Readings are compared field by field, using the raw RSSI.
+ * Only accessed from the plugin worker thread.
+ */
+class WifiCallbackDeduplicator {
+    private static final String KEY_PASSED = "passed";
+    private static final String KEY_DEDUPLICATED = "deduplicated";
+
+    private final WifiSnapshot last = new WifiSnapshot();
+    private boolean hasLast = false;
+    private long passedCount = 0;
+    private long deduplicatedCount = 0;
+
+    /**
+     * @return true if the reading equals the previous one in every field
+     */
+    boolean isDuplicate(WifiSnapshot info) {
+        if (hasLast && info.isSameReading(last)) {
+            deduplicatedCount++;
+            return true;
+        }
+
+        hasLast = true;
+        last.copyFrom(info);
+        passedCount++;
+        return false;
+    }
+
+    /**
+     * Lets the next reading through, e.g. after a disconnect or while listeners were off.
+     */
+    void reset() {
+        hasLast = false;
+    }
+
+    JSONObject getStatsJson() throws JSONException {
+        return new JSONObject()
+            .put(KEY_PASSED, passedCount)
+            .put(KEY_DEDUPLICATED, deduplicatedCount);
+    }
+}
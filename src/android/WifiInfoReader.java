@@ -0,0 +1,41 @@
+package com.hrs.signalstrength;
+
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+
+/**
+ * Reads android WifiInfo instances into plain wifi snapshots.
+ */
+class WifiInfoReader {
+    private final WifiManager wifiManager;
+
+    WifiInfoReader(WifiManager wifiManager) {
+        this.wifiManager = wifiManager;
+    }
+
+    WifiSnapshot read(WifiInfo info) {
+        if (info == null) {
+            return null;
+        }
+
+        WifiSnapshot result = new WifiSnapshot();
+        result.ssid = info.getSSID();
+        result.bssid = info.getBSSID();
+        result.networkId = info.getNetworkId();
+        result.rssi = info.getRssi();
+        result.linkSpeedMbps = info.getLinkSpeed();
+
+        if (Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.R) {
+            result.level = wifiManager.calculateSignalLevel(result.rssi);
+            result.maxLevel = wifiManager.getMaxSignalLevel();
+            result.hasLinkSpeedDetails = true;
+            result.txLinkSpeedMbps = info.getTxLinkSpeedMbps();
+            result.maxTxLinkSpeedMbps = info.getMaxSupportedTxLinkSpeedMbps();
+            result.rxLinkSpeedMbps = info.getRxLinkSpeedMbps();
+            result.maxRxLinkSpeedMbps = info.getMaxSupportedRxLinkSpeedMbps();
+        }
+
+        return result;
+    }
+}
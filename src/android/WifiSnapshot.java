@@ -0,0 +1,58 @@
+package com.hrs.signalstrength;
+
+import java.util.Objects;
+
+/**
+ * Primitive copy of the WifiInfo fields reported by this plugin, so that
+ * readings can be compared without building any JSON.
+ */
+class WifiSnapshot {
+    static final int LEVEL_UNAVAILABLE = -1;
+
+    String ssid = null;
+    String bssid = null;
+    int networkId = -1;
+    int rssi = 0;
+    int level = LEVEL_UNAVAILABLE;
+    int maxLevel = LEVEL_UNAVAILABLE;
+    int linkSpeedMbps = 0;
+    // Below fields are only populated on Android 11 (API 30) and above
+    boolean hasLinkSpeedDetails = false;
+    int txLinkSpeedMbps = 0;
+    int maxTxLinkSpeedMbps = 0;
+    int rxLinkSpeedMbps = 0;
+    int maxRxLinkSpeedMbps = 0;
+
+    void copyFrom(WifiSnapshot other) {
+        ssid = other.ssid;
+        bssid = other.bssid;
+        networkId = other.networkId;
+        rssi = other.rssi;
+        level = other.level;
+        maxLevel = other.maxLevel;
+        linkSpeedMbps = other.linkSpeedMbps;
+        hasLinkSpeedDetails = other.hasLinkSpeedDetails;
+        txLinkSpeedMbps = other.txLinkSpeedMbps;
+        maxTxLinkSpeedMbps = other.maxTxLinkSpeedMbps;
+        rxLinkSpeedMbps = other.rxLinkSpeedMbps;
+        maxRxLinkSpeedMbps = other.maxRxLinkSpeedMbps;
+    }
+
+    /**
+     * @return true if every reported field, including the raw RSSI, equals the other reading's
+     */
+    boolean isSameReading(WifiSnapshot other) {
+        return networkId == other.networkId
+            && rssi == other.rssi
+            && level == other.level
+            && maxLevel == other.maxLevel
+            && linkSpeedMbps == other.linkSpeedMbps
+            && hasLinkSpeedDetails == other.hasLinkSpeedDetails
+            && txLinkSpeedMbps == other.txLinkSpeedMbps
+            && maxTxLinkSpeedMbps == other.maxTxLinkSpeedMbps
+            && rxLinkSpeedMbps == other.rxLinkSpeedMbps
+            && maxRxLinkSpeedMbps == other.maxRxLinkSpeedMbps
+            && Objects.equals(bssid, other.bssid)
+            && Objects.equals(ssid, other.ssid);
+    }
+}
@@ -0,0 +1,36 @@
+package com.hrs.signalstrength;
+
+/**
+ * Last known wifi state, kept up to date by the registered listeners
+ * so that one-shot requests can be answered without querying system services.
+ * Only accessed from the plugin worker thread.
+ */
+class WifiStateCache {
+    boolean enabled = false;
+    boolean connected = false;
+    final WifiSnapshot info = new WifiSnapshot();
+    String reason = null;
+    private long updatedAtMs = 0;
+
+    /**
+     * @param info the current connection info, or null if wifi is not connected
+     * @param reason the disconnect reason, if any
+     */
+    void update(boolean enabled, WifiSnapshot info, String reason, long elapsedRealtimeMs) {
+        this.enabled = enabled;
+        this.connected = info != null;
+        this.reason = reason;
+        if (info != null) {
+            this.info.copyFrom(info);
+        }
+        updatedAtMs = elapsedRealtimeMs;
+    }
+
+    boolean isFresh(long elapsedRealtimeMs, long maxAgeMs) {
+        return updatedAtMs != 0 && getAgeMs(elapsedRealtimeMs) <= maxAgeMs;
+    }
+
+    long getAgeMs(long elapsedRealtimeMs) {
+        return elapsedRealtimeMs - updatedAtMs;
+    }
+}
@@ -36,6 +36,20 @@ function cordovaExecPromise<T>(plugin: string, method: string, args?: any[]): Pr
 ////////////////////////////////////////////////////////////////
 
 const PLUGIN_NAME = 'SignalStrength';
+const EVENT_TYPE_BATCH = 'batch';
+const SUBSCRIPTION_ID_PREFIX = 'subscription';
+// Must be kept in sync with BinaryStateEncoder.java
+const BINARY_VERSION = 1;
+const BINARY_KIND_CELL_STATE = 1;
+const BINARY_KIND_WIFI_STATE = 2;
+const BINARY_CELL_FLAG_PRIMARY = 1;
+const BINARY_CELL_FLAG_HAS_PRIMARY = 1 << 1;
+const BINARY_CELL_FLAG_STALE = 1 << 2;
+const BINARY_WIFI_FLAG_ENABLED = 1;
+const BINARY_WIFI_FLAG_CONNECTED = 1 << 1;
+const BINARY_WIFI_FLAG_HAS_LEVEL = 1 << 2;
+const BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS = 1 << 3;
+const BINARY_NO_STRING = 0xffff;
 const DEFAULT_BEST_RSSI = -40;
 const DEFAULT_WORST_RSSI = -95;
 const DEFAULT_MAX_LEVEL = 4;
@@ -56,7 +70,36 @@ export enum CellInfoType {
 
 export enum SignalStrengthEventType {
     CELL_STATE_UPDATED = 'cellStateUpdated',
-    WIFI_STATE_UPDATED = 'wifiStateUpdated'
+    WIFI_STATE_UPDATED = 'wifiStateUpdated',
+    /**
+     * A source started showing signs of an imminent drop (see `PluginOptions.degradation`).
+     * Delivered as json even to binary subscribers.
+     */
+    SIGNAL_DEGRADING = 'signalDegrading',
+    /**
+     * A source that was degrading no longer is.
+     */
+    SIGNAL_RECOVERED = 'signalRecovered'
+}
+
+export enum SignalDegradationReason {
+    /**
+     * At or below the configured `cellDbm` / `wifiRssi`.
+     */
+    WEAK = 'weak',
+    /**
+     * Falling faster than `slopeDbPerSec`, within `marginDb` of the weak threshold.
+     */
+    FALLING = 'falling',
+    /**
+     * The serving cell type / BSSID changed, or the connection was lost or regained,
+     * at least `flapCount` times within `flapWindowMs`.
+     */
+    FLAPPING = 'flapping',
+    /**
+     * Wifi only: the link speed falls faster than `linkSpeedFallPercentPerSec`.
+     */
+    LINK_SPEED_FALLING = 'linkSpeedFalling'
 }
 
 /**
@@ -84,6 +127,21 @@ export interface CellInfo {
      * https://developer.android.com/reference/android/telephony/CellSignalStrength#getLevel()
      */
     level: number;
+    /**
+     * Reference signal received power in dBm (SS-RSRP for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    rsrp?: number;
+    /**
+     * Reference signal received quality in dB (SS-RSRQ for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    rsrq?: number;
+    /**
+     * Signal to noise ratio in dB (RSSNR for LTE, SS-SINR for NR).
+     * LTE (Android 8+) and NR only, when reported by the modem; not included in binary payloads.
+     */
+    sinr?: number;
 }
 
 export interface CellState extends CellInfo {
@@ -97,6 +155,36 @@ export interface CellState extends CellInfo {
      * Any registered non-primary CellInfo instances.
      */
     alternates: CellInfo[];
+    /**
+     * How old (in milliseconds) the returned state is.
+     * Only included in `getCellState()` responses; 0 when freshly queried.
+     */
+    cacheAgeMs?: number;
+    /**
+     * Set on `getCellState()` responses when the cell info query failed or passed
+     * its deadline (see `cellRefreshTimeoutMs`), and the last known state was returned instead.
+     */
+    stale?: boolean;
+    /**
+     * Cell state of each active subscription, keyed by subscription id.
+     * Only included when the `multiSim` option is set; not included in binary payloads.
+     */
+    simSubscriptions?: {[subscriptionId: string]: SubscriptionCellState};
+}
+
+export interface SubscriptionCellState extends CellInfo {
+    subscriptionId: number;
+    /**
+     * Index of the SIM slot holding this subscription.
+     */
+    slotIndex: number;
+    carrierName?: string;
+    primary: boolean;
+    alternates: CellInfo[];
+    /**
+     * How old (in milliseconds) the cells of this subscription are.
+     */
+    cacheAgeMs: number;
 }
 
 export interface WifiInfo {
@@ -118,11 +206,738 @@ export interface WifiState {
     enabled: boolean;
     connected: boolean;
     info: WifiInfo;
+    /**
+     * How old (in milliseconds) the returned state is.
+     * Only included in `getWifiState()` responses; 0 when freshly queried.
+     */
+    cacheAgeMs?: number;
+}
+
+/**
+ * Fields of `CellState` that can be requested with the `fields` option.
+ * `rsrp`, `rsrq` and `sinr` are included or omitted together.
+ */
+export type CellStateField =
+    'cellType'
+    | 'dbm'
+    | 'level'
+    | 'connectionStatus'
+    | 'cellDataLoaded'
+    | 'rsrp'
+    | 'rsrq'
+    | 'sinr'
+    | 'primary'
+    | 'alternates'
+    | 'simSubscriptions';
+
+/**
+ * Fields of `WifiInfo` that can be requested with the `fields` option.
+ * `level` and `maxLevel` are included or omitted together, as are the tx / rx link speeds.
+ */
+export type WifiInfoField =
+    'ssid'
+    | 'bssid'
+    | 'networkId'
+    | 'rssi'
+    | 'linkSpeedMbps'
+    | 'level'
+    | 'maxLevel'
+    | 'txLinkSpeedMbps'
+    | 'maxTxLinkSpeedMbps'
+    | 'rxLinkSpeedMbps'
+    | 'maxRxLinkSpeedMbps';
+
+export type SignalField = CellStateField | WifiInfoField;
+
+/**
+ * Primary cell fields only, i.e. without `alternates` and `simSubscriptions`.
+ */
+export const PRIMARY_CELL_FIELDS = [
+    'cellType',
+    'dbm',
+    'level',
+    'connectionStatus',
+    'cellDataLoaded',
+    'rsrp',
+    'rsrq',
+    'sinr',
+    'primary'
+] as const;
+
+/**
+ * Wifi fields without the Android 11+ tx / rx link speeds.
+ */
+export const BASIC_WIFI_FIELDS = [
+    'ssid',
+    'bssid',
+    'networkId',
+    'rssi',
+    'linkSpeedMbps',
+    'level',
+    'maxLevel'
+] as const;
+
+export type ProjectedCellInfo<F extends SignalField> = Pick<CellInfo, Extract<F, keyof CellInfo>>;
+
+/**
+ * A `CellState` that only holds the requested fields (plus `cacheAgeMs` and `stale`).
+ */
+export type ProjectedCellState<F extends SignalField> = ProjectedCellInfo<F>
+    & Pick<CellState, Extract<F, 'primary' | 'simSubscriptions'> | 'cacheAgeMs' | 'stale'>
+    & ('alternates' extends F ? {alternates: ProjectedCellInfo<F>[]} : {});
+
+/**
+ * A `WifiState` whose `info` only holds the requested fields.
+ */
+export type ProjectedWifiState<F extends SignalField> = Omit<WifiState, 'info'> & {
+    info: Pick<WifiInfo, Extract<F, keyof WifiInfo>>;
+};
+
+export interface StateRequestOptions {
+    /**
+     * Payload fields to include in the response; the others are neither built nor sent.
+     * Wifi `enabled` / `connected`, `cacheAgeMs` and `stale` are always included.
+     * Unknown names are ignored. Does not apply to `binary` responses, which always hold
+     * every field. Defaults to all fields.
+     */
+    fields?: readonly SignalField[];
+    /**
+     * If the plugin has a last known state that is at most this old (in milliseconds),
+     * it is returned immediately without querying system services.
+     * Defaults to 0 (always query).
+     */
+    maxAgeMs?: number;
+    /**
+     * When true, the state crosses the bridge as a compact binary frame
+     * and is decoded in js, instead of as JSON. The resolved value is the same.
+     * Defaults to false.
+     */
+    binary?: boolean;
+}
+
+export interface WifiStateRequestOptions extends StateRequestOptions {
+    /**
+     * How long to wait for the network request to resolve (Android 12+ only).
+     * On timeout the promise is rejected with a `StateRequestTimeoutError`.
+     * Defaults to 10000.
+     */
+    timeoutMs?: number;
+}
+
+export interface StateRequestTimeoutError {
+    message: string;
+    /**
+     * The last known state, if the plugin has received one.
+     */
+    lastKnownState?: WifiState;
+}
+
+/**
+ * Data of `signalDegrading` and `signalRecovered` events.
+ */
+export interface SignalDegradationState {
+    source: SignalSampleSource;
+    degraded: boolean;
+    /**
+     * Empty once recovered.
+     */
+    reasons: SignalDegradationReason[];
+    /**
+     * Serving cell type, for cell sources.
+     */
+    cellType?: CellInfoType;
+    /**
+     * Serving access point, for wifi sources, if known.
+     */
+    bssid?: string;
+    /**
+     * Number of serving changes within the flapping window.
+     */
+    servingChanges: number;
+    // Below option only included for cell sources with a reading
+    dbm?: number;
+    // Below option only included for wifi sources with a reading
+    rssi?: number;
+    /**
+     * Exponentially weighted rate of change of dbm / rssi.
+     */
+    slopeDbPerSec?: number;
+    // Below options only included for wifi sources reporting a link speed
+    linkSpeedMbps?: number;
+    linkSpeedSlopeMbpsPerSec?: number;
+    /**
+     * Only included in `signalRecovered` events.
+     */
+    degradedForMs?: number;
+}
+
+export interface SignalDegradationStats extends SignalDegradationState {
+    /**
+     * Number of `signalDegrading` transitions.
+     */
+    degradingCount: number;
+    /**
+     * Number of `signalRecovered` transitions.
+     */
+    recoveredCount: number;
+}
+
+/**
+ * Thresholds of the native degradation detector. Omitted values keep their current setting.
+ */
+export interface SignalDegradationOptions {
+    /**
+     * Rate, in dB per second, at which a falling signal counts as degrading. Defaults to 0.5.
+     */
+    slopeDbPerSec?: number;
+    /**
+     * Time constant of the exponentially weighted slopes; larger values react slower
+     * but ignore short dips. Defaults to 5000.
+     */
+    slopeTimeConstantMs?: number;
+    /**
+     * Primary cell dBm at or below which the cell counts as weak. Defaults to -110.
+     */
+    cellDbm?: number;
+    /**
+     * Wifi RSSI at or below which wifi counts as weak. Defaults to -75.
+     */
+    wifiRssi?: number;
+    /**
+     * A falling signal only counts as degrading within this many dB above the weak threshold.
+     * Defaults to 15.
+     */
+    marginDb?: number;
+    /**
+     * Number of serving changes within `flapWindowMs` that count as flapping; 0 turns
+     * flapping detection off. Defaults to 3, at most 32.
+     */
+    flapCount?: number;
+    /**
+     * Defaults to 60000.
+     */
+    flapWindowMs?: number;
+    /**
+     * Relative rate, in percent of the current link speed per second, at which a falling
+     * wifi link speed counts as degrading. Defaults to 10.
+     */
+    linkSpeedFallPercentPerSec?: number;
 }
 
 export interface SignalStrengthEvent {
     type: SignalStrengthEventType;
-    data: CellState | WifiState | any;
+    data: CellState | WifiState | SignalDegradationState | any;
+    /**
+     * Rolling stats of the event's source, only included when the
+     * `attachStats` delegate option is set.
+     */
+    stats?: SignalStatsWindow[];
+}
+
+/**
+ * Options that affect every subscriber. When passed to `configure()` or
+ * `setSharedEventDelegate()`, they replace the values set by earlier calls.
+ */
+export interface PluginOptions {
+    /**
+     * Cell state events are only emitted when the primary cell changes,
+     * its level changes, or its dBm moves by more than this many units
+     * since the last emitted event. Defaults to 0 (only identical events are dropped).
+     */
+    dbmHysteresis?: number;
+    /**
+     * Wifi state events are only emitted when the BSSID, level or link speeds change,
+     * or when RSSI moves by more than this many units since the last emitted event.
+     * Defaults to 0 (only identical events are dropped).
+     */
+    rssiHysteresis?: number;
+    /**
+     * Signal strength callbacks update the cached primary cell in place, and
+     * only trigger a full cell info rescan once the cache is older than this.
+     * Defaults to 30000.
+     */
+    cellRescanIntervalMs?: number;
+    /**
+     * Monitors every active subscription (SIM) separately, and adds their cells to cell states
+     * under `simSubscriptions`. Requires the READ_PHONE_STATE permission and Android 7+.
+     * Defaults to false.
+     */
+    multiSim?: boolean;
+    /**
+     * On Android 10+, cell info queries run asynchronously and are abandoned after this many
+     * milliseconds, in which case the last known cell state is used. Defaults to 2000.
+     */
+    cellRefreshTimeoutMs?: number;
+    /**
+     * Number of samples retained in the native signal history (see `getHistory()`).
+     * Defaults to 256.
+     */
+    historyCapacity?: number;
+    /**
+     * Size cap, in bytes, of a circular sample log in app storage that survives webview
+     * reloads and app restarts (see `queryPersistentLog()`). Changing the cap discards
+     * logged samples; 0 stops logging. Larger caps are clamped to 64 MiB.
+     * Defaults to 0, i.e. disabled.
+     */
+    persistentLogMaxBytes?: number;
+    /**
+     * Thresholds of the `signalDegrading` / `signalRecovered` events. Subscribing only to
+     * these event types keeps the native listeners running without waking the webview
+     * for every reading.
+     */
+    degradation?: SignalDegradationOptions;
+    /**
+     * Window lengths, in milliseconds, over which rolling signal stats are aggregated
+     * (see `getSignalStats()`). Changing this discards previously aggregated samples.
+     * Defaults to [10000, 60000, 300000].
+     */
+    statsWindowsMs?: number[];
+    /**
+     * Below Android 12, wifi state is polled rather than observed. Polls run at this
+     * interval after a connection change or an RSSI swing. Defaults to 2000.
+     */
+    legacyPollMinIntervalMs?: number;
+    /**
+     * Below Android 12, the poll interval doubles for every poll that finds the signal
+     * stable, up to this limit. Polling is suspended while the app is paused. Defaults to 30000.
+     */
+    legacyPollMaxIntervalMs?: number;
+    /**
+     * By default, native listeners are parked while the app is paused: only the cached
+     * primary cell signal strength is kept current, and no events are emitted.
+     * On resume, listeners are restored and the current state is emitted.
+     * Set this to true to keep listeners and events running in the background,
+     * e.g. for foreground service monitoring. Defaults to false.
+     */
+    keepRunningInBackground?: boolean;
+}
+
+/**
+ * Options that only affect the subscriber they are passed with.
+ */
+export interface SubscriptionOptions {
+    /**
+     * Event types delivered to this subscriber. Defaults to all event types.
+     */
+    eventTypes?: SignalStrengthEventType[];
+    /**
+     * Minimum time between deliveries to this subscriber.
+     * Events received within this window are coalesced so that only the
+     * latest event of each type is delivered when the window elapses.
+     * Defaults to 0 (deliver immediately).
+     */
+    minEmitIntervalMs?: number;
+    /**
+     * Cell state events are only delivered to this subscriber when the primary cell type
+     * changes, or its dBm moves by at least this many units since the last delivered event.
+     * Applied on top of the plugin-wide `dbmHysteresis`. Defaults to 0 (no threshold).
+     */
+    dbmThreshold?: number;
+    /**
+     * When true, rolling stats of the event's source are attached to each emitted event.
+     * Defaults to false.
+     */
+    attachStats?: boolean;
+    /**
+     * When greater than 1, events are buffered natively and sent across the bridge
+     * in batches of up to this many events. Batches are also sent once `batchMaxDelayMs`
+     * elapses and when the app is paused. The listener is still invoked once per event.
+     * Defaults to 0 (batching disabled).
+     */
+    batchSize?: number;
+    /**
+     * Longest time the first buffered event waits before its batch is sent.
+     * Only applies when `batchSize` is greater than 1. Defaults to 1000.
+     */
+    batchMaxDelayMs?: number;
+    /**
+     * When true, cell and wifi state events cross the bridge as compact binary frames
+     * and are decoded in js, instead of as JSON. Binary events are sent individually,
+     * so `batchSize` and `attachStats` do not apply to them. Defaults to false.
+     */
+    binary?: boolean;
+    /**
+     * Fields of cell and wifi state events delivered to this subscriber; see
+     * `StateRequestOptions.fields`. Omitted fields are absent from the event data.
+     * Does not apply to `binary` events. Defaults to all fields.
+     */
+    fields?: readonly SignalField[];
+}
+
+export interface SharedEventDelegateOptions extends SubscriptionOptions, PluginOptions {
+}
+
+/**
+ * Removes the subscription it was returned for.
+ */
+export type SignalStrengthUnsubscribe = () => Promise<void>;
+
+/**
+ * Rolling aggregates of primary cell dBm or wifi RSSI over a single window.
+ * Percentiles are approximated from a 2 dB wide histogram.
+ */
+export interface SignalStatsWindow {
+    windowMs: number;
+    count: number;
+    // Below options only included when count is greater than 0
+    min?: number;
+    max?: number;
+    mean?: number;
+    variance?: number;
+    p50?: number;
+    p95?: number;
+}
+
+export interface SignalStats {
+    /**
+     * Primary cell dBm, one entry per configured window.
+     */
+    cell: SignalStatsWindow[];
+    /**
+     * Connected wifi RSSI, one entry per configured window.
+     */
+    wifi: SignalStatsWindow[];
+}
+
+export enum SignalSampleSource {
+    CELL = 'cell',
+    WIFI = 'wifi'
+}
+
+/**
+ * A single entry of the native signal history.
+ */
+export interface SignalSample {
+    /**
+     * Unix epoch time in milliseconds when this sample was taken.
+     */
+    timestamp: number;
+    source: SignalSampleSource;
+    /**
+     * For cell samples, whether a registered cell was found.
+     * For wifi samples, whether wifi was connected.
+     */
+    connected: boolean;
+    // Below options only included for cell samples
+    cellType?: CellInfoType;
+    dbm?: number;
+    // Below option included for cell samples, and wifi samples on Android 11 (API 30) and above
+    level?: number;
+    // Below options only included for connected wifi samples
+    rssi?: number;
+    linkSpeedMbps?: number;
+}
+
+/**
+ * A single entry of the persistent sample log.
+ */
+export interface PersistentSignalSample extends SignalSample {
+    /**
+     * Increases by one for every logged sample, also across app restarts.
+     */
+    sequence: number;
+}
+
+export interface PersistentLogQueryOptions {
+    /**
+     * Only samples with a timestamp at or after this unix epoch time in milliseconds are returned.
+     */
+    from?: number;
+    /**
+     * Only samples with a timestamp at or before this unix epoch time in milliseconds are returned.
+     */
+    to?: number;
+    /**
+     * Only samples logged after this sequence are returned; pass `nextSequence` of the
+     * previous page to continue from there.
+     */
+    afterSequence?: number;
+    /**
+     * Maximum number of samples returned per page. Defaults to 500.
+     */
+    limit?: number;
+    /**
+     * Instead of samples, resolves the path of the log file, e.g. for upload
+     * (see the layout documented in PersistentSampleLog.java).
+     */
+    asFile?: boolean;
+}
+
+export interface PersistentLogPage {
+    /**
+     * Matching samples, oldest first.
+     */
+    samples: PersistentSignalSample[];
+    /**
+     * Set if more samples may match, to be passed as `afterSequence` of the next query.
+     */
+    nextSequence?: number;
+}
+
+export interface PersistentLogFile {
+    path: string;
+    sizeBytes: number;
+    /**
+     * Number of samples the file holds before the oldest ones are overwritten.
+     */
+    capacity: number;
+}
+
+export interface SharedEventStats {
+    /**
+     * Total events produced by the native listeners that matched this subscriber.
+     */
+    submitted: number;
+    /**
+     * Events actually sent across the bridge.
+     */
+    delivered: number;
+    /**
+     * Events replaced by a newer event of the same type before delivery.
+     */
+    merged: number;
+    /**
+     * Events discarded because the subscriber was removed before they were delivered.
+     */
+    dropped: number;
+    /**
+     * Events held back by this subscriber's `dbmThreshold`.
+     */
+    suppressed: number;
+    pending: number;
+    minIntervalMs: number;
+}
+
+export interface ChangeFilterStats {
+    dbmHysteresis: number;
+    rssiHysteresis: number;
+    /**
+     * Cell state events dropped because they did not differ enough from the last emitted event.
+     */
+    cellSuppressed: number;
+    /**
+     * Wifi state events dropped because they did not differ enough from the last emitted event.
+     */
+    wifiSuppressed: number;
+}
+
+export interface PendingRequestStats {
+    /**
+     * Number of callers currently waiting on a result.
+     */
+    depth: number;
+    maxDepth: number;
+    /**
+     * Number of native queries actually issued on behalf of the waiters.
+     */
+    queries: number;
+    completed: number;
+    failed: number;
+    timedOut: number;
+    meanWaitMs: number;
+    maxWaitMs: number;
+}
+
+export interface EventBatchStats {
+    enabled: boolean;
+    maxSize: number;
+    maxDelayMs: number;
+    /**
+     * Batches sent across the bridge.
+     */
+    batches: number;
+    /**
+     * Events sent as part of a batch.
+     */
+    batchedEvents: number;
+    largestBatch: number;
+    /**
+     * Events currently buffered for the next batch.
+     */
+    pending: number;
+}
+
+export interface LegacyWifiPollStats {
+    /**
+     * Delay until the next poll.
+     */
+    intervalMs: number;
+    minIntervalMs: number;
+    maxIntervalMs: number;
+    polls: number;
+    /**
+     * Polls that found the signal stable and lengthened the interval.
+     */
+    backOffs: number;
+    /**
+     * Polls that found the signal changing and reset the interval to its minimum.
+     */
+    resets: number;
+}
+
+export interface NetworkCallbackStats {
+    registered: boolean;
+    registrations: number;
+    /**
+     * Registrations skipped because the callback was already registered.
+     */
+    redundant: number;
+}
+
+export interface WifiCallbackDeduplicationStats {
+    /**
+     * Capability callbacks that differed from the previous one.
+     */
+    passed: number;
+    /**
+     * Capability callbacks identical to the previous one in every field, which are
+     * recorded as samples without building a payload or emitting an event.
+     */
+    deduplicated: number;
+}
+
+/**
+ * Only meaningful on Android 12+.
+ */
+export interface WifiCallbackStats {
+    /**
+     * The network callback kept while event listeners are registered.
+     */
+    listener: NetworkCallbackStats;
+    /**
+     * The network request held while `getWifiState()` calls are pending.
+     */
+    stateRequest: NetworkCallbackStats;
+    deduplication: WifiCallbackDeduplicationStats;
+}
+
+export interface CellInfoRefreshStats {
+    timeoutMs: number;
+    /**
+     * Cell info queries issued to the telephony service.
+     */
+    requests: number;
+    /**
+     * Refreshes that joined an in-flight query instead of issuing one.
+     */
+    merged: number;
+    timeouts: number;
+    errors: number;
+    /**
+     * Answers that arrived after their query passed its deadline.
+     */
+    late: number;
+    inFlight: boolean;
+}
+
+export interface SubscriptionStats {
+    id: string;
+    sharedEvents: SharedEventStats;
+    eventBatches: EventBatchStats;
+    /**
+     * Cell state events not delivered because of `dbmThreshold`.
+     */
+    thresholdSuppressed: number;
+}
+
+export interface SignalStrengthStats {
+    subscriptions: SubscriptionStats[];
+    changeFilter: ChangeFilterStats;
+    cellStateRequests: PendingRequestStats;
+    wifiStateRequests: PendingRequestStats;
+    /**
+     * Only meaningful below Android 12.
+     */
+    legacyWifiPoll: LegacyWifiPollStats;
+    /**
+     * Only meaningful on Android 10+.
+     */
+    cellInfoRefresh: CellInfoRefreshStats;
+    /**
+     * Current state of the degradation detector, per source.
+     */
+    degradation: {cell: SignalDegradationStats, wifi: SignalDegradationStats};
+    wifiCallbacks: WifiCallbackStats;
+    /**
+     * True while native listeners are parked because the app is paused.
+     */
+    listenersParked: boolean;
+}
+
+export interface LatencyHistogramBucket {
+    /**
+     * Upper bound of the bucket; the last bucket is bounded by the largest recorded duration.
+     */
+    leMs: number;
+    count: number;
+}
+
+export interface LatencyHistogram {
+    count: number;
+    meanMs: number;
+    maxMs: number;
+    /**
+     * Percentiles are the upper bound of the bucket they fall in.
+     */
+    p50Ms: number;
+    p95Ms: number;
+    /**
+     * Non-empty buckets only, in ascending order.
+     */
+    buckets: LatencyHistogramBucket[];
+}
+
+export interface ActionMetrics {
+    /**
+     * Time between the call reaching native code and starting on the plugin worker thread.
+     */
+    queueWait: LatencyHistogram;
+    /**
+     * Time spent on the worker thread; results delivered later by a listener are not included.
+     */
+    run: LatencyHistogram;
+}
+
+export interface EventMetrics {
+    /**
+     * Dispatched to at least one subscription.
+     */
+    emitted: number;
+    /**
+     * Filtered out as unchanged by hysteresis.
+     */
+    suppressed: number;
+    /**
+     * Changed, but no subscription accepts the event type.
+     */
+    dropped: number;
+}
+
+export interface SignalStrengthMetrics {
+    /**
+     * Time covered by these metrics, since plugin start or the last reset.
+     */
+    sinceResetMs: number;
+    actions: {[action: string]: ActionMetrics};
+    /**
+     * Time until cell info queries to the telephony service answered.
+     * Below Android 10 these calls block the plugin worker thread.
+     */
+    cellInfoQueries: LatencyHistogram;
+    /**
+     * Native callbacks received, keyed by listener and method, e.g. `networkCallback.onLost`.
+     */
+    callbacks: {[callback: string]: number};
+    events: {[type in SignalStrengthEventType]?: EventMetrics};
+    /**
+     * Failed wifi state requests.
+     */
+    wifiStateErrors: number;
+    /**
+     * Native callbacks dropped because their listener was unregistered or parked
+     * after they were queued.
+     */
+    staleCallbacks: number;
 }
 
 function invoke<T>(method: string, ...args: any[]): Promise<T> {
@@ -143,12 +958,17 @@ function lerp(a: number, b: number, t: number): number {
     return clamp(lerpUnclamped(a, b, t), low, high);
 }
 
-function normalizeWifiState(state: WifiState): WifiState {
-    if (state && state.info) {
+/**
+ * @param fields the fields the payload was projected to, if any; level / maxLevel
+ * are only shimmed when requested, so that projected payloads keep their shape
+ */
+function normalizeWifiState(state: WifiState, fields?: readonly SignalField[]): WifiState {
+    const wantsLevel = !fields || fields.indexOf('level') >= 0 || fields.indexOf('maxLevel') >= 0;
+    if (state && state.info && wantsLevel) {
         // If level / max level were not provided due to older android version (< API 30),
         // attempt to calculate these values manually and shim them onto the response object.
-        if (typeof state.info.level !== 'number' 
-            || typeof state.info.maxLevel !== 'number') {
+        if (typeof state.info.rssi === 'number'
+            && (typeof state.info.level !== 'number' || typeof state.info.maxLevel !== 'number')) {
                 state.info.level = calculateSignalLevel(state.info.rssi);
                 state.info.maxLevel = DEFAULT_MAX_LEVEL;
         }
@@ -156,6 +976,203 @@ function normalizeWifiState(state: WifiState): WifiState {
     return state;
 }
 
+class BinaryStateReader {
+    private readonly view: DataView;
+    private readonly strings: string[] = [];
+    private offset: number = 0;
+
+    constructor(buffer: ArrayBuffer) {
+        this.view = new DataView(buffer);
+    }
+
+    public u8(): number {
+        return this.view.getUint8(this.offset++);
+    }
+
+    public u16(): number {
+        const value = this.view.getUint16(this.offset, true);
+        this.offset += 2;
+        return value;
+    }
+
+    public i32(): number {
+        const value = this.view.getInt32(this.offset, true);
+        this.offset += 4;
+        return value;
+    }
+
+    public readStringTable(): void {
+        const count = this.u8();
+        const decoder = new TextDecoder('utf-8');
+        for (let i = 0; i < count; i++) {
+            const length = this.u16();
+            const bytes = new Uint8Array(this.view.buffer, this.view.byteOffset + this.offset, length);
+            this.strings.push(decoder.decode(bytes));
+            this.offset += length;
+        }
+    }
+
+    public stringRef(): string | undefined {
+        const index = this.u16();
+        return index === BINARY_NO_STRING ? undefined : this.strings[index];
+    }
+}
+
+function readBinaryCellInfo(reader: BinaryStateReader): CellInfo {
+    const cellType = reader.stringRef() as CellInfoType;
+    const cellDataLoaded = reader.u8() !== 0;
+    reader.u8(); // reserved
+    const dbm = reader.i32();
+    const level = reader.i32();
+    const connectionStatus = reader.i32();
+    return {cellType, dbm, level, connectionStatus, cellDataLoaded};
+}
+
+function readBinaryCellState(reader: BinaryStateReader): CellState {
+    const flags = reader.u8();
+    const alternateCount = reader.u8();
+    const cacheAgeMs = reader.i32();
+    const state = ((flags & BINARY_CELL_FLAG_HAS_PRIMARY)
+        ? readBinaryCellInfo(reader)
+        : {}) as CellState;
+
+    state.primary = (flags & BINARY_CELL_FLAG_PRIMARY) !== 0;
+    state.alternates = [];
+
+    for (let i = 0; i < alternateCount; i++) {
+        state.alternates.push(readBinaryCellInfo(reader));
+    }
+
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+
+    if (flags & BINARY_CELL_FLAG_STALE) {
+        state.stale = true;
+    }
+
+    return state;
+}
+
+function readBinaryWifiState(reader: BinaryStateReader): WifiState {
+    const flags = reader.u8();
+    const reason = reader.stringRef();
+    const cacheAgeMs = reader.i32();
+    const state = {
+        enabled: (flags & BINARY_WIFI_FLAG_ENABLED) !== 0,
+        connected: (flags & BINARY_WIFI_FLAG_CONNECTED) !== 0
+    } as WifiState & {reason?: string};
+
+    if (state.connected) {
+        const info = {
+            ssid: reader.stringRef(),
+            bssid: reader.stringRef(),
+            networkId: reader.i32(),
+            rssi: reader.i32(),
+            linkSpeedMbps: reader.i32()
+        } as WifiInfo;
+        const level = reader.i32();
+        const maxLevel = reader.i32();
+        const txLinkSpeedMbps = reader.i32();
+        const maxTxLinkSpeedMbps = reader.i32();
+        const rxLinkSpeedMbps = reader.i32();
+        const maxRxLinkSpeedMbps = reader.i32();
+
+        if (flags & BINARY_WIFI_FLAG_HAS_LEVEL) {
+            info.level = level;
+            info.maxLevel = maxLevel;
+        }
+
+        if (flags & BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS) {
+            info.txLinkSpeedMbps = txLinkSpeedMbps;
+            info.maxTxLinkSpeedMbps = maxTxLinkSpeedMbps;
+            info.rxLinkSpeedMbps = rxLinkSpeedMbps;
+            info.maxRxLinkSpeedMbps = maxRxLinkSpeedMbps;
+        }
+
+        state.info = info;
+    }
+
+    if (reason !== undefined) {
+        state.reason = reason;
+    }
+
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+
+    return normalizeWifiState(state);
+}
+
+/**
+ * Decodes a binary frame produced by the native plugin when the `binary` option is set.
+ * Layout is documented in BinaryStateEncoder.java.
+ */
+export function decodeBinaryState(buffer: ArrayBuffer): SignalStrengthEvent {
+    const reader = new BinaryStateReader(buffer);
+    const version = reader.u8();
+
+    if (version !== BINARY_VERSION) {
+        throw new Error(`unsupported binary state version ${version}`);
+    }
+
+    const kind = reader.u8();
+    reader.readStringTable();
+
+    switch (kind) {
+        case BINARY_KIND_CELL_STATE:
+            return {type: SignalStrengthEventType.CELL_STATE_UPDATED, data: readBinaryCellState(reader)};
+        case BINARY_KIND_WIFI_STATE:
+            return {type: SignalStrengthEventType.WIFI_STATE_UPDATED, data: readBinaryWifiState(reader)};
+        default:
+            throw new Error(`unsupported binary state kind ${kind}`);
+    }
+}
+
+let subscriptionCount = 0;
+
+function createSubscriptionId(): string {
+    // the timestamp keeps ids unique across page reloads
+    return `${SUBSCRIPTION_ID_PREFIX}-${Date.now()}-${++subscriptionCount}`;
+}
+
+/**
+ * Unpacks batched and binary payloads, so that the listener
+ * is invoked with one normalized event at a time.
+ * @param fields the `fields` option of the subscription, which json events are projected to
+ */
+function wrapEventListener(
+    listener: SuccessCallback<SignalStrengthEvent>,
+    fields?: readonly SignalField[]
+): SuccessCallback<SignalStrengthEvent | ArrayBuffer> {
+    const emit = (ev: SignalStrengthEvent, eventFields?: readonly SignalField[]) => {
+        if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
+            ev.data = normalizeWifiState(ev.data, eventFields);
+        }
+        listener(ev);
+    };
+    return (ev) => {
+        if (ev instanceof ArrayBuffer) {
+            // binary frames are not projected and hold every field
+            emit(decodeBinaryState(ev));
+        // the final result sent when the subscription is removed carries no event
+        } else if ((ev as any).unsubscribed) {
+            return;
+        // batched events arrive as a single array payload; unpack them in order
+        } else if ((ev.type as string) === EVENT_TYPE_BATCH && Array.isArray(ev.data)) {
+            ev.data.forEach((item: SignalStrengthEvent) => emit(item, fields));
+        } else {
+            emit(ev, fields);
+        }
+    };
+}
+
+function decodeIfBinary<T>(value: T | ArrayBuffer): T {
+    return value instanceof ArrayBuffer
+        ? decodeBinaryState(value).data as T
+        : value as T;
+}
+
 /**
  * Provided for backwards compatibility - this will be removed in a future release.
  * @deprecated use `SignalStrength.getCellState()` instead
@@ -217,24 +1234,141 @@ export class SignalStrengthCordovaInterface {
     constructor() {
     }
 
-    public getCellState(): Promise<CellState> {
-        return invoke<CellState>('getCellState');
+    public getCellState<F extends SignalField>(
+        options: StateRequestOptions & {fields: readonly F[]}
+    ): Promise<ProjectedCellState<F>>;
+    public getCellState(options?: StateRequestOptions): Promise<CellState>;
+    public getCellState(options: StateRequestOptions = {}): Promise<CellState | ProjectedCellState<SignalField>> {
+        return invoke<CellState | ArrayBuffer>('getCellState', options)
+            .then((state) => decodeIfBinary<CellState>(state));
+    }
+
+    public getWifiState<F extends SignalField>(
+        options: WifiStateRequestOptions & {fields: readonly F[]}
+    ): Promise<ProjectedWifiState<F>>;
+    public getWifiState(options?: WifiStateRequestOptions): Promise<WifiState>;
+    public getWifiState(options: WifiStateRequestOptions = {}): Promise<WifiState | ProjectedWifiState<SignalField>> {
+        return invoke<WifiState | ArrayBuffer>('getWifiState', options)
+            .then((state) => state instanceof ArrayBuffer
+                ? normalizeWifiState(decodeIfBinary<WifiState>(state))
+                : normalizeWifiState(state, options.fields));
+    }
+
+    public getStats(): Promise<SignalStrengthStats> {
+        return invoke<SignalStrengthStats>('getStats');
+    }
+
+    /**
+     * Returns counters and latency histograms recorded since plugin start or the last reset.
+     * @param reset clears the metrics after taking this snapshot
+     */
+    public getMetrics(reset: boolean = false): Promise<SignalStrengthMetrics> {
+        return invoke<SignalStrengthMetrics>('getMetrics', reset);
+    }
+
+    /**
+     * Starts or stops recording native hot path activity into a fixed-size trace ring.
+     * Tracing is off by default.
+     * @param capacity number of records kept; changing it discards recorded ones
+     */
+    public setTraceEnabled(enabled: boolean, capacity?: number): Promise<void> {
+        const args: any[] = typeof capacity === 'number' ? [enabled, capacity] : [enabled];
+        return invoke<void>('setTraceEnabled', ...args);
+    }
+
+    /**
+     * Returns the recorded trace as a compact binary dump, to be decoded offline
+     * (see the layout documented in TraceRecorder.java).
+     * @param clear discards the recorded trace after taking this dump
+     */
+    public dumpTrace(clear: boolean = false): Promise<ArrayBuffer> {
+        return invoke<ArrayBuffer>('dumpTrace', clear);
+    }
+
+    /**
+     * Returns samples recorded by the native listeners while the shared event delegate
+     * is set, as well as by one-shot state requests, oldest first.
+     * @param since only samples with a timestamp greater than this are returned
+     * @param limit maximum number of samples to return
+     */
+    public getHistory(since: number = 0, limit?: number): Promise<SignalSample[]> {
+        const args: any[] = typeof limit === 'number' ? [since, limit] : [since];
+        return invoke<SignalSample[]>('getHistory', ...args);
     }
 
-    public getWifiState(): Promise<WifiState> {
-        return invoke<WifiState>('getWifiState').then(normalizeWifiState);
+    /**
+     * Returns a page of samples from the persistent sample log, which is enabled with
+     * the `persistentLogMaxBytes` option, or the path of the log file if `asFile` is set.
+     */
+    public queryPersistentLog(options: PersistentLogQueryOptions & {asFile: true}): Promise<PersistentLogFile>;
+    public queryPersistentLog(options?: PersistentLogQueryOptions): Promise<PersistentLogPage>;
+    public queryPersistentLog(options: PersistentLogQueryOptions = {}): Promise<PersistentLogPage | PersistentLogFile> {
+        return invoke<PersistentLogPage | PersistentLogFile>('queryPersistentLog', options);
     }
 
-    public setSharedEventDelegate(success: SuccessCallback<SignalStrengthEvent>, error?: ErrorCallback): void {
-        const successWrapper: SuccessCallback<SignalStrengthEvent> = (ev) => {
-            if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
-                ev.data = normalizeWifiState(ev.data);
-            }
-            success(ev);
+    /**
+     * Returns rolling aggregates of the samples recorded by the native listeners
+     * and one-shot state requests, over each configured window.
+     */
+    public getSignalStats(): Promise<SignalStats> {
+        return invoke<SignalStats>('getSignalStats');
+    }
+
+    /**
+     * Sets options that affect every subscriber, replacing the values set by earlier calls.
+     * Options that are not passed keep their current value.
+     */
+    public configure(options: PluginOptions): Promise<void> {
+        return invoke<void>('configure', options);
+    }
+
+    /**
+     * Adds an independent listener of state change events. Native listeners are
+     * registered when the first subscriber is added, and removed with the last one.
+     * @returns a function that removes this subscription
+     */
+    public subscribe(
+        listener: SuccessCallback<SignalStrengthEvent>,
+        options: SubscriptionOptions = {},
+        error?: ErrorCallback
+    ): SignalStrengthUnsubscribe {
+        const subscriptionId = createSubscriptionId();
+        cordovaExec<SignalStrengthEvent | ArrayBuffer>(
+            PLUGIN_NAME,
+            'subscribe',
+            wrapEventListener(listener, options.fields),
+            error,
+            [subscriptionId, options]
+        );
+        return () => invoke<void>('unsubscribe', subscriptionId);
+    }
+
+    /**
+     * Sets the single shared listener, replacing any listener set by a previous call.
+     * Listeners added with `subscribe()` are not affected.
+     * @returns a function that removes the shared listener
+     */
+    public setSharedEventDelegate(
+        success: SuccessCallback<SignalStrengthEvent>,
+        error?: ErrorCallback,
+        options: SharedEventDelegateOptions = {}
+    ): SignalStrengthUnsubscribe {
+        cordovaExec<SignalStrengthEvent | ArrayBuffer>(
+            PLUGIN_NAME,
+            'setSharedEventDelegate',
+            wrapEventListener(success, options.fields),
+            error,
+            [false, options]
+        );
+        return () => {
+            this.removeSharedEventDelegate();
+            return Promise.resolve();
         };
-        cordovaExec<SignalStrengthEvent>(PLUGIN_NAME, 'setSharedEventDelegate', successWrapper, error, [false]);
     }
 
+    /**
+     * Removes the shared listener. Listeners added with `subscribe()` are not affected.
+     */
     public removeSharedEventDelegate(): void {
         cordovaExec<SignalStrengthEvent>(PLUGIN_NAME, 'setSharedEventDelegate', undefined, undefined, [true]);
     }
@@ -2,8 +2,21 @@
 ////////////////////////////////////////////////////////////////
 // Generic Cordova Utilities
 ////////////////////////////////////////////////////////////////
+var __spreadArray = (this && this.__spreadArray) || function (to, from, pack) {
+    if (pack || arguments.length === 2) for (var i = 0, l = from.length, ar; i < l; i++) {
+        if (ar || !(i in from)) {
+            if (!ar) ar = Array.prototype.slice.call(from, 0, i);
+            ar[i] = from[i];
+        }
+    }
+    return to.concat(ar || Array.prototype.slice.call(from));
+};
 Object.defineProperty(exports, "__esModule", { value: true });
-exports.SignalStrength = exports.SignalStrengthCordovaInterface = exports.calculateSignalLevel = exports.calculateSignalPercentage = exports.dbm = exports.CellConnectionStatus = exports.SignalStrengthEventType = exports.CellInfoType = void 0;
+exports.SignalStrength = exports.SignalStrengthCordovaInterface = exports.SignalSampleSource = exports.BASIC_WIFI_FIELDS = exports.PRIMARY_CELL_FIELDS = exports.CellConnectionStatus = exports.SignalDegradationReason = exports.SignalStrengthEventType = exports.CellInfoType = void 0;
+exports.decodeBinaryState = decodeBinaryState;
+exports.dbm = dbm;
+exports.calculateSignalPercentage = calculateSignalPercentage;
+exports.calculateSignalLevel = calculateSignalLevel;
 function noop() {
     return;
 }
@@ -28,6 +41,20 @@ function cordovaExecPromise(plugin, method, args) {
 // Plugin Interface
 ////////////////////////////////////////////////////////////////
 var PLUGIN_NAME = 'SignalStrength';
+var EVENT_TYPE_BATCH = 'batch';
+var SUBSCRIPTION_ID_PREFIX = 'subscription';
+// Must be kept in sync with BinaryStateEncoder.java
+var BINARY_VERSION = 1;
+var BINARY_KIND_CELL_STATE = 1;
+var BINARY_KIND_WIFI_STATE = 2;
+var BINARY_CELL_FLAG_PRIMARY = 1;
+var BINARY_CELL_FLAG_HAS_PRIMARY = 1 << 1;
+var BINARY_CELL_FLAG_STALE = 1 << 2;
+var BINARY_WIFI_FLAG_ENABLED = 1;
+var BINARY_WIFI_FLAG_CONNECTED = 1 << 1;
+var BINARY_WIFI_FLAG_HAS_LEVEL = 1 << 2;
+var BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS = 1 << 3;
+var BINARY_NO_STRING = 0xffff;
 var DEFAULT_BEST_RSSI = -40;
 var DEFAULT_WORST_RSSI = -95;
 var DEFAULT_MAX_LEVEL = 4;
@@ -49,7 +76,36 @@ var SignalStrengthEventType;
 (function (SignalStrengthEventType) {
     SignalStrengthEventType["CELL_STATE_UPDATED"] = "cellStateUpdated";
     SignalStrengthEventType["WIFI_STATE_UPDATED"] = "wifiStateUpdated";
+    /**
+     * A source started showing signs of an imminent drop (see `PluginOptions.degradation`).
+     * Delivered as json even to binary subscribers.
+     */
+    SignalStrengthEventType["SIGNAL_DEGRADING"] = "signalDegrading";
+    /**
+     * A source that was degrading no longer is.
+     */
+    SignalStrengthEventType["SIGNAL_RECOVERED"] = "signalRecovered";
 })(SignalStrengthEventType || (exports.SignalStrengthEventType = SignalStrengthEventType = {}));
+var SignalDegradationReason;
+(function (SignalDegradationReason) {
+    /**
+     * At or below the configured `cellDbm` / `wifiRssi`.
+     */
+    SignalDegradationReason["WEAK"] = "weak";
+    /**
+     * Falling faster than `slopeDbPerSec`, within `marginDb` of the weak threshold.
+     */
+    SignalDegradationReason["FALLING"] = "falling";
+    /**
+     * The serving cell type / BSSID changed, or the connection was lost or regained,
+     * at least `flapCount` times within `flapWindowMs`.
+     */
+    SignalDegradationReason["FLAPPING"] = "flapping";
+    /**
+     * Wifi only: the link speed falls faster than `linkSpeedFallPercentPerSec`.
+     */
+    SignalDegradationReason["LINK_SPEED_FALLING"] = "linkSpeedFalling";
+})(SignalDegradationReason || (exports.SignalDegradationReason = SignalDegradationReason = {}));
 /**
  * Constants reported from CellInfo:
  * https://developer.android.com/reference/android/telephony/CellInfo#constants_1
@@ -61,6 +117,37 @@ var CellConnectionStatus;
     CellConnectionStatus[CellConnectionStatus["CONNECTION_SECONDARY_SERVING"] = 2] = "CONNECTION_SECONDARY_SERVING";
     CellConnectionStatus[CellConnectionStatus["CONNECTION_UNKNOWN"] = 2147483647] = "CONNECTION_UNKNOWN";
 })(CellConnectionStatus || (exports.CellConnectionStatus = CellConnectionStatus = {}));
+/**
+ * Primary cell fields only, i.e. without `alternates` and `simSubscriptions`.
+ */
+exports.PRIMARY_CELL_FIELDS = [
+    'cellType',
+    'dbm',
+    'level',
+    'connectionStatus',
+    'cellDataLoaded',
+    'rsrp',
+    'rsrq',
+    'sinr',
+    'primary'
+];
+/**
+ * Wifi fields without the Android 11+ tx / rx link speeds.
+ */
+exports.BASIC_WIFI_FIELDS = [
+    'ssid',
+    'bssid',
+    'networkId',
+    'rssi',
+    'linkSpeedMbps',
+    'level',
+    'maxLevel'
+];
+var SignalSampleSource;
+(function (SignalSampleSource) {
+    SignalSampleSource["CELL"] = "cell";
+    SignalSampleSource["WIFI"] = "wifi";
+})(SignalSampleSource || (exports.SignalSampleSource = SignalSampleSource = {}));
 function invoke(method) {
     var args = [];
     for (var _i = 1; _i < arguments.length; _i++) {
@@ -79,18 +166,190 @@ function lerp(a, b, t) {
     var high = Math.max(a, b);
     return clamp(lerpUnclamped(a, b, t), low, high);
 }
-function normalizeWifiState(state) {
-    if (state && state.info) {
+/**
+ * @param fields the fields the payload was projected to, if any; level / maxLevel
+ * are only shimmed when requested, so that projected payloads keep their shape
+ */
+function normalizeWifiState(state, fields) {
+    var wantsLevel = !fields || fields.indexOf('level') >= 0 || fields.indexOf('maxLevel') >= 0;
+    if (state && state.info && wantsLevel) {
         // If level / max level were not provided due to older android version (< API 30),
         // attempt to calculate these values manually and shim them onto the response object.
-        if (typeof state.info.level !== 'number'
-            || typeof state.info.maxLevel !== 'number') {
+        if (typeof state.info.rssi === 'number'
+            && (typeof state.info.level !== 'number' || typeof state.info.maxLevel !== 'number')) {
             state.info.level = calculateSignalLevel(state.info.rssi);
             state.info.maxLevel = DEFAULT_MAX_LEVEL;
         }
     }
     return state;
 }
+var BinaryStateReader = /** @class */ (function () {
+    function BinaryStateReader(buffer) {
+        this.strings = [];
+        this.offset = 0;
+        this.view = new DataView(buffer);
+    }
+    BinaryStateReader.prototype.u8 = function () {
+        return this.view.getUint8(this.offset++);
+    };
+    BinaryStateReader.prototype.u16 = function () {
+        var value = this.view.getUint16(this.offset, true);
+        this.offset += 2;
+        return value;
+    };
+    BinaryStateReader.prototype.i32 = function () {
+        var value = this.view.getInt32(this.offset, true);
+        this.offset += 4;
+        return value;
+    };
+    BinaryStateReader.prototype.readStringTable = function () {
+        var count = this.u8();
+        var decoder = new TextDecoder('utf-8');
+        for (var i = 0; i < count; i++) {
+            var length_1 = this.u16();
+            var bytes = new Uint8Array(this.view.buffer, this.view.byteOffset + this.offset, length_1);
+            this.strings.push(decoder.decode(bytes));
+            this.offset += length_1;
+        }
+    };
+    BinaryStateReader.prototype.stringRef = function () {
+        var index = this.u16();
+        return index === BINARY_NO_STRING ? undefined : this.strings[index];
+    };
+    return BinaryStateReader;
+}());
+function readBinaryCellInfo(reader) {
+    var cellType = reader.stringRef();
+    var cellDataLoaded = reader.u8() !== 0;
+    reader.u8(); // reserved
+    var dbm = reader.i32();
+    var level = reader.i32();
+    var connectionStatus = reader.i32();
+    return { cellType: cellType, dbm: dbm, level: level, connectionStatus: connectionStatus, cellDataLoaded: cellDataLoaded };
+}
+function readBinaryCellState(reader) {
+    var flags = reader.u8();
+    var alternateCount = reader.u8();
+    var cacheAgeMs = reader.i32();
+    var state = ((flags & BINARY_CELL_FLAG_HAS_PRIMARY)
+        ? readBinaryCellInfo(reader)
+        : {});
+    state.primary = (flags & BINARY_CELL_FLAG_PRIMARY) !== 0;
+    state.alternates = [];
+    for (var i = 0; i < alternateCount; i++) {
+        state.alternates.push(readBinaryCellInfo(reader));
+    }
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+    if (flags & BINARY_CELL_FLAG_STALE) {
+        state.stale = true;
+    }
+    return state;
+}
+function readBinaryWifiState(reader) {
+    var flags = reader.u8();
+    var reason = reader.stringRef();
+    var cacheAgeMs = reader.i32();
+    var state = {
+        enabled: (flags & BINARY_WIFI_FLAG_ENABLED) !== 0,
+        connected: (flags & BINARY_WIFI_FLAG_CONNECTED) !== 0
+    };
+    if (state.connected) {
+        var info = {
+            ssid: reader.stringRef(),
+            bssid: reader.stringRef(),
+            networkId: reader.i32(),
+            rssi: reader.i32(),
+            linkSpeedMbps: reader.i32()
+        };
+        var level = reader.i32();
+        var maxLevel = reader.i32();
+        var txLinkSpeedMbps = reader.i32();
+        var maxTxLinkSpeedMbps = reader.i32();
+        var rxLinkSpeedMbps = reader.i32();
+        var maxRxLinkSpeedMbps = reader.i32();
+        if (flags & BINARY_WIFI_FLAG_HAS_LEVEL) {
+            info.level = level;
+            info.maxLevel = maxLevel;
+        }
+        if (flags & BINARY_WIFI_FLAG_HAS_LINK_SPEED_DETAILS) {
+            info.txLinkSpeedMbps = txLinkSpeedMbps;
+            info.maxTxLinkSpeedMbps = maxTxLinkSpeedMbps;
+            info.rxLinkSpeedMbps = rxLinkSpeedMbps;
+            info.maxRxLinkSpeedMbps = maxRxLinkSpeedMbps;
+        }
+        state.info = info;
+    }
+    if (reason !== undefined) {
+        state.reason = reason;
+    }
+    if (cacheAgeMs >= 0) {
+        state.cacheAgeMs = cacheAgeMs;
+    }
+    return normalizeWifiState(state);
+}
+/**
+ * Decodes a binary frame produced by the native plugin when the `binary` option is set.
+ * Layout is documented in BinaryStateEncoder.java.
+ */
+function decodeBinaryState(buffer) {
+    var reader = new BinaryStateReader(buffer);
+    var version = reader.u8();
+    if (version !== BINARY_VERSION) {
+        throw new Error("unsupported binary state version ".concat(version));
+    }
+    var kind = reader.u8();
+    reader.readStringTable();
+    switch (kind) {
+        case BINARY_KIND_CELL_STATE:
+            return { type: SignalStrengthEventType.CELL_STATE_UPDATED, data: readBinaryCellState(reader) };
+        case BINARY_KIND_WIFI_STATE:
+            return { type: SignalStrengthEventType.WIFI_STATE_UPDATED, data: readBinaryWifiState(reader) };
+        default:
+            throw new Error("unsupported binary state kind ".concat(kind));
+    }
+}
+var subscriptionCount = 0;
+function createSubscriptionId() {
+    // the timestamp keeps ids unique across page reloads
+    return "".concat(SUBSCRIPTION_ID_PREFIX, "-").concat(Date.now(), "-").concat(++subscriptionCount);
+}
+/**
+ * Unpacks batched and binary payloads, so that the listener
+ * is invoked with one normalized event at a time.
+ * @param fields the `fields` option of the subscription, which json events are projected to
+ */
+function wrapEventListener(listener, fields) {
+    var emit = function (ev, eventFields) {
+        if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
+            ev.data = normalizeWifiState(ev.data, eventFields);
+        }
+        listener(ev);
+    };
+    return function (ev) {
+        if (ev instanceof ArrayBuffer) {
+            // binary frames are not projected and hold every field
+            emit(decodeBinaryState(ev));
+            // the final result sent when the subscription is removed carries no event
+        }
+        else if (ev.unsubscribed) {
+            return;
+            // batched events arrive as a single array payload; unpack them in order
+        }
+        else if (ev.type === EVENT_TYPE_BATCH && Array.isArray(ev.data)) {
+            ev.data.forEach(function (item) { return emit(item, fields); });
+        }
+        else {
+            emit(ev, fields);
+        }
+    };
+}
+function decodeIfBinary(value) {
+    return value instanceof ArrayBuffer
+        ? decodeBinaryState(value).data
+        : value;
+}
 /**
  * Provided for backwards compatibility - this will be removed in a future release.
  * @deprecated use `SignalStrength.getCellState()` instead
@@ -104,7 +363,6 @@ function dbm(successCallback, errorCallback) {
     }
     cordovaExec(PLUGIN_NAME, 'dbm', successCallback, errorCallback, []);
 }
-exports.dbm = dbm;
 /**
  * Given an rssi and a valid best -> worst rssi range,
  * this will return a floating point value in range [0, 1].
@@ -128,7 +386,6 @@ function calculateSignalPercentage(rssi, bestRssi, worstRssi) {
     var percentage = (scalar - qualityLoss) / scalar;
     return clamp(percentage, 0, 1);
 }
-exports.calculateSignalPercentage = calculateSignalPercentage;
 /**
  * Converts the given RSSI to a percentage, and then
  * interpolates between the given min level and max level
@@ -142,25 +399,107 @@ function calculateSignalLevel(rssi, maxLevel, minLevel, bestRssi, worstRssi) {
     var percentage = calculateSignalPercentage(rssi, bestRssi, worstRssi);
     return Math.floor(lerp(minLevel, maxLevel, percentage));
 }
-exports.calculateSignalLevel = calculateSignalLevel;
 var SignalStrengthCordovaInterface = /** @class */ (function () {
     function SignalStrengthCordovaInterface() {
     }
-    SignalStrengthCordovaInterface.prototype.getCellState = function () {
-        return invoke('getCellState');
+    SignalStrengthCordovaInterface.prototype.getCellState = function (options) {
+        if (options === void 0) { options = {}; }
+        return invoke('getCellState', options)
+            .then(function (state) { return decodeIfBinary(state); });
+    };
+    SignalStrengthCordovaInterface.prototype.getWifiState = function (options) {
+        if (options === void 0) { options = {}; }
+        return invoke('getWifiState', options)
+            .then(function (state) { return state instanceof ArrayBuffer
+            ? normalizeWifiState(decodeIfBinary(state))
+            : normalizeWifiState(state, options.fields); });
+    };
+    SignalStrengthCordovaInterface.prototype.getStats = function () {
+        return invoke('getStats');
+    };
+    /**
+     * Returns counters and latency histograms recorded since plugin start or the last reset.
+     * @param reset clears the metrics after taking this snapshot
+     */
+    SignalStrengthCordovaInterface.prototype.getMetrics = function (reset) {
+        if (reset === void 0) { reset = false; }
+        return invoke('getMetrics', reset);
+    };
+    /**
+     * Starts or stops recording native hot path activity into a fixed-size trace ring.
+     * Tracing is off by default.
+     * @param capacity number of records kept; changing it discards recorded ones
+     */
+    SignalStrengthCordovaInterface.prototype.setTraceEnabled = function (enabled, capacity) {
+        var args = typeof capacity === 'number' ? [enabled, capacity] : [enabled];
+        return invoke.apply(void 0, __spreadArray(['setTraceEnabled'], args, false));
+    };
+    /**
+     * Returns the recorded trace as a compact binary dump, to be decoded offline
+     * (see the layout documented in TraceRecorder.java).
+     * @param clear discards the recorded trace after taking this dump
+     */
+    SignalStrengthCordovaInterface.prototype.dumpTrace = function (clear) {
+        if (clear === void 0) { clear = false; }
+        return invoke('dumpTrace', clear);
+    };
+    /**
+     * Returns samples recorded by the native listeners while the shared event delegate
+     * is set, as well as by one-shot state requests, oldest first.
+     * @param since only samples with a timestamp greater than this are returned
+     * @param limit maximum number of samples to return
+     */
+    SignalStrengthCordovaInterface.prototype.getHistory = function (since, limit) {
+        if (since === void 0) { since = 0; }
+        var args = typeof limit === 'number' ? [since, limit] : [since];
+        return invoke.apply(void 0, __spreadArray(['getHistory'], args, false));
+    };
+    SignalStrengthCordovaInterface.prototype.queryPersistentLog = function (options) {
+        if (options === void 0) { options = {}; }
+        return invoke('queryPersistentLog', options);
+    };
+    /**
+     * Returns rolling aggregates of the samples recorded by the native listeners
+     * and one-shot state requests, over each configured window.
+     */
+    SignalStrengthCordovaInterface.prototype.getSignalStats = function () {
+        return invoke('getSignalStats');
+    };
+    /**
+     * Sets options that affect every subscriber, replacing the values set by earlier calls.
+     * Options that are not passed keep their current value.
+     */
+    SignalStrengthCordovaInterface.prototype.configure = function (options) {
+        return invoke('configure', options);
     };
-    SignalStrengthCordovaInterface.prototype.getWifiState = function () {
-        return invoke('getWifiState').then(normalizeWifiState);
+    /**
+     * Adds an independent listener of state change events. Native listeners are
+     * registered when the first subscriber is added, and removed with the last one.
+     * @returns a function that removes this subscription
+     */
+    SignalStrengthCordovaInterface.prototype.subscribe = function (listener, options, error) {
+        if (options === void 0) { options = {}; }
+        var subscriptionId = createSubscriptionId();
+        cordovaExec(PLUGIN_NAME, 'subscribe', wrapEventListener(listener, options.fields), error, [subscriptionId, options]);
+        return function () { return invoke('unsubscribe', subscriptionId); };
     };
-    SignalStrengthCordovaInterface.prototype.setSharedEventDelegate = function (success, error) {
-        var successWrapper = function (ev) {
-            if (ev.type === SignalStrengthEventType.WIFI_STATE_UPDATED && ev.data) {
-                ev.data = normalizeWifiState(ev.data);
-            }
-            success(ev);
+    /**
+     * Sets the single shared listener, replacing any listener set by a previous call.
+     * Listeners added with `subscribe()` are not affected.
+     * @returns a function that removes the shared listener
+     */
+    SignalStrengthCordovaInterface.prototype.setSharedEventDelegate = function (success, error, options) {
+        var _this = this;
+        if (options === void 0) { options = {}; }
+        cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', wrapEventListener(success, options.fields), error, [false, options]);
+        return function () {
+            _this.removeSharedEventDelegate();
+            return Promise.resolve();
         };
-        cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', successWrapper, error, [false]);
     };
+    /**
+     * Removes the shared listener. Listeners added with `subscribe()` are not affected.
+     */
     SignalStrengthCordovaInterface.prototype.removeSharedEventDelegate = function () {
         cordovaExec(PLUGIN_NAME, 'setSharedEventDelegate', undefined, undefined, [true]);
     };